@@ -0,0 +1,127 @@
+package velox.api.layer1.aaa.barscount;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of a range query for 1000 intervals ending at the last bar of a full
+ * day of 0.25s bars (345600 bars) from {@link BarsCountHistory}, against a
+ * list of bar objects scanned from the start. Setup fails if the two give
+ * different bars.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarsCountHistoryBenchmark {
+    private static final long BAR_NANOS = 250_000_000L;
+    private static final int BARS = (int) (24 * 3600 * 1_000_000_000L / BAR_NANOS);
+    private static final int INTERVALS = 1000;
+
+    private static class BarObject {
+        final long time;
+        final CountResult result;
+
+        BarObject(long time, CountResult result) {
+            this.time = time;
+            this.result = result;
+        }
+    }
+
+    @Param({ "minute", "hour", "day" })
+    public String range;
+
+    private final BarsCountHistory history = new BarsCountHistory();
+    private final List<BarObject> bars = new ArrayList<>();
+    private long t0;
+    private long intervalWidth;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        BarsCountCalculator calculator = new BarsCountCalculator(3, 0, CompareWith.SELF);
+        double price = 6000;
+        long time = 0;
+        for (int i = 0; i < BARS; i++) {
+            time += BAR_NANOS;
+            price += (random.nextInt(5) - 2) * 0.25;
+            CountResult result = calculator.addBar(price);
+            history.add(time, price, calculator.getAverage(), result);
+            bars.add(new BarObject(time, result));
+        }
+
+        long rangeNanos;
+        switch (range) {
+        case "minute":
+            rangeNanos = 60_000_000_000L;
+            break;
+        case "hour":
+            rangeNanos = 3600_000_000_000L;
+            break;
+        default:
+            rangeNanos = time;
+        }
+        intervalWidth = Math.max(1, rangeNanos / INTERVALS);
+        t0 = time + 1 - intervalWidth * INTERVALS;
+
+        int[] expected = scan();
+        int[] actual = history.getLastIndices(t0, intervalWidth, INTERVALS);
+        if (!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException(range + ": columns and scan give different bars");
+        }
+    }
+
+    @Benchmark
+    public int columns() {
+        int[] lastIndices = history.getLastIndices(t0, intervalWidth, INTERVALS);
+        int sum = 0;
+        for (int index : lastIndices) {
+            if (index >= 0) {
+                sum += history.getCount(index);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int scanObjects() {
+        int[] lastIndices = scan();
+        int sum = 0;
+        for (int index : lastIndices) {
+            if (index >= 0) {
+                sum += bars.get(index).result.count;
+            }
+        }
+        return sum;
+    }
+
+    private int[] scan() {
+        int[] result = new int[INTERVALS];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < bars.size(); i++) {
+            long offset = bars.get(i).time - t0;
+            if (offset >= 0 && offset < intervalWidth * INTERVALS) {
+                result[(int) (offset / intervalWidth)] = i;
+            }
+        }
+        return result;
+    }
+}
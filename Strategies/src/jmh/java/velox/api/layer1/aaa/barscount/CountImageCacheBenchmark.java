@@ -0,0 +1,81 @@
+package velox.api.layer1.aaa.barscount;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Count images per second for markers of a scrolled chart (counts 1-20 in
+ * the four marker colors), from {@link Layer1ApiBarsCountV2.CountImageCache}
+ * against rendering every image the way makeMarker did before the cache
+ * (measuring with a temporary image and a new font, logging left out).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class CountImageCacheBenchmark {
+    private static final int FONT_SIZE = 12;
+    private static final Color[] COLORS = { new Color(56, 142, 60), new Color(211, 47, 47),
+            new Color(0, 200, 83), new Color(255, 23, 68) };
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private int index;
+
+    @Benchmark
+    public BufferedImage marker() {
+        int i = index++;
+        int count = 1 + i % 20;
+        Color color = COLORS[(i / 20) & 3];
+        return cached ? Layer1ApiBarsCountV2.CountImageCache.getImage(count, color, FONT_SIZE)
+                : render(count, color, FONT_SIZE);
+    }
+
+    private static BufferedImage render(int count, Color textColor, int fontSize) {
+        String text = String.valueOf(count);
+
+        BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D tempGraphics = tempImage.createGraphics();
+        Font font = new Font("SansSerif", Font.BOLD, fontSize);
+        tempGraphics.setFont(font);
+        FontMetrics fm = tempGraphics.getFontMetrics();
+        int textWidth = fm.stringWidth(text);
+        int textHeight = fm.getHeight();
+        int textAscent = fm.getAscent();
+        tempGraphics.dispose();
+
+        int padding = 4;
+        int imageWidth = textWidth + padding * 2;
+        int imageHeight = textHeight + padding * 2;
+
+        BufferedImage bufferedImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = bufferedImage.createGraphics();
+        graphics.setBackground(new Color(0, 0, 0, 0));
+        graphics.clearRect(0, 0, imageWidth, imageHeight);
+        graphics.setColor(new Color(0, 0, 0, 150));
+        graphics.fillRoundRect(0, 0, imageWidth, imageHeight, 6, 6);
+        graphics.setFont(font);
+        graphics.setColor(textColor);
+        graphics.drawString(text, padding, padding + textAscent);
+        graphics.dispose();
+        return bufferedImage;
+    }
+}
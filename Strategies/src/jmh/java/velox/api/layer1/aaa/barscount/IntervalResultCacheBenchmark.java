@@ -0,0 +1,109 @@
+package velox.api.layer1.aaa.barscount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per repaint of 1000 intervals over a synthetic tree (a TreeMap of a
+ * day of 0.25s bars, queried per interval like the data structure
+ * aggregation), with and without {@link IntervalResultCache}. Repaints pan by
+ * up to 20 intervals and switch between two zoom levels every 200 repaints.
+ * Setup replays the repaints through both, fails if any result differs and
+ * prints the hit rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalResultCacheBenchmark {
+    private static final long BAR_NANOS = 250_000_000L;
+    private static final int BARS = (int) (24 * 3600 * 1_000_000_000L / BAR_NANOS);
+    private static final int INTERVALS = 1000;
+    private static final int REPAINTS = 1 << 12;
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private final TreeMap<Long, Integer> tree = new TreeMap<>();
+    private final long[] t0s = new long[REPAINTS];
+    private final long[] intervalWidths = new long[REPAINTS];
+    private IntervalResultCache<Integer> cache;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        long time = 0;
+        for (int i = 0; i < BARS; i++) {
+            time += BAR_NANOS;
+            tree.put(time, random.nextInt(20));
+        }
+
+        long[] zoomWidths = { BAR_NANOS * 4, BAR_NANOS * 16 };
+        long center = time / 2;
+        for (int i = 0; i < REPAINTS; i++) {
+            long intervalWidth = zoomWidths[(i / 200) % zoomWidths.length];
+            center += (random.nextInt(41) - 20) * intervalWidth;
+            // Interval boundaries stay multiples of the width, as on the chart
+            t0s[i] = (center / intervalWidth - INTERVALS / 2) * intervalWidth;
+            intervalWidths[i] = intervalWidth;
+        }
+
+        IntervalResultCache<Integer> check = createCache(time);
+        for (int i = 0; i < REPAINTS; i++) {
+            List<Integer> expected = calculate(t0s[i], intervalWidths[i], INTERVALS);
+            List<Integer> actual = check.get(t0s[i], intervalWidths[i], INTERVALS, this::calculate);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Repaint " + i + " differs from the tree");
+            }
+        }
+        System.out.printf("Hit rate %.1f%% (%d hits, %d misses)%n",
+                100.0 * check.getHits() / (check.getHits() + check.getMisses()), check.getHits(), check.getMisses());
+        cache = createCache(time);
+    }
+
+    @Benchmark
+    public List<Integer> repaint() {
+        int i = index++ & (REPAINTS - 1);
+        if (cached) {
+            return cache.get(t0s[i], intervalWidths[i], INTERVALS, this::calculate);
+        }
+        return calculate(t0s[i], intervalWidths[i], INTERVALS);
+    }
+
+    private IntervalResultCache<Integer> createCache(long latestTime) {
+        IntervalResultCache<Integer> cache = new IntervalResultCache<>();
+        cache.onEvent(latestTime);
+        return cache;
+    }
+
+    /** Last value of every interval, -1 for empty ones */
+    private List<Integer> calculate(long t0, long intervalWidth, int intervalsNumber) {
+        List<Integer> result = new ArrayList<>(intervalsNumber);
+        for (int i = 0; i < intervalsNumber; i++) {
+            long start = t0 + i * intervalWidth;
+            Map.Entry<Long, Integer> last = tree.lowerEntry(start + intervalWidth);
+            result.add(last != null && last.getKey() >= start ? last.getValue() : -1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package velox.api.layer1.aaa.movingaverage;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+import velox.api.layer1.aaa.movingaverage.MovingAverageSettings.MAType;
+
+/**
+ * Feeds random walks with NaN gaps into {@link MovingAverageCalculator} and
+ * the queue based calculator it replaced, for every type and periods between
+ * 1 and 2000, and fails on the first value that differs by more than 1e-9 or
+ * is NaN in only one of them. Prices are in 0.01 ticks, so running sums
+ * round; walks are long enough for the ring buffers to wrap around many
+ * times, and have jumps so that running sums see large cancellations.
+ */
+public class MovingAverageCheck {
+    private static final double TOLERANCE = 1e-9;
+    private static final int BARS = 20_000;
+    private static final int[] PERIODS = { 1, 2, 3, 5, 9, 14, 20, 50, 100, 200, 333, 1000, 2000 };
+
+    /** Calculator as it was implemented before the ring buffers */
+    private static class QueueCalculator {
+        private final int period;
+        private final MAType maType;
+        private final Queue<Double> priceQueue = new LinkedList<>();
+        private double sum = 0.0;
+        private double ema = Double.NaN;
+        private final double multiplier;
+
+        QueueCalculator(int period, MAType maType) {
+            this.period = period;
+            this.maType = maType;
+            this.multiplier = 2.0 / (period + 1.0);
+        }
+
+        double addPrice(double price) {
+            if (Double.isNaN(price)) {
+                return Double.NaN;
+            }
+            switch (maType) {
+                case EMA:
+                    return calculateEMA(price);
+                case WMA:
+                    return calculateWMA(price);
+                case SMA:
+                default:
+                    return calculateSMA(price);
+            }
+        }
+
+        private double calculateSMA(double price) {
+            priceQueue.offer(price);
+            sum += price;
+            if (priceQueue.size() > period) {
+                sum -= priceQueue.poll();
+            }
+            return priceQueue.size() < period ? Double.NaN : sum / period;
+        }
+
+        private double calculateEMA(double price) {
+            if (Double.isNaN(ema)) {
+                priceQueue.offer(price);
+                sum += price;
+                if (priceQueue.size() < period) {
+                    return Double.NaN;
+                }
+                ema = sum / period;
+                return ema;
+            }
+            ema = (price - ema) * multiplier + ema;
+            return ema;
+        }
+
+        private double calculateWMA(double price) {
+            priceQueue.offer(price);
+            if (priceQueue.size() > period) {
+                priceQueue.poll();
+            }
+            if (priceQueue.size() < period) {
+                return Double.NaN;
+            }
+            double weightedSum = 0.0;
+            double weightSum = 0.0;
+            int weight = 1;
+            for (Double p : priceQueue) {
+                weightedSum += p * weight;
+                weightSum += weight;
+                weight++;
+            }
+            return weightedSum / weightSum;
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        double maxDifference = 0;
+        long values = 0;
+        for (MAType maType : MAType.values()) {
+            for (int period : PERIODS) {
+                MovingAverageCalculator calculator = MovingAverageCalculator.create(period, maType);
+                QueueCalculator reference = new QueueCalculator(period, maType);
+                double price = 100 + random.nextInt(500_000) * 0.01;
+                for (int i = 0; i < BARS; i++) {
+                    int kind = random.nextInt(1000);
+                    double barPrice;
+                    if (kind < 20) {
+                        // Bar without trades
+                        barPrice = Double.NaN;
+                    } else {
+                        if (kind < 22) {
+                            price = Math.max(0.01, price + (random.nextInt(200_001) - 100_000) * 0.01);
+                        } else {
+                            price = Math.max(0.01, price + (random.nextInt(9) - 4) * 0.01);
+                        }
+                        barPrice = price;
+                    }
+                    double expected = reference.addPrice(barPrice);
+                    double actual = calculator.addPrice(barPrice);
+                    if (Double.isNaN(expected) != Double.isNaN(actual)
+                            || Math.abs(expected - actual) > TOLERANCE) {
+                        throw new IllegalStateException(maType + "(" + period + ") bar " + i + ": " + actual
+                                + " instead of " + expected);
+                    }
+                    if (!Double.isNaN(expected)) {
+                        maxDifference = Math.max(maxDifference, Math.abs(expected - actual));
+                        values++;
+                    }
+                }
+            }
+        }
+        System.out.printf("MovingAverageCheck: %d values match, max difference %.1e%n", values, maxDifference);
+    }
+}
@@ -0,0 +1,53 @@
+package velox.api.layer1.aaa.vwap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trades per second through {@link VwapAccumulator}, reading the VWAP and
+ * standard deviation after each one. Prices are a random walk in ticks
+ * around 6M and sizes go up to 1000; {@link VwapAccumulatorCheck} checks
+ * their precision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VwapAccumulatorBenchmark {
+    private final int[] prices = new int[1 << 16];
+    private final int[] sizes = new int[1 << 16];
+    private final VwapAccumulator accumulator = new VwapAccumulator();
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        int price = 6_000_000;
+        for (int i = 0; i < prices.length; i++) {
+            price += random.nextInt(3) - 1;
+            prices[i] = price;
+            sizes[i] = 1 + (int) Math.min(999, -100 * Math.log(1 - random.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public double addTrade() {
+        int i = index++ & (prices.length - 1);
+        accumulator.addTrade(prices[i], sizes[i]);
+        return accumulator.getVwap() + accumulator.getStandardDeviation();
+    }
+}
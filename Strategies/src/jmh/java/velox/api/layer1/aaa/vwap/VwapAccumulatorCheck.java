@@ -0,0 +1,87 @@
+package velox.api.layer1.aaa.vwap;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+/**
+ * Feeds 100M synthetic trades (prices of a random walk in ticks around 6M,
+ * sizes up to 1000) into {@link VwapAccumulator} and fails unless the VWAP
+ * and standard deviation are within 1e-12 relative of exact integer
+ * arithmetic. Then resets it, fails unless both are NaN, and repeats with a
+ * shorter session far from the first one. Prints the errors next to those of
+ * plain double sums of price * size and price^2 * size for comparison.
+ */
+public class VwapAccumulatorCheck {
+    private static final long TRADES = 100_000_000L;
+    private static final long SESSION_TRADES = 1_000_000L;
+    private static final double MAX_RELATIVE_ERROR = 1e-12;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        VwapAccumulator accumulator = new VwapAccumulator();
+        checkSession(accumulator, random, 6_000_000, TRADES);
+
+        accumulator.reset();
+        if (!Double.isNaN(accumulator.getVwap()) || !Double.isNaN(accumulator.getStandardDeviation())
+                || accumulator.getVolume() != 0) {
+            throw new IllegalStateException("After reset: VWAP " + accumulator.getVwap() + ", standard deviation "
+                    + accumulator.getStandardDeviation() + ", volume " + accumulator.getVolume());
+        }
+        checkSession(accumulator, random, 50_000, SESSION_TRADES);
+    }
+
+    private static void checkSession(VwapAccumulator accumulator, Random random, int startPrice, long trades) {
+        int price = startPrice;
+        long volume = 0;
+        long offsetSum = 0;
+        long squaredOffsetChunk = 0;
+        BigInteger squaredOffsetSum = BigInteger.ZERO;
+        double naivePriceSum = 0;
+        double naiveSquaredPriceSum = 0;
+
+        for (long i = 0; i < trades; i++) {
+            price += random.nextInt(3) - 1;
+            int size = 1 + (int) Math.min(999, -100 * Math.log(1 - random.nextDouble()));
+            accumulator.addTrade(price, size);
+
+            long offset = price - startPrice;
+            volume += size;
+            offsetSum += offset * size;
+            squaredOffsetChunk += offset * offset * size;
+            if ((i & 0xFFFF) == 0xFFFF) {
+                squaredOffsetSum = squaredOffsetSum.add(BigInteger.valueOf(squaredOffsetChunk));
+                squaredOffsetChunk = 0;
+            }
+            naivePriceSum += (double) price * size;
+            naiveSquaredPriceSum += (double) price * price * size;
+        }
+        squaredOffsetSum = squaredOffsetSum.add(BigInteger.valueOf(squaredOffsetChunk));
+
+        MathContext context = MathContext.DECIMAL128;
+        BigDecimal meanOffset = new BigDecimal(offsetSum).divide(new BigDecimal(volume), context);
+        double exactVwap = new BigDecimal(startPrice).add(meanOffset).doubleValue();
+        double exactDeviation = Math.sqrt(new BigDecimal(squaredOffsetSum).divide(new BigDecimal(volume), context)
+                .subtract(meanOffset.multiply(meanOffset, context)).doubleValue());
+
+        double naiveVwap = naivePriceSum / volume;
+        double naiveDeviation = Math.sqrt(Math.max(0, naiveSquaredPriceSum / volume - naiveVwap * naiveVwap));
+        double vwapError = relativeError(accumulator.getVwap(), exactVwap);
+        double deviationError = relativeError(accumulator.getStandardDeviation(), exactDeviation);
+        System.out.printf("VwapAccumulatorCheck: %d trades, VWAP %.6f, SD %.6f: relative errors %.1e / %.1e,"
+                + " plain double sums %.1e / %.1e%n", trades, exactVwap, exactDeviation, vwapError, deviationError,
+                relativeError(naiveVwap, exactVwap), relativeError(naiveDeviation, exactDeviation));
+        if (accumulator.getVolume() != volume) {
+            throw new IllegalStateException("Volume " + accumulator.getVolume() + " instead of " + volume);
+        }
+        if (!(vwapError <= MAX_RELATIVE_ERROR && deviationError <= MAX_RELATIVE_ERROR)) {
+            throw new IllegalStateException("VWAP relative error " + vwapError + ", standard deviation relative error "
+                    + deviationError);
+        }
+    }
+
+    private static double relativeError(double value, double exact) {
+        return Math.abs(value - exact) / Math.abs(exact);
+    }
+}
@@ -0,0 +1,109 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import velox.api.layer1.Layer1ApiProvider;
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.messages.indicators.SettingsAccess;
+import velox.api.layer1.providers.data.Combination;
+
+/**
+ * Depth updates per second through one helper strategy shared by all
+ * benchmark threads, every thread feeding an instrument of its own with
+ * resting orders near the best prices. Run with -t 1, 2, 4, ...: as
+ * instruments share no locks on the depth path, throughput per thread should
+ * stay about the same while there are cores for the threads. The provider
+ * ignores requests, so orders stay where they are and repeated requests are
+ * throttled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelperStrategyAliasesBenchmark {
+    private static final int MAX_ALIASES = 64;
+    private static final double PIPS = 0.25;
+    private static final int MID = 20_000;
+
+    @Param({ "Execute", "Chase", "Escape" })
+    public String strategyName;
+
+    private final SyntheticDepthFeed feed = new SyntheticDepthFeed(1 << 16, MID, 1);
+    private final AtomicInteger nextAlias = new AtomicInteger();
+    private Layer1ApiHelperStrategyAbstract<?> strategy;
+
+    @State(Scope.Thread)
+    public static class Feeder {
+        String alias;
+        int index;
+
+        @Setup(Level.Trial)
+        public void setup(HelperStrategyAliasesBenchmark benchmark) {
+            alias = "ALIAS" + benchmark.nextAlias.getAndIncrement() % MAX_ALIASES;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Layer1ApiProvider provider = (Layer1ApiProvider) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Layer1ApiProvider.class },
+                (proxy, method, args) -> HelperStrategyDepthBenchmark.defaultValue(method.getReturnType()));
+        switch (strategyName) {
+        case "Execute":
+            strategy = new Layer1ApiHelperExecuteStrategy(provider);
+            break;
+        case "Chase":
+            strategy = new Layer1ApiHelperChaseStrategy(provider);
+            break;
+        case "Escape":
+            strategy = new Layer1ApiHelperEscapeStrategy(provider);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown strategy: " + strategyName);
+        }
+        strategy.acceptSettingsInterface((SettingsAccess) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { SettingsAccess.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getSettings")) {
+                        return HelperStrategyDepthBenchmark.createSettings((Class<?>) args[2]);
+                    }
+                    return HelperStrategyDepthBenchmark.defaultValue(method.getReturnType());
+                }));
+        for (int i = 0; i < MAX_ALIASES; i++) {
+            String alias = "ALIAS" + i;
+            strategy.onInstrumentAdded(alias, new InstrumentInfo(alias, "", "", PIPS, 50, alias, false));
+            AliasState state = strategy.aliasStates.get(alias);
+            for (int j = 0; j < 4; j++) {
+                state.ordersMap.put("B" + j, new Combination<>(MID - 2 - 3 * j, true));
+                state.ordersMap.put("S" + j, new Combination<>(MID + 3 + 3 * j, false));
+            }
+        }
+        strategy.isWorking = true;
+    }
+
+    @Benchmark
+    public void onDepth(Feeder feeder) {
+        int i = feeder.index;
+        if (i == feed.prices.length) {
+            i = 0;
+        }
+        strategy.onDepth(feeder.alias, feed.isBid[i], feed.prices[i], feed.sizes[i]);
+        feeder.index = i + 1;
+    }
+}
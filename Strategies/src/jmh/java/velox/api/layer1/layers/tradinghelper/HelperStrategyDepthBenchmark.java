@@ -0,0 +1,248 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import velox.api.layer1.Layer1ApiProvider;
+import velox.api.layer1.config.beans.HelperChaseStrategySettings;
+import velox.api.layer1.config.beans.HelperEscapeStrategySettings;
+import velox.api.layer1.config.beans.HelperExecuteStrategySettings;
+import velox.api.layer1.config.beans.HelperStrategySettings;
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.data.OrderCancelParameters;
+import velox.api.layer1.data.OrderMoveParameters;
+import velox.api.layer1.messages.indicators.SettingsAccess;
+import velox.api.layer1.providers.data.Combination;
+
+/**
+ * Depth updates per second through a helper strategy with resting orders near
+ * the best prices, and the evaluations they cost ("evaluations" counter).
+ * levels = "all" evaluates on every update like before, "considered" skips
+ * updates outside the levels the strategy looks at. The provider applies
+ * requested moves and cancels to the orders immediately. Setup replays the
+ * feed once through both and fails if the requests made differ.
+ * The "coalesced" method runs with -DHelperStrategy.coalesceMs=1, which does
+ * change decisions, so it is not compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelperStrategyDepthBenchmark {
+    private static final String ALIAS = "ESZ5";
+    private static final double PIPS = 0.25;
+    private static final int MID = 20_000;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long evaluations;
+        public long requests;
+    }
+
+    private static class Replay {
+        final Layer1ApiHelperStrategyAbstract<?> strategy;
+        /** Requests, repeats of the previous request for the same order excluded */
+        final List<String> requests = new ArrayList<>();
+        final Map<String, String> lastRequests = new HashMap<>();
+        final AliasState state;
+        long evaluations;
+        long countedEvaluations;
+        int countedRequests;
+
+        Replay(String strategyName, boolean isConsideredOnly) {
+            Layer1ApiProvider provider = (Layer1ApiProvider) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Layer1ApiProvider.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("updateOrder")) {
+                            onRequest(args[0]);
+                        }
+                        return defaultValue(method.getReturnType());
+                    });
+            strategy = createStrategy(strategyName, isConsideredOnly, provider);
+            strategy.acceptSettingsInterface((SettingsAccess) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { SettingsAccess.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("getSettings")) {
+                            return createSettings((Class<?>) args[2]);
+                        }
+                        return defaultValue(method.getReturnType());
+                    }));
+            strategy.onInstrumentAdded(ALIAS, new InstrumentInfo(ALIAS, "", "", PIPS, 50, ALIAS, false));
+            strategy.isWorking = true;
+            state = strategy.aliasStates.get(ALIAS);
+
+            Map<String, Combination<Integer, Boolean>> ordersMap = state.ordersMap;
+            for (int i = 0; i < 4; i++) {
+                ordersMap.put("B" + i, new Combination<>(MID - 2 - 3 * i, true));
+                ordersMap.put("S" + i, new Combination<>(MID + 3 + 3 * i, false));
+            }
+        }
+
+        private Layer1ApiHelperStrategyAbstract<?> createStrategy(String strategyName, boolean isConsideredOnly, Layer1ApiProvider provider) {
+            switch (strategyName) {
+            case "Execute":
+                return new Layer1ApiHelperExecuteStrategy(provider) {
+                    @Override
+                    protected int getConsideredLevelsNumber(String alias) {
+                        return isConsideredOnly ? super.getConsideredLevelsNumber(alias) : Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    protected void doActionForAlias(String alias) {
+                        evaluations++;
+                        super.doActionForAlias(alias);
+                    }
+                };
+            case "Chase":
+                return new Layer1ApiHelperChaseStrategy(provider) {
+                    @Override
+                    protected int getConsideredLevelsNumber(String alias) {
+                        return isConsideredOnly ? super.getConsideredLevelsNumber(alias) : Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    protected void doActionForAlias(String alias) {
+                        evaluations++;
+                        super.doActionForAlias(alias);
+                    }
+                };
+            case "Escape":
+                return new Layer1ApiHelperEscapeStrategy(provider) {
+                    @Override
+                    protected int getConsideredLevelsNumber(String alias) {
+                        return isConsideredOnly ? super.getConsideredLevelsNumber(alias) : Integer.MAX_VALUE;
+                    }
+
+                    @Override
+                    protected void doActionForAlias(String alias) {
+                        evaluations++;
+                        super.doActionForAlias(alias);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategyName);
+            }
+        }
+
+        private void onRequest(Object parameters) {
+            Map<String, Combination<Integer, Boolean>> ordersMap = state.ordersMap;
+            String orderId;
+            String request;
+            if (parameters instanceof OrderMoveParameters) {
+                OrderMoveParameters move = (OrderMoveParameters) parameters;
+                orderId = move.orderId;
+                int level = (int) Math.round(move.limitPrice / PIPS);
+                request = "move " + level;
+                ordersMap.put(orderId, new Combination<>(level, ordersMap.get(orderId).second));
+            } else {
+                orderId = ((OrderCancelParameters) parameters).orderId;
+                request = "cancel";
+                ordersMap.remove(orderId);
+            }
+            if (!request.equals(lastRequests.put(orderId, request))) {
+                requests.add(orderId + " " + request);
+            }
+        }
+    }
+
+    @Param({ "Execute", "Chase", "Escape" })
+    public String strategyName;
+
+    @Param({ "all", "considered" })
+    public String levels;
+
+    private final SyntheticDepthFeed feed = new SyntheticDepthFeed(1 << 16, MID, 1);
+    private Replay replay;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (Long.getLong("HelperStrategy.coalesceMs", 0) == 0) {
+            Replay all = new Replay(strategyName, false);
+            Replay considered = new Replay(strategyName, true);
+            // One pass takes well under the throttle delay, so the requests do
+            // not depend on timing
+            for (int i = 0; i < feed.prices.length; i++) {
+                all.strategy.onDepth(ALIAS, feed.isBid[i], feed.prices[i], feed.sizes[i]);
+                considered.strategy.onDepth(ALIAS, feed.isBid[i], feed.prices[i], feed.sizes[i]);
+            }
+            if (!all.requests.equals(considered.requests)) {
+                throw new IllegalStateException(strategyName + ": " + all.requests.size() + " requests with all levels, "
+                        + considered.requests.size() + " with considered levels only");
+            }
+            System.out.println(strategyName + ": " + all.requests.size() + " requests, " + all.evaluations + " -> "
+                    + considered.evaluations + " evaluations per " + feed.prices.length + " depth updates");
+        }
+        replay = new Replay(strategyName, levels.equals("considered"));
+    }
+
+    @Benchmark
+    public void onDepth(Counters counters) {
+        if (index == feed.prices.length) {
+            index = 0;
+        }
+        replay.strategy.onDepth(ALIAS, feed.isBid[index], feed.prices[index], feed.sizes[index]);
+        index++;
+        counters.evaluations += replay.evaluations - replay.countedEvaluations;
+        counters.requests += replay.requests.size() - replay.countedRequests;
+        replay.countedEvaluations = replay.evaluations;
+        replay.countedRequests = replay.requests.size();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-DHelperStrategy.coalesceMs=1")
+    public void onDepthCoalesced(Counters counters) {
+        onDepth(counters);
+    }
+
+    static HelperStrategySettings createSettings(Class<?> settingsClass) throws ReflectiveOperationException {
+        HelperStrategySettings settings = (HelperStrategySettings) settingsClass.getDeclaredConstructor().newInstance();
+        settings.setEnabled(true);
+        if (settings instanceof HelperExecuteStrategySettings) {
+            HelperExecuteStrategySettings execute = (HelperExecuteStrategySettings) settings;
+            execute.setLevelsNumber(5);
+            execute.setTickNumber(1);
+            execute.setPercent(150);
+        } else if (settings instanceof HelperChaseStrategySettings) {
+            HelperChaseStrategySettings chase = (HelperChaseStrategySettings) settings;
+            chase.setDistance(3);
+            chase.setMode(HelperChaseStrategySettings.ChaseMode.BEST_PRICE);
+        } else if (settings instanceof HelperEscapeStrategySettings) {
+            HelperEscapeStrategySettings escape = (HelperEscapeStrategySettings) settings;
+            escape.setConsideredLevelsNumber(5);
+            escape.setAffectedLevelsNumber(3);
+            escape.setPercent(50);
+            escape.setMoveDistance(2);
+            escape.setMode(HelperEscapeStrategySettings.Mode.MOVE);
+        }
+        return settings;
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type.isPrimitive() && type != void.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chases orders through {@link RequestThrottle} for a few seconds, every
+ * attempt with a new level like a chase strategy following the market, and
+ * fails if the throttle holds more requests than were granted within the
+ * last delay interval or if repeated requests are not throttled. After the
+ * chase stops and the delay passes, the throttle must be empty.
+ */
+public class RequestThrottleCheck {
+    private static final long DELAY_MS = 20;
+    private static final long CHASE_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    public static void main(String[] args) throws InterruptedException {
+        RequestThrottle throttle = new RequestThrottle(DELAY_MS);
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(DELAY_MS);
+        // Times of granted requests taken after the attempt, dropped once
+        // the time before a later attempt is a delay past them, so the bound
+        // below is never tighter than the throttle's own clock
+        ArrayDeque<Long> granted = new ArrayDeque<>();
+        long start = System.nanoTime();
+        long attempts = 0;
+        int maxSize = 0;
+        int level = 0;
+        for (long now = start; now - start < CHASE_NANOS; now = System.nanoTime()) {
+            level += (attempts % 7 == 0) ? -1 : 1;
+            OrderRequest request = new OrderRequest("order" + attempts % 3, level);
+            boolean isGranted = throttle.tryAcquire(request);
+            long after = System.nanoTime();
+            attempts++;
+            while (!granted.isEmpty() && now - granted.peekFirst() >= delayNanos) {
+                granted.pollFirst();
+            }
+            if (isGranted) {
+                granted.addLast(after);
+                boolean isRepeatGranted = throttle.tryAcquire(request);
+                // A GC pause between the two attempts may let the request expire
+                long afterRepeat = System.nanoTime();
+                if (isRepeatGranted && afterRepeat - now < delayNanos) {
+                    throw new IllegalStateException("Repeated request " + request + " was not throttled");
+                }
+                if (isRepeatGranted) {
+                    granted.addLast(afterRepeat);
+                }
+                attempts++;
+            }
+            if (throttle.size() > granted.size()) {
+                throw new IllegalStateException("Throttle holds " + throttle.size() + " requests, only "
+                        + granted.size() + " were granted within the delay");
+            }
+            maxSize = Math.max(maxSize, throttle.size());
+        }
+
+        Thread.sleep(2 * DELAY_MS);
+        OrderRequest last = new OrderRequest("order0", level);
+        if (!throttle.tryAcquire(last) || throttle.size() != 1) {
+            throw new IllegalStateException("Expired requests were not evicted, size " + throttle.size());
+        }
+        System.out.printf("RequestThrottleCheck: %d attempts, at most %d requests held%n", attempts, maxSize);
+    }
+}
@@ -0,0 +1,76 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Depth updates of a book around a mid price that walks randomly within 10
+ * ticks of the start, most of them deep in the book. Levels crossed by the mid price are removed, and the
+ * feed ends with removing everything, so it can be replayed in a loop.
+ */
+public class SyntheticDepthFeed {
+    public final boolean[] isBid;
+    public final int[] prices;
+    public final int[] sizes;
+
+    public SyntheticDepthFeed(int count, int startMid, long seed) {
+        Random random = new Random(seed);
+        TreeMap<Integer, Integer> bids = new TreeMap<>(Collections.reverseOrder());
+        TreeMap<Integer, Integer> asks = new TreeMap<>();
+        List<Boolean> isBidList = new ArrayList<>();
+        List<Integer> pricesList = new ArrayList<>();
+        List<Integer> sizesList = new ArrayList<>();
+        int mid = startMid;
+
+        while (pricesList.size() < count) {
+            if (random.nextInt(50) == 0) {
+                mid = Math.max(startMid - 10, Math.min(startMid + 10, mid + (random.nextBoolean() ? 1 : -1)));
+                while (!bids.isEmpty() && bids.firstKey() > mid) {
+                    isBidList.add(true);
+                    pricesList.add(bids.pollFirstEntry().getKey());
+                    sizesList.add(0);
+                }
+                while (!asks.isEmpty() && asks.firstKey() <= mid) {
+                    isBidList.add(false);
+                    pricesList.add(asks.pollFirstEntry().getKey());
+                    sizesList.add(0);
+                }
+            }
+            boolean bid = random.nextBoolean();
+            int distance = Math.min(40, (int) Math.abs(random.nextGaussian() * 15));
+            int price = bid ? mid - distance : mid + 1 + distance;
+            int size = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(50);
+            if (size == 0) {
+                (bid ? bids : asks).remove(price);
+            } else {
+                (bid ? bids : asks).put(price, size);
+            }
+            isBidList.add(bid);
+            pricesList.add(price);
+            sizesList.add(size);
+        }
+        for (int price : bids.keySet()) {
+            isBidList.add(true);
+            pricesList.add(price);
+            sizesList.add(0);
+        }
+        for (int price : asks.keySet()) {
+            isBidList.add(false);
+            pricesList.add(price);
+            sizesList.add(0);
+        }
+
+        int size = pricesList.size();
+        isBid = new boolean[size];
+        prices = new int[size];
+        sizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            isBid[i] = isBidList.get(i);
+            prices[i] = pricesList.get(i);
+            sizes[i] = sizesList.get(i);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import velox.api.layer1.Layer1ApiProvider;
+import velox.api.layer1.config.beans.HelperStrategySettings;
+
+/**
+ * A depth update followed by the sums of both sides, as the execute and escape
+ * strategies evaluate them: looking up every level
+ * ({@link Layer1ApiHelperStrategyAbstract#getTopLevelsSum}) or from
+ * {@link LevelsSum}. {@link TopLevelsSumCheck} checks that both agree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopLevelsSumBenchmark {
+    @Param({ "5", "20", "100" })
+    public int levelsNumber;
+
+    private final SyntheticDepthFeed feed = new SyntheticDepthFeed(1 << 16, 20_000, 1);
+    private final Layer1ApiHelperStrategyAbstract<HelperStrategySettings> strategy = new Layer1ApiHelperStrategyAbstract<>(
+            (Layer1ApiProvider) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Layer1ApiProvider.class },
+                    (proxy, method, args) -> null),
+            "", "", HelperStrategySettings.class);
+    private AliasState state;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        state = new AliasState(1);
+    }
+
+    @Benchmark
+    public int lookup() {
+        if (index == feed.prices.length) {
+            index = 0;
+        }
+        state.orderBook.onUpdate(feed.isBid[index], feed.prices[index], feed.sizes[index]);
+        index++;
+        return strategy.getTopLevelsSum(state.orderBook.getBidMap(), levelsNumber, true)
+                + strategy.getTopLevelsSum(state.orderBook.getAskMap(), levelsNumber, false);
+    }
+
+    @Benchmark
+    public int incremental() {
+        if (index == feed.prices.length) {
+            index = 0;
+        }
+        state.onDepth(feed.isBid[index], feed.prices[index], feed.sizes[index]);
+        index++;
+        return state.getTopLevelsSum(true, levelsNumber) + state.getTopLevelsSum(false, levelsNumber);
+    }
+}
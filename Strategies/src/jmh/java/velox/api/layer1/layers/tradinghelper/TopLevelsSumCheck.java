@@ -0,0 +1,150 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeMap;
+
+import velox.api.layer1.layers.utils.OrderBook;
+
+/**
+ * Replays random depth updates into {@link AliasState} and TreeMap books and
+ * fails unless {@link AliasState#getTopLevelsSum(boolean, int)} matches
+ * looking up every level from the best price the way
+ * {@link Layer1ApiHelperStrategyAbstract#getTopLevelsSum} does. Best prices
+ * move by single ticks and jump by less and by more than the window in both
+ * directions on both sides, sides are emptied and refilled, the number of
+ * levels asked for changes between queries and sometimes stays the same for
+ * a while, queries skip updates, and the book is replaced now and then.
+ */
+public class TopLevelsSumCheck {
+    private static final int UPDATES = 2_000_000;
+    private static final int[] LEVELS_NUMBERS = { 0, 1, 2, 3, 5, 10, 20, 50, 100 };
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        AliasState state = new AliasState(1);
+        @SuppressWarnings("unchecked")
+        TreeMap<Integer, Long>[] maps = new TreeMap[] { new TreeMap<Integer, Long>(Collections.reverseOrder()),
+                new TreeMap<Integer, Long>() };
+        int mid = 10_000;
+        int levelsNumber = 5;
+        long comparisons = 0;
+        long jumps = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            int kind = random.nextInt(1000);
+            if (kind < 5) {
+                // Jump, often farther than the window, levels on the way are crossed
+                mid += (random.nextBoolean() ? 1 : -1) * (1 + random.nextInt(2 * levelsNumber + 20));
+                removeCrossed(state, maps, mid);
+                jumps++;
+            } else if (random.nextInt(10) == 0) {
+                mid += random.nextInt(3) - 1;
+                removeCrossed(state, maps, mid);
+            }
+            if (random.nextInt(200) == 0) {
+                levelsNumber = LEVELS_NUMBERS[random.nextInt(LEVELS_NUMBERS.length)];
+            }
+
+            boolean isBid = random.nextBoolean();
+            TreeMap<Integer, Long> map = maps[isBid ? 0 : 1];
+            if (kind < 8) {
+                // Empty the side level by level, best first
+                while (!map.isEmpty()) {
+                    update(state, maps, isBid, map.firstKey(), 0);
+                    compare(state, maps, random.nextBoolean(), levelsNumber, i);
+                    comparisons++;
+                }
+                continue;
+            } else if (kind < 10) {
+                // Replaced on rewind, with the same levels or an empty book
+                if (random.nextBoolean()) {
+                    state.setOrderBook(copy(maps));
+                } else {
+                    maps[0].clear();
+                    maps[1].clear();
+                    state.setOrderBook(new OrderBook());
+                }
+            }
+
+            int price;
+            int size = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+            if (kind < 100 && !map.isEmpty()) {
+                // Remove or change the best level
+                price = map.firstKey();
+                size = random.nextBoolean() ? 0 : size;
+            } else if (kind < 110) {
+                // Far from the market on either end
+                price = isBid ? mid - 200 - random.nextInt(10_000) : mid + 201 + random.nextInt(10_000);
+            } else {
+                int distance = Math.min(150, (int) Math.abs(random.nextGaussian() * 20));
+                price = isBid ? mid - distance : mid + 1 + distance;
+            }
+            update(state, maps, isBid, price, size);
+
+            // Queries skip some updates, so the sums have to follow the book in between
+            if (random.nextInt(4) != 0) {
+                compare(state, maps, true, levelsNumber, i);
+                compare(state, maps, false, levelsNumber, i);
+                comparisons += 2;
+            } else if (random.nextInt(10) == 0) {
+                compare(state, maps, random.nextBoolean(), LEVELS_NUMBERS[random.nextInt(LEVELS_NUMBERS.length)], i);
+                comparisons++;
+            }
+        }
+        System.out.printf("TopLevelsSumCheck: %d sums match the TreeMap lookup, %d best price jumps%n",
+                comparisons, jumps);
+    }
+
+    /** Levels on the wrong side of the mid price, as a market moving through them removes them */
+    private static void removeCrossed(AliasState state, TreeMap<Integer, Long>[] maps, int mid) {
+        while (!maps[0].isEmpty() && maps[0].firstKey() > mid) {
+            update(state, maps, true, maps[0].firstKey(), 0);
+        }
+        while (!maps[1].isEmpty() && maps[1].firstKey() <= mid) {
+            update(state, maps, false, maps[1].firstKey(), 0);
+        }
+    }
+
+    private static void update(AliasState state, TreeMap<Integer, Long>[] maps, boolean isBid, int price,
+            int size) {
+        state.onDepth(isBid, price, size);
+        if (size == 0) {
+            maps[isBid ? 0 : 1].remove(price);
+        } else {
+            maps[isBid ? 0 : 1].put(price, (long) size);
+        }
+    }
+
+    private static void compare(AliasState state, TreeMap<Integer, Long>[] maps, boolean isBid, int levelsNumber,
+            int i) {
+        int expected = lookup(maps[isBid ? 0 : 1], levelsNumber, isBid);
+        int actual = state.getTopLevelsSum(isBid, levelsNumber);
+        if (actual != expected) {
+            throw new IllegalStateException("Update " + i + ": " + (isBid ? "bid" : "ask") + " sum of "
+                    + levelsNumber + " levels " + actual + " instead of " + expected);
+        }
+    }
+
+    private static OrderBook copy(TreeMap<Integer, Long>[] maps) {
+        OrderBook orderBook = new OrderBook();
+        for (int side = 0; side < 2; side++) {
+            for (Integer price : maps[side].keySet()) {
+                orderBook.onUpdate(side == 0, price, maps[side].get(price));
+            }
+        }
+        return orderBook;
+    }
+
+    /** Layer1ApiHelperStrategyAbstract getTopLevelsSum, which needs a provider to construct */
+    private static int lookup(TreeMap<Integer, Long> map, int levelsNumber, boolean isBid) {
+        if (map.isEmpty()) {
+            return 0;
+        }
+        int result = 0;
+        int topPrice = map.firstKey();
+        for (int i = 0; i < levelsNumber; i++) {
+            result += map.getOrDefault(topPrice + i * (isBid ? -1 : 1), 0L);
+        }
+        return result;
+    }
+}
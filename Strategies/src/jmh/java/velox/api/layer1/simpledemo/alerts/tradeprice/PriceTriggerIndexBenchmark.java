@@ -0,0 +1,92 @@
+package velox.api.layer1.simpledemo.alerts.tradeprice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoublePredicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-trade cost of CustomPriceAlertDemo alerts: testing every TradeMatcher
+ * (as onTrade used to) versus {@link PriceTriggerIndex}. Trades are a random
+ * walk of one tick, alert prices are spread uniformly around it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceTriggerIndexBenchmark {
+    private static final String ALIAS = "ESZ6";
+    private static final int TRADES_COUNT = 1 << 16;
+    private static final int PRICE_RANGE = 2_000;
+    private static final String[] COMPARISON_SYMBOLS = { "<", "=", ">" };
+
+    @Param({ "100", "1000", "10000" })
+    public int alertsCount;
+
+    private final double[] prices = new double[TRADES_COUNT];
+    private final List<TradeMatcher> tradeMatchers = new ArrayList<>();
+    private PriceTriggerIndex triggerIndex;
+    private int index;
+    private double previousPrice = Double.NaN;
+    private long matchesCount;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        double price = PRICE_RANGE / 2;
+        for (int i = 0; i < TRADES_COUNT; i++) {
+            price = Math.max(0, Math.min(PRICE_RANGE, price + random.nextInt(3) - 1));
+            prices[i] = price;
+        }
+
+        PriceTriggerIndex.Builder builder = new PriceTriggerIndex.Builder();
+        for (int i = 0; i < alertsCount; i++) {
+            String comparisonSymbol = COMPARISON_SYMBOLS[random.nextInt(COMPARISON_SYMBOLS.length)];
+            int selectedPrice = random.nextInt(PRICE_RANGE);
+            DoublePredicate pricePredicate;
+            switch (comparisonSymbol) {
+                case "<": pricePredicate = p -> p < selectedPrice; break;
+                case "=": pricePredicate = p -> p == selectedPrice; break;
+                default: pricePredicate = p -> p > selectedPrice; break;
+            }
+            TradeMatcher tradeMatcher = new TradeMatcher(
+                (alias, p, size) -> size != 0 && pricePredicate.test(p),
+                (alias, p, size) -> matchesCount++);
+            tradeMatchers.add(tradeMatcher);
+            builder.add(comparisonSymbol, selectedPrice, tradeMatcher);
+        }
+        triggerIndex = builder.build();
+    }
+
+    @Benchmark
+    public long linearScan() {
+        double price = prices[index++ & (TRADES_COUNT - 1)];
+        for (TradeMatcher tradeMatcher : tradeMatchers) {
+            tradeMatcher.tryMatch(ALIAS, price, 1);
+        }
+        return matchesCount;
+    }
+
+    @Benchmark
+    public long priceTriggerIndex() {
+        double price = prices[index++ & (TRADES_COUNT - 1)];
+        triggerIndex.match(ALIAS, previousPrice, price, 1);
+        previousPrice = price;
+        return matchesCount;
+    }
+}
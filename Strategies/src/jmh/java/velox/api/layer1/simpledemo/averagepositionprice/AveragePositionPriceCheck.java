@@ -0,0 +1,198 @@
+package velox.api.layer1.simpledemo.averagepositionprice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import velox.api.layer1.simpledemo.averagepositionprice.PositionCheckpoints.Orders;
+
+/**
+ * Feeds random order updates and executions into an event source that
+ * {@link PositionCheckpoints} queries, and fails unless every range query
+ * returns the same line values and orders as replaying all events from the
+ * start. The feed grows while queries go on, some events arrive late (shortly
+ * before the current time), order directions and aliases sometimes change,
+ * executions refer to unknown orders and orders of another alias, queries
+ * scroll back before the first checkpoint, and rewinds drop the events after
+ * a point and start new checkpoints the way the demo does.
+ */
+public class AveragePositionPriceCheck {
+    private static final String ALIAS = "ESZ6";
+    private static final double PIPS = 0.25;
+    private static final int STEPS = 10_000;
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private static class Event {
+        final long time;
+        final String orderId;
+        /** Order update if true, execution otherwise */
+        final boolean isUpdate;
+        final boolean isBuy;
+        final String alias;
+        final int size;
+        final double price;
+
+        Event(long time, String orderId, boolean isUpdate, boolean isBuy, String alias, int size, double price) {
+            this.time = time;
+            this.orderId = orderId;
+            this.isUpdate = isUpdate;
+            this.isBuy = isBuy;
+            this.alias = alias;
+            this.size = size;
+            this.price = price;
+        }
+    }
+
+    /** Events sorted by time, intervals are returned as in DataStructureInterface.get */
+    private static class Feed {
+        final List<Event> events = new ArrayList<>();
+
+        void add(Event event) {
+            int index = indexOf(event.time + 1);
+            events.add(index, event);
+        }
+
+        void truncate(long time) {
+            events.subList(indexOf(time), events.size()).clear();
+        }
+
+        /** @return index of the first event at or after time */
+        int indexOf(long time) {
+            int low = 0;
+            int high = events.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (events.get(middle).time < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        List<List<Event>> get(long t0, long intervalWidth, int intervalsNumber) {
+            List<List<Event>> response = new ArrayList<>(intervalsNumber + 1);
+            response.add(events.subList(0, indexOf(t0)));
+            for (int i = 1; i <= intervalsNumber; i++) {
+                response.add(events.subList(indexOf(t0 + (i - 1) * intervalWidth), indexOf(t0 + i * intervalWidth)));
+            }
+            return response;
+        }
+    }
+
+    /** Same as the demo's updateState for order events */
+    private static void apply(List<Event> events, CurrentState state, Orders orders) {
+        for (Event event : events) {
+            if (event.isUpdate) {
+                orders.put(event.orderId, event.isBuy, event.alias);
+            } else if (ALIAS.equals(orders.getAlias(event.orderId))) {
+                Boolean isBuy = orders.isBuy(event.orderId);
+                if (isBuy != null && event.size != 0) {
+                    state.onExecution(isBuy, event.size, event.price);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Feed feed = new Feed();
+        PositionCheckpoints<List<Event>> checkpoints = new PositionCheckpoints<>(PIPS, feed::get,
+                AveragePositionPriceCheck::apply);
+        long start = TimeUnit.DAYS.toNanos(20_000);
+        long currentTime = start;
+        int orders = 0;
+        long queries = 0;
+        long values = 0;
+        long rewinds = 0;
+
+        for (int step = 0; step < STEPS; step++) {
+            // New events up to the current time, a few of them late
+            currentTime += random.nextInt(random.nextInt(50) == 0 ? 600 : 60) * TimeUnit.SECONDS.toNanos(1);
+            int eventsCount = random.nextInt(20);
+            for (int i = 0; i < eventsCount; i++) {
+                long time = currentTime - (random.nextInt(10) == 0 ? (long) (random.nextDouble() * MINUTE) : 0);
+                int kind = random.nextInt(10);
+                if (kind < 3 || orders == 0) {
+                    String alias = random.nextInt(5) == 0 ? "NQZ6" : ALIAS;
+                    feed.add(new Event(time, "order" + orders++, true, random.nextBoolean(), alias, 0, 0));
+                } else if (kind < 4) {
+                    // Existing order updated, sometimes with a different side or alias
+                    String orderId = "order" + random.nextInt(orders);
+                    feed.add(new Event(time, orderId, true, random.nextBoolean(),
+                            random.nextInt(5) == 0 ? "NQZ6" : ALIAS, 0, 0));
+                } else {
+                    String orderId = random.nextInt(50) == 0 ? "unknown" + random.nextInt(10)
+                            : "order" + Math.max(0, orders - 1 - random.nextInt(Math.min(orders, 200)));
+                    int size = random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(10);
+                    double price = PIPS * (16_000 + random.nextInt(400));
+                    feed.add(new Event(time, orderId, false, false, null, size, price));
+                }
+            }
+
+            if (random.nextInt(1000) == 0) {
+                // Rewind: events after the new time are dropped, the demo clears its checkpoints
+                currentTime -= random.nextInt(120) * MINUTE;
+                feed.truncate(currentTime + 1);
+                checkpoints = new PositionCheckpoints<>(PIPS, feed::get, AveragePositionPriceCheck::apply);
+                rewinds++;
+            }
+
+            if (random.nextInt(3) == 0) {
+                long span = currentTime - start;
+                long t0;
+                int kind = random.nextInt(4);
+                if (kind == 0) {
+                    // Near the current time
+                    t0 = currentTime - random.nextInt(10) * MINUTE;
+                } else if (kind == 1 && span > 0) {
+                    // Anywhere, including before the first checkpoint
+                    t0 = start - MINUTE + (long) (random.nextDouble() * span);
+                } else {
+                    t0 = currentTime - random.nextInt(120) * MINUTE - random.nextInt(1000);
+                }
+                long intervalWidth = 1 + random.nextInt(30) * TimeUnit.SECONDS.toNanos(1);
+                int intervalsNumber = 1 + random.nextInt(100);
+                values += check(checkpoints, feed, t0, intervalWidth, intervalsNumber, currentTime, random, orders);
+                queries++;
+            }
+        }
+        System.out.printf("AveragePositionPriceCheck: %d queries (%d values, %d rewinds) match full replay%n",
+                queries, values, rewinds);
+    }
+
+    /** @return number of values compared */
+    private static int check(PositionCheckpoints<List<Event>> checkpoints, Feed feed, long t0, long intervalWidth,
+            int intervalsNumber, long currentTime, Random random, int ordersCount) {
+        List<Double> actual = new ArrayList<>();
+        Orders actualOrders = checkpoints.calculate(t0, intervalWidth, intervalsNumber, currentTime,
+                state -> actual.add(state.getLineY()));
+
+        List<List<Event>> response = feed.get(t0, intervalWidth, intervalsNumber);
+        Orders expectedOrders = new Orders();
+        CurrentState state = new CurrentState(PIPS);
+        apply(response.get(0), state, expectedOrders);
+        for (int i = 1; i <= intervalsNumber; i++) {
+            apply(response.get(i), state, expectedOrders);
+            double expected = state.getLineY();
+            if (Double.compare(expected, actual.get(i - 1)) != 0) {
+                throw new IllegalStateException("Query from " + t0 + " interval " + i + ": " + actual.get(i - 1)
+                        + " instead of " + expected);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            String orderId = "order" + random.nextInt(ordersCount + 10);
+            if (!Objects.equals(expectedOrders.isBuy(orderId), actualOrders.isBuy(orderId))
+                    || !Objects.equals(expectedOrders.getAlias(orderId), actualOrders.getAlias(orderId))) {
+                throw new IllegalStateException("Query from " + t0 + ": " + orderId + " is "
+                        + actualOrders.isBuy(orderId) + " " + actualOrders.getAlias(orderId) + " instead of "
+                        + expectedOrders.isBuy(orderId) + " " + expectedOrders.getAlias(orderId));
+            }
+        }
+        return intervalsNumber;
+    }
+}
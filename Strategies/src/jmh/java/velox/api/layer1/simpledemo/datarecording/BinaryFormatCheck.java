@@ -0,0 +1,206 @@
+package velox.api.layer1.simpledemo.datarecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.simpledemo.datarecording.MappedSegmentWriter.FsyncPolicy;
+
+/**
+ * Records the same random feed with {@link SpecificFormatRecorder} and
+ * {@link BinaryFormatRecorder}, reads the binary files back with
+ * {@link BinaryFormatReader} and fails unless they render to the same text
+ * lines (times aside, the recorders read the clock separately). The feed has
+ * several instruments, an instrument without contract details, prices that
+ * are not whole ticks, jumps of millions of ticks and non-ASCII order data;
+ * small segments make records continue across many segment files. Also checks
+ * that segments are truncated to their data and that writing after close
+ * fails, and prints the sizes of both formats.
+ */
+public class BinaryFormatCheck {
+    private static final int EVENTS = 1_000_000;
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    public static void main(String[] args) throws IOException {
+        File directory = Files.createTempDirectory("binary-format-check").toFile();
+        try {
+            check(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void check(File directory) throws IOException {
+        File depthText = new File(directory, "depth.txt");
+        File ordersText = new File(directory, "orders.txt");
+        long time = System.currentTimeMillis();
+        SpecificFormatRecorder textRecorder = new SpecificFormatRecorder(time, depthText, ordersText, "check");
+        BinaryFormatRecorder binaryRecorder = new BinaryFormatRecorder(time, directory, "depth", "orders", "check",
+                SEGMENT_SIZE, FsyncPolicy.NEVER, 0);
+        FeedFormatRecorder[] recorders = { textRecorder, binaryRecorder };
+
+        double[] pips = { 0.25, 0.01, 1e-5, 5 };
+        Random random = new Random(1);
+        for (int id = 0; id < pips.length; id++) {
+            InstrumentInfo info = new InstrumentInfo("SYM" + id, "EX" + id, "FUT", pips[id], 10 + id, "SYM" + id,
+                    false);
+            for (FeedFormatRecorder recorder : recorders) {
+                recorder.onInstrumentAdded(id, info);
+            }
+        }
+        // Text recorder writes order data in the platform charset, so binary
+        // order data is compared with what was recorded instead
+        List<String> orderData = new ArrayList<>();
+        int[] mids = { 16000, 5000, 110_000, 900 };
+        for (int i = 0; i < EVENTS; i++) {
+            // Id 7 never gets contract details
+            int id = random.nextInt(20) == 0 ? 7 : random.nextInt(pips.length);
+            double pipsValue = id < pips.length ? pips[id] : 0.5;
+            int kind = random.nextInt(1000);
+            if (id < pips.length) {
+                mids[id] += random.nextInt(3) - 1;
+            }
+            int ticks = (id < pips.length ? mids[id] : 100) + random.nextInt(41) - 20;
+            if (kind == 0) {
+                ticks += (random.nextBoolean() ? 1 : -1) * random.nextInt(10_000_000);
+            }
+            double price = pipsValue * ticks;
+            if (kind == 1) {
+                price += pipsValue / 3;
+            }
+            int size = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(1000);
+            boolean isBuy = random.nextBoolean();
+            String data = "order " + i + " цена " + price + " 注文";
+            if (kind >= 50 && kind < 60) {
+                orderData.add(data);
+            }
+            for (FeedFormatRecorder recorder : recorders) {
+                if (kind < 50) {
+                    recorder.onTrade(id, price, Math.max(size, 1), isBuy ? 1 : -1, 0);
+                } else if (kind < 60) {
+                    recorder.onOrderData(data);
+                } else {
+                    recorder.onDepth(id, isBuy, price, size);
+                }
+            }
+        }
+        for (FeedFormatRecorder recorder : recorders) {
+            recorder.close();
+        }
+
+        try {
+            binaryRecorder.onDepth(0, true, 1, 1);
+            throw new IllegalStateException("Writing after close did not fail");
+        } catch (IOException e) {
+            // expected
+        }
+
+        List<String> depthLines = new ArrayList<>();
+        List<String> ordersLines = new ArrayList<>();
+        long[] previousTime = { Long.MIN_VALUE };
+        BinaryFormatReader.Listener listener = new BinaryFormatReader.Listener() {
+            @Override
+            public void onFeedSource(long time, String dataSource) {
+                depthLines.add(SpecificFormatTags.ON_FEED_SOURCE + ",-1," + dataSource);
+                checkTime(time);
+            }
+
+            @Override
+            public void onContractDetails(long time, int id, String exchange, String symbol, String type,
+                    double pips, double multiplier) {
+                depthLines.add(SpecificFormatTags.ON_CONTRACT_DETAILS + "," + id + "," + exchange + "," + symbol
+                        + "," + type + "," + pips + "," + multiplier + ",0");
+                checkTime(time);
+            }
+
+            @Override
+            public void onTrade(long time, int id, double price, int size, int aggressor, int otcCode) {
+                depthLines.add(SpecificFormatTags.ON_TRADE + "," + id + "," + price + "," + size + "," + aggressor
+                        + "," + otcCode);
+                checkTime(time);
+            }
+
+            @Override
+            public void onDepth(long time, int id, boolean isBid, double price, int size) {
+                depthLines.add(SpecificFormatTags.ON_BOOK_UPDATE + "," + id + ","
+                        + (isBid ? SpecificFormatTags.BID_SIDE : SpecificFormatTags.ASK_SIDE) + "," + price + ","
+                        + size);
+                checkTime(time);
+            }
+
+            @Override
+            public void onOrderData(long time, String data) {
+                ordersLines.add(data);
+                checkTime(time);
+            }
+
+            private void checkTime(long time) {
+                if (time < previousTime[0] || Math.abs(time - System.currentTimeMillis()) > 3_600_000) {
+                    throw new IllegalStateException("Bad record time " + time + " after " + previousTime[0]);
+                }
+                previousTime[0] = time;
+            }
+        };
+        new BinaryFormatReader(directory, "depth").read(listener);
+        previousTime[0] = Long.MIN_VALUE;
+        new BinaryFormatReader(directory, "orders").read(listener);
+
+        compare(withoutTimes(Files.readAllLines(depthText.toPath())), depthLines, "depth");
+        compare(orderData, ordersLines, "orders");
+
+        long binarySize = checkSegments(directory, "depth") + checkSegments(directory, "orders");
+        long textSize = depthText.length() + ordersText.length();
+        int records = depthLines.size() + ordersLines.size();
+        System.out.printf("BinaryFormatCheck: %d records match, %.1f bytes per record binary vs %.1f text%n",
+                records, (double) binarySize / records, (double) textSize / records);
+    }
+
+    /** Drops the time field that follows the tag */
+    private static List<String> withoutTimes(List<String> lines) {
+        List<String> result = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            int timeStart = line.indexOf(',');
+            int timeEnd = line.indexOf(',', timeStart + 1);
+            result.add(line.substring(0, timeStart) + line.substring(timeEnd));
+        }
+        return result;
+    }
+
+    private static void compare(List<String> expected, List<String> actual, String name) {
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            if (!expected.get(i).equals(actual.get(i))) {
+                throw new IllegalStateException(name + " record " + i + " differs: " + expected.get(i) + " vs "
+                        + actual.get(i));
+            }
+        }
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException(name + ": " + expected.size() + " text records vs " + actual.size()
+                    + " binary records");
+        }
+    }
+
+    /** @return total size of the segments */
+    private static long checkSegments(File directory, String prefix) {
+        long total = 0;
+        int count = 0;
+        for (File file; (file = MappedSegmentWriter.getSegmentFile(directory, prefix, count)).exists(); count++) {
+            if (file.length() >= SEGMENT_SIZE || file.length() == 0) {
+                throw new IllegalStateException(file + " is not truncated to its data: " + file.length());
+            }
+            total += file.length();
+        }
+        if (prefix.equals("depth") && count < 2) {
+            throw new IllegalStateException("Records did not span several segments");
+        }
+        return total;
+    }
+}
@@ -0,0 +1,77 @@
+package velox.api.layer1.simpledemo.markers;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import velox.api.layer1.simpledemo.markers.Layer1ApiBarsDemo.BarEvent;
+
+/**
+ * What Layer1ApiBarsDemo does for a range of 10000 candles: a display copy
+ * of each bar and its marker. With the cache disabled every marker renders a
+ * new image, as makeMarker used to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarsRangeBenchmark {
+    private static final int BARS_COUNT = 10_000;
+    private static final int BODY_WIDTH = 10;
+
+    @Param({ "1", "4" })
+    public int pixelsPerLevel;
+
+    private final BarEvent[] bars = new BarEvent[BARS_COUNT];
+    private Function<Double, Integer> yDataCoordinateToPixelFunction;
+    private final CandleImageCache cache = new CandleImageCache(8 * 1024 * 1024);
+    private final CandleImageCache noCache = new CandleImageCache(0);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        double price = 10_000;
+        for (int i = 0; i < BARS_COUNT; i++) {
+            BarEvent bar = new BarEvent(i, price);
+            for (int j = 0; j < 30; j++) {
+                price += random.nextInt(3) - 1;
+                bar.update(price);
+            }
+            bars[i] = bar;
+        }
+        yDataCoordinateToPixelFunction = p -> (int) Math.round(p * pixelsPerLevel);
+    }
+
+    @Benchmark
+    public int cachedImages() {
+        return range(cache);
+    }
+
+    @Benchmark
+    public int renderedImages() {
+        return range(noCache);
+    }
+
+    private int range(CandleImageCache candleImages) {
+        int result = 0;
+        for (BarEvent bar : bars) {
+            Object marker = bar.copyForDisplay(BODY_WIDTH, 1).makeMarker(yDataCoordinateToPixelFunction, candleImages);
+            result += marker.hashCode();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package velox.api.layer1.simplified.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MboVisualizerNoHistory with a data thread replaying synthetic MBO events
+ * (and taking a snapshot every 1000 events, 100ms at 10000 events per second)
+ * while a UI thread keeps rendering the latest snapshot, as it would if
+ * refreshes were scheduled back to back.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MboVisualizerBenchmark {
+    private static final int EVENTS_PER_INTERVAL = 1000;
+
+    private final SyntheticMboFeed feed = new SyntheticMboFeed(1 << 18, 2_000, 50, 1);
+    private MboVisualizerNoHistory visualizer;
+    private int index;
+
+    @Setup
+    public void setup() {
+        visualizer = new MboVisualizerNoHistory();
+        index = 0;
+    }
+
+    @Benchmark
+    @Group("visualizer")
+    @GroupThreads(1)
+    public void dataThread() {
+        int i = index;
+        switch (feed.types[i]) {
+        case SyntheticMboFeed.SEND:
+            visualizer.send(feed.orderIds[i], feed.isBid[i], feed.prices[i], feed.sizes[i]);
+            break;
+        case SyntheticMboFeed.REPLACE:
+            visualizer.replace(feed.orderIds[i], feed.prices[i], feed.sizes[i]);
+            break;
+        default:
+            visualizer.cancel(feed.orderIds[i]);
+            break;
+        }
+        if (i % EVENTS_PER_INTERVAL == 0) {
+            visualizer.onInterval();
+        }
+        index = i + 1 == feed.types.length ? 0 : i + 1;
+    }
+
+    @Benchmark
+    @Group("visualizer")
+    @GroupThreads(1)
+    public int uiRefresh() {
+        return visualizer.getSnapshot().toHtml().length();
+    }
+}
@@ -0,0 +1,103 @@
+package velox.api.layer1.simplified.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pre-generated MBO events: new orders within a few levels of a mid price
+ * doing a random walk, replaces and cancels of random live orders. All orders
+ * left at the end are cancelled, so the feed can be replayed in a loop into
+ * the same book.
+ */
+public class SyntheticMboFeed {
+    public static final byte SEND = 0;
+    public static final byte REPLACE = 1;
+    public static final byte CANCEL = 2;
+
+    public final byte[] types;
+    public final String[] orderIds;
+    public final boolean[] isBid;
+    public final int[] prices;
+    public final int[] sizes;
+
+    /**
+     * @param count       number of events before cancelling the remaining orders
+     * @param liveOrders  number of live orders the book stays around
+     * @param levels      max distance of an order from the mid price
+     */
+    public SyntheticMboFeed(int count, int liveOrders, int levels, long seed) {
+        Random random = new Random(seed);
+        List<String> live = new ArrayList<>();
+        List<Boolean> liveIsBid = new ArrayList<>();
+        List<Byte> typesList = new ArrayList<>();
+        List<String> idsList = new ArrayList<>();
+        List<Boolean> isBidList = new ArrayList<>();
+        List<Integer> pricesList = new ArrayList<>();
+        List<Integer> sizesList = new ArrayList<>();
+        int mid = 100_000;
+        int nextId = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(100) == 0) {
+                mid += random.nextBoolean() ? 1 : -1;
+            }
+            boolean isNewOrder = live.size() < liveOrders / 2 || live.size() < liveOrders && random.nextInt(3) == 0;
+            boolean bid;
+            String id;
+            byte type;
+            if (isNewOrder) {
+                type = SEND;
+                id = Integer.toString(nextId++);
+                bid = random.nextBoolean();
+                live.add(id);
+                liveIsBid.add(bid);
+            } else {
+                int orderIndex = random.nextInt(live.size());
+                id = live.get(orderIndex);
+                bid = liveIsBid.get(orderIndex);
+                if (random.nextBoolean()) {
+                    type = REPLACE;
+                } else {
+                    type = CANCEL;
+                    removeLive(live, liveIsBid, orderIndex);
+                }
+            }
+            typesList.add(type);
+            idsList.add(id);
+            isBidList.add(bid);
+            pricesList.add(bid ? mid - random.nextInt(levels) : mid + 1 + random.nextInt(levels));
+            sizesList.add(1 + random.nextInt(20));
+        }
+        while (!live.isEmpty()) {
+            typesList.add(CANCEL);
+            idsList.add(live.get(live.size() - 1));
+            isBidList.add(liveIsBid.get(live.size() - 1));
+            pricesList.add(0);
+            sizesList.add(0);
+            removeLive(live, liveIsBid, live.size() - 1);
+        }
+
+        int size = typesList.size();
+        types = new byte[size];
+        orderIds = idsList.toArray(new String[size]);
+        isBid = new boolean[size];
+        prices = new int[size];
+        sizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = typesList.get(i);
+            isBid[i] = isBidList.get(i);
+            prices[i] = pricesList.get(i);
+            sizes[i] = sizesList.get(i);
+        }
+    }
+
+    private static void removeLive(List<String> live, List<Boolean> liveIsBid, int index) {
+        // Swap with the last one, order of live orders does not matter
+        int last = live.size() - 1;
+        live.set(index, live.get(last));
+        liveIsBid.set(index, liveIsBid.get(last));
+        live.remove(last);
+        liveIsBid.remove(last);
+    }
+}
@@ -0,0 +1,96 @@
+package velox.api.layer1.aaa.barscount;
+
+/**
+ * Counts bars since the last direction change, direction being the close
+ * compared to the simple moving average of the previous closes. Closes of the
+ * lookback period are kept in a primitive ring buffer.
+ */
+public class BarsCountCalculator {
+    private final int maxCount;
+    private final CompareWith compareWith;
+    private final double[] closes;
+
+    private int closesCount = 0;
+    private int nextCloseIndex = 0;
+    private int count = 0;
+    private int lastHighCount = 0;
+    private int lastLowCount = 0;
+    private int totalBars = 0;
+    private boolean isDown = false;
+    private double sumClose = 0.0;
+    private double lastSMA = Double.NaN;
+
+    public BarsCountCalculator(int lookbackPeriod, int maxCount, CompareWith compareWith) {
+        this.maxCount = maxCount;
+        this.compareWith = compareWith;
+        this.closes = new double[Math.max(lookbackPeriod, 0)];
+    }
+
+    public int getTotalBars() {
+        return totalBars;
+    }
+
+    /**
+     * @return simple moving average of the closes including the last bar, NaN
+     *         for an empty lookback period
+     */
+    public double getAverage() {
+        return lastSMA;
+    }
+
+    public CountResult addBar(double close) {
+        totalBars++;
+
+        double currentSMA;
+        if (closes.length == 0) {
+            currentSMA = Double.NaN;
+        } else {
+            sumClose += close;
+            // Replace the oldest close once the lookback period is full
+            if (closesCount == closes.length) {
+                sumClose -= closes[nextCloseIndex];
+            } else {
+                closesCount++;
+            }
+            closes[nextCloseIndex] = close;
+            nextCloseIndex = nextCloseIndex + 1 == closes.length ? 0 : nextCloseIndex + 1;
+            currentSMA = sumClose / closesCount;
+        }
+
+        // Determine if we're in a down trend (compare close to previous SMA)
+        boolean newIsDown = !Double.isNaN(lastSMA) && close < lastSMA;
+        lastSMA = currentSMA;
+
+        // Check if direction changed
+        boolean resetCond = (totalBars > 1) && (newIsDown != isDown);
+
+        if (resetCond) {
+            // Update last high/low count when direction changes
+            if (newIsDown && count > 0) {
+                lastHighCount = count;
+            }
+            if (!newIsDown && count > 0) {
+                lastLowCount = count;
+            }
+            count = 0;
+        } else if (totalBars > 1) {
+            count++;
+        }
+
+        isDown = newIsDown;
+
+        // Check if current count is a new high (up trend) or new low (down trend)
+        boolean isNew = count > compareWith.getThreshold(isDown, lastHighCount, lastLowCount);
+        boolean isNewHigh = !isDown && isNew;
+        boolean isNewLow = isDown && isNew;
+
+        // Reset count if it exceeds maxCount
+        if (maxCount > 0 && count > maxCount) {
+            count = 1;
+            isNewHigh = false;
+            isNewLow = false;
+        }
+
+        return new CountResult(count, isDown, isNewHigh, isNewLow);
+    }
+}
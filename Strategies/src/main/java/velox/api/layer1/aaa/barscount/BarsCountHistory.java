@@ -0,0 +1,128 @@
+package velox.api.layer1.aaa.barscount;
+
+import java.util.Arrays;
+
+/**
+ * Completed bars of one instrument in append-only primitive columns, ordered by
+ * time. Written by one thread, readable from others: bars up to
+ * {@link #size()} never change, growing only replaces the arrays with longer
+ * copies.
+ */
+public class BarsCountHistory {
+    private static final int IS_DOWN = 1;
+    private static final int IS_NEW_HIGH = 2;
+    private static final int IS_NEW_LOW = 4;
+
+    private long[] times;
+    private double[] closes;
+    private double[] averages;
+    private int[] counts;
+    private byte[] flags;
+    private volatile int size = 0;
+
+    public BarsCountHistory() {
+        this(1024);
+    }
+
+    public BarsCountHistory(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        times = new long[capacity];
+        closes = new double[capacity];
+        averages = new double[capacity];
+        counts = new int[capacity];
+        flags = new byte[capacity];
+    }
+
+    /**
+     * @param time must not be less than the time of the previous bar
+     */
+    public void add(long time, double close, double average, CountResult result) {
+        int index = size;
+        if (index == times.length) {
+            int capacity = index + (index >> 1);
+            times = Arrays.copyOf(times, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            averages = Arrays.copyOf(averages, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+        }
+        times[index] = time;
+        closes[index] = close;
+        averages[index] = average;
+        counts[index] = result.count;
+        flags[index] = (byte) ((result.isDown ? IS_DOWN : 0)
+                | (result.isNewHigh ? IS_NEW_HIGH : 0)
+                | (result.isNewLow ? IS_NEW_LOW : 0));
+        size = index + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public double getClose(int index) {
+        return closes[index];
+    }
+
+    public double getAverage(int index) {
+        return averages[index];
+    }
+
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    public boolean isDown(int index) {
+        return (flags[index] & IS_DOWN) != 0;
+    }
+
+    public boolean isNewHigh(int index) {
+        return (flags[index] & IS_NEW_HIGH) != 0;
+    }
+
+    public boolean isNewLow(int index) {
+        return (flags[index] & IS_NEW_LOW) != 0;
+    }
+
+    /**
+     * @return index of the first bar in [fromIndex, toIndex) at or after the
+     *         time, toIndex if there is none
+     */
+    public int lowerBound(long time, int fromIndex, int toIndex) {
+        long[] times = this.times;
+        int low = fromIndex;
+        int high = toIndex;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Same as the aggregation of the data structure: the last bar of each
+     * interval [t0 + i * intervalWidth, t0 + (i + 1) * intervalWidth)
+     *
+     * @return index of the last bar for each interval, -1 for intervals without
+     *         bars
+     */
+    public int[] getLastIndices(long t0, long intervalWidth, int intervalsNumber) {
+        int size = this.size;
+        int[] result = new int[intervalsNumber];
+        int from = lowerBound(t0, 0, size);
+        for (int i = 0; i < intervalsNumber; i++) {
+            int to = lowerBound(t0 + (i + 1) * intervalWidth, from, size);
+            result[i] = to > from ? to - 1 : -1;
+            from = to;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package velox.api.layer1.aaa.barscount;
+
+/**
+ * Which previous count a count has to exceed to be a new high (up trend) or a
+ * new low (down trend)
+ */
+public enum CompareWith {
+    /** Previous count of the same direction */
+    SELF,
+    /** Previous count of the opposite direction */
+    OTHER,
+    /** Both previous counts */
+    BOTH,
+    /** Either of the previous counts */
+    EITHER;
+
+    /**
+     * @param name "self", "other", "both" or "either", anything else is
+     *             {@link #SELF}
+     */
+    public static CompareWith parse(String name) {
+        if (name != null) {
+            for (CompareWith value : values()) {
+                if (value.name().toLowerCase().equals(name)) {
+                    return value;
+                }
+            }
+        }
+        return SELF;
+    }
+
+    public int getThreshold(boolean isDown, int lastHighCount, int lastLowCount) {
+        switch (this) {
+        case OTHER:
+            return isDown ? lastHighCount : lastLowCount;
+        case BOTH:
+            return Math.max(lastHighCount, lastLowCount);
+        case EITHER:
+            return Math.min(lastHighCount, lastLowCount);
+        default:
+            return isDown ? lastLowCount : lastHighCount;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package velox.api.layer1.aaa.barscount;
+
+/**
+ * Result of bar count calculation
+ */
+public class CountResult {
+    public final int count;
+    public final boolean isDown;
+    public final boolean isNewHigh;
+    public final boolean isNewLow;
+
+    public CountResult(int count, boolean isDown, boolean isNewHigh, boolean isNewLow) {
+        this.count = count;
+        this.isDown = isDown;
+        this.isNewHigh = isNewHigh;
+        this.isNewLow = isNewLow;
+    }
+}
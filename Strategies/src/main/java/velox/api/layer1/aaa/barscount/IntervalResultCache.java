@@ -0,0 +1,164 @@
+package velox.api.layer1.aaa.barscount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calculated interval results of one instrument, kept in an array indexed by
+ * interval number for the last requested interval width and phase (start
+ * modulo width), so repaints and pans only calculate intervals that were not
+ * requested before. Only intervals ending at or before
+ * the latest event are kept, later events can't change them; an event landing
+ * in a kept interval anyway drops it and everything after it.
+ */
+public class IntervalResultCache<T> {
+    private static final int MAX_SIZE = 1 << 16;
+
+    public interface RangeCalculator<T> {
+        /**
+         * @return results of intervalsNumber intervals starting at t0, null
+         *         for intervals without a result
+         */
+        List<T> calculate(long t0, long intervalWidth, int intervalsNumber);
+    }
+
+    /** Results of intervals firstIndex, firstIndex + 1, ... where index = (start - phase) / intervalWidth */
+    private Object[] results = new Object[0];
+    private long firstIndex = 0;
+    private long intervalWidth = 0;
+    private long phase = 0;
+    private long latestTime = Long.MIN_VALUE;
+    /** Changes when results are dropped, results calculated before that are not kept */
+    private long version = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    public List<T> get(long t0, long intervalWidth, int intervalsNumber, RangeCalculator<T> calculator) {
+        List<T> values = new ArrayList<>(intervalsNumber);
+        long version;
+        long cacheableEnd;
+        long index0;
+        synchronized (this) {
+            long phase = Math.floorMod(t0, intervalWidth);
+            if (intervalWidth != this.intervalWidth || phase != this.phase) {
+                results = new Object[0];
+                this.intervalWidth = intervalWidth;
+                this.phase = phase;
+            }
+            index0 = Math.floorDiv(t0 - phase, intervalWidth);
+            for (int i = 0; i < intervalsNumber; i++) {
+                values.add(getResult(index0 + i));
+            }
+            version = this.version;
+            cacheableEnd = latestTime + 1;
+        }
+
+        boolean[] isCalculated = new boolean[intervalsNumber];
+        int calculatedCount = 0;
+        int i = 0;
+        while (i < intervalsNumber) {
+            if (values.get(i) != null) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < intervalsNumber && values.get(end) == null) {
+                end++;
+            }
+            List<T> calculated = calculator.calculate(t0 + i * intervalWidth, intervalWidth, end - i);
+            for (int j = 0; j < end - i; j++) {
+                if (calculated.size() == end - i) {
+                    values.set(i + j, calculated.get(j));
+                    isCalculated[i + j] = true;
+                }
+                calculatedCount++;
+            }
+            i = end;
+        }
+
+        synchronized (this) {
+            hits += intervalsNumber - calculatedCount;
+            misses += calculatedCount;
+            if (calculatedCount > 0 && version == this.version && intervalWidth == this.intervalWidth
+                    && Math.floorMod(t0, intervalWidth) == phase) {
+                coverIndices(index0, index0 + intervalsNumber);
+                for (int j = 0; j < intervalsNumber; j++) {
+                    if (isCalculated[j] && values.get(j) != null && t0 + (j + 1) * intervalWidth <= cacheableEnd) {
+                        results[(int) (index0 + j - firstIndex)] = values.get(j);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Called after an event at the given time became visible to the calculator
+     *
+     * @return true if results covering the time were dropped
+     */
+    public synchronized boolean onEvent(long time) {
+        latestTime = Math.max(latestTime, time);
+        if (results.length == 0) {
+            return false;
+        }
+        // First interval ending after the time
+        long staleIndex = Math.floorDiv(time - phase, intervalWidth);
+        boolean isStale = false;
+        for (long index = Math.max(staleIndex, firstIndex); index < firstIndex + results.length; index++) {
+            int position = (int) (index - firstIndex);
+            if (results[position] != null) {
+                results[position] = null;
+                isStale = true;
+            }
+        }
+        if (isStale) {
+            version++;
+        }
+        return isStale;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getResult(long index) {
+        long position = index - firstIndex;
+        return position >= 0 && position < results.length ? (T) results[(int) position] : null;
+    }
+
+    /**
+     * Extends the window to the indices with some room for pans, starting over
+     * if it would get too large
+     */
+    private void coverIndices(long fromIndex, long toIndex) {
+        long endIndex = firstIndex + results.length;
+        if (results.length > 0 && fromIndex >= firstIndex && toIndex <= endIndex) {
+            return;
+        }
+        long margin = toIndex - fromIndex;
+        long newFirstIndex = fromIndex - margin;
+        long newEndIndex = toIndex + margin;
+        if (results.length > 0) {
+            newFirstIndex = Math.min(newFirstIndex, firstIndex);
+            newEndIndex = Math.max(newEndIndex, endIndex);
+        }
+        Object[] newResults;
+        if (newEndIndex - newFirstIndex > MAX_SIZE) {
+            newFirstIndex = fromIndex;
+            newResults = new Object[(int) (toIndex - fromIndex)];
+        } else {
+            newResults = new Object[(int) (newEndIndex - newFirstIndex)];
+            if (results.length > 0) {
+                System.arraycopy(results, 0, newResults, (int) (firstIndex - newFirstIndex), results.length);
+            }
+        }
+        results = newResults;
+        firstIndex = newFirstIndex;
+    }
+}
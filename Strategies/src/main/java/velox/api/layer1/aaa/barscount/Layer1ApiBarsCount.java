@@ -112,11 +112,7 @@ public class Layer1ApiBarsCount implements CustomModule, BarDataListener, Histor
         calculator = new BarsCountCalculator(
             lookbackPeriod.intValue(), 
             maxCount.intValue(),
-            compareWith,
-            upColor,
-            downColor,
-            newHighColor,
-            newLowColor
+            CompareWith.parse(compareWith)
         );
     }
     
@@ -200,161 +196,4 @@ public class Layer1ApiBarsCount implements CustomModule, BarDataListener, Histor
         // Convert seconds to nanoseconds
         return (long)(intervalSeconds * 1_000_000_000L);
     }
-    
-    /**
-     * Result of bar count calculation
-     */
-    private static class CountResult {
-        final int count;
-        final boolean isDown;
-        final boolean isNewHigh;
-        final boolean isNewLow;
-        final Color color;
-        
-        CountResult(int count, boolean isDown, boolean isNewHigh, boolean isNewLow, Color color) {
-            this.count = count;
-            this.isDown = isDown;
-            this.isNewHigh = isNewHigh;
-            this.isNewLow = isNewLow;
-            this.color = color;
-        }
-        
-        public Color getColor() {
-            return color;
-        }
-    }
-    
-    /**
-     * Helper class to calculate bar counts
-     */
-    private static class BarsCountCalculator {
-        private final int lookbackPeriod;
-        private final int maxCount;
-        private final String compareWith;
-        private final Color upColor;
-        private final Color downColor;
-        private final Color newHighColor;
-        private final Color newLowColor;
-        
-        private int count = 0;
-        private int lastHighCount = 0;
-        private int lastLowCount = 0;
-        private int totalBars = 0;
-        private boolean isDown = false;
-        private double sumClose = 0.0;
-        private final java.util.LinkedList<Double> priceQueue = new java.util.LinkedList<>();
-        private double lastSMA = Double.NaN;
-        
-        public BarsCountCalculator(int lookbackPeriod, int maxCount, String compareWith,
-                                 Color upColor, Color downColor, Color newHighColor, Color newLowColor) {
-            this.lookbackPeriod = lookbackPeriod;
-            this.maxCount = maxCount;
-            this.compareWith = compareWith;
-            this.upColor = upColor;
-            this.downColor = downColor;
-            this.newHighColor = newHighColor;
-            this.newLowColor = newLowColor;
-        }
-        
-        public int getTotalBars() {
-            return totalBars;
-        }
-        
-        public CountResult addBar(double close) {
-            totalBars++;
-            
-            // Calculate simple moving average for direction using a proper queue
-            priceQueue.add(close);
-            sumClose += close;
-            
-            // Remove oldest price if we exceed lookback period
-            if (priceQueue.size() > lookbackPeriod) {
-                double oldestPrice = priceQueue.removeFirst();
-                sumClose -= oldestPrice;
-            }
-            
-            double currentSMA = sumClose / priceQueue.size();
-            
-            // Determine if we're in a down trend (compare close to previous SMA)
-            boolean newIsDown = !Double.isNaN(lastSMA) && close < lastSMA;
-            lastSMA = currentSMA;
-            
-            // Check if direction changed
-            boolean resetCond = (totalBars > 1) && (newIsDown != isDown);
-            
-            if (resetCond) {
-                // Update last high/low count when direction changes
-                if (newIsDown && count > 0) {
-                    lastHighCount = count;
-                }
-                if (!newIsDown && count > 0) {
-                    lastLowCount = count;
-                }
-                count = 0;
-            } else if (totalBars > 1) {
-                count++;
-            }
-            
-            isDown = newIsDown;
-            
-            // Check if current count is a new high or new low
-            boolean isNewHigh = false;
-            boolean isNewLow = false;
-            
-            if (!isDown) {
-                // Up trend - check for new high
-                switch (compareWith) {
-                    case "self":
-                        isNewHigh = count > lastHighCount;
-                        break;
-                    case "other":
-                        isNewHigh = count > lastLowCount;
-                        break;
-                    case "both":
-                        isNewHigh = count > Math.max(lastHighCount, lastLowCount);
-                        break;
-                    case "either":
-                        isNewHigh = count > Math.min(lastHighCount, lastLowCount);
-                        break;
-                    default:
-                        isNewHigh = count > lastHighCount;
-                }
-            } else {
-                // Down trend - check for new low
-                switch (compareWith) {
-                    case "self":
-                        isNewLow = count > lastLowCount;
-                        break;
-                    case "other":
-                        isNewLow = count > lastHighCount;
-                        break;
-                    case "both":
-                        isNewLow = count > Math.max(lastHighCount, lastLowCount);
-                        break;
-                    case "either":
-                        isNewLow = count > Math.min(lastHighCount, lastLowCount);
-                        break;
-                    default:
-                        isNewLow = count > lastLowCount;
-                }
-            }
-            
-            // Reset count if it exceeds maxCount
-            if (maxCount > 0 && count > maxCount) {
-                count = 1;
-                isNewHigh = false;
-                isNewLow = false;
-            }
-            
-            // Determine color
-            Color color;
-            if (isDown) {
-                color = isNewLow ? newLowColor : downColor;
-            } else {
-                color = isNewHigh ? newHighColor : upColor;
-            }
-            
-            return new CountResult(count, isDown, isNewHigh, isNewLow, color);
-        }
-    }
 }
@@ -5,10 +5,13 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -177,12 +180,9 @@ public class Layer1ApiBarsCountV2 implements
         @Override
         public Marker makeMarker(Function<Double, Integer> yDataCoordinateToPixelFunction) {
             if (count == 0 || Double.isNaN(price)) {
-                Log.info("QI Bars Count V2: makeMarker returning null (count=" + count + ", price=" + price + ")");
                 return null;
             }
             
-            Log.info("QI Bars Count V2: makeMarker called - count=" + count + ", price=" + price + ", isDown=" + isDown);
-            
             // Determine color based on state
             Color textColor;
             if (isDown) {
@@ -191,47 +191,103 @@ public class Layer1ApiBarsCountV2 implements
                 textColor = isNewHigh ? newHighColor : upColor;
             }
             
-            String text = String.valueOf(count);
-            
-            // Create a temporary graphics to measure text size
-            BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D tempGraphics = tempImage.createGraphics();
-            Font font = new Font("SansSerif", Font.BOLD, fontSize);
-            tempGraphics.setFont(font);
-            FontMetrics fm = tempGraphics.getFontMetrics();
-            int textWidth = fm.stringWidth(text);
-            int textHeight = fm.getHeight();
-            int textAscent = fm.getAscent();
-            tempGraphics.dispose();
-            
-            // Create image with padding
-            int padding = 4;
-            int imageWidth = textWidth + padding * 2;
-            int imageHeight = textHeight + padding * 2;
+            BufferedImage image = CountImageCache.getImage(count, textColor, fontSize);
             
+            // Center the marker horizontally and position it near the price
+            return new Marker(price, -image.getWidth() / 2, -image.getHeight() / 2, image);
+        }
+    }
+
+    /**
+     * Pre-rendered count images shared by all aliases. Images are stored per
+     * style (text color and font size) in arrays indexed by count, so a lookup
+     * does not allocate. Both the number of styles and the cached count range
+     * are bounded, counts outside of the range are rendered on every call.
+     */
+    static class CountImageCache {
+        private static final int MAX_CACHED_COUNT = 256;
+        private static final int MAX_STYLES = 16;
+        private static final int PADDING = 4;
+        private static final Color BACKGROUND_COLOR = new Color(0, 0, 0, 150);
+
+        private static final class Style {
+            final int rgb;
+            final int fontSize;
+            final Font font;
+            final FontMetrics fontMetrics;
+            final AtomicReferenceArray<BufferedImage> images = new AtomicReferenceArray<>(MAX_CACHED_COUNT + 1);
+
+            Style(int rgb, int fontSize) {
+                this.rgb = rgb;
+                this.fontSize = fontSize;
+                this.font = new Font("SansSerif", Font.BOLD, fontSize);
+                BufferedImage tempImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D tempGraphics = tempImage.createGraphics();
+                this.fontMetrics = tempGraphics.getFontMetrics(font);
+                tempGraphics.dispose();
+            }
+        }
+
+        private static volatile Style[] styles = new Style[0];
+
+        static BufferedImage getImage(int count, Color textColor, int fontSize) {
+            Style style = getStyle(textColor, fontSize);
+            if (count < 0 || count > MAX_CACHED_COUNT) {
+                return render(count, textColor, style);
+            }
+            BufferedImage image = style.images.get(count);
+            if (image == null) {
+                // Concurrent callers may render the same image, which is harmless
+                image = render(count, textColor, style);
+                style.images.set(count, image);
+            }
+            return image;
+        }
+
+        private static Style getStyle(Color textColor, int fontSize) {
+            int rgb = textColor.getRGB();
+            for (Style style : styles) {
+                if (style.rgb == rgb && style.fontSize == fontSize) {
+                    return style;
+                }
+            }
+            synchronized (CountImageCache.class) {
+                Style[] current = styles;
+                for (Style style : current) {
+                    if (style.rgb == rgb && style.fontSize == fontSize) {
+                        return style;
+                    }
+                }
+                // Oldest style is dropped once the limit is reached
+                int from = current.length < MAX_STYLES ? 0 : 1;
+                Style[] updated = Arrays.copyOfRange(current, from, current.length + 1);
+                Style style = new Style(rgb, fontSize);
+                updated[updated.length - 1] = style;
+                styles = updated;
+                return style;
+            }
+        }
+
+        private static BufferedImage render(int count, Color textColor, Style style) {
+            String text = String.valueOf(count);
+            int imageWidth = style.fontMetrics.stringWidth(text) + PADDING * 2;
+            int imageHeight = style.fontMetrics.getHeight() + PADDING * 2;
+
+            // New image is fully transparent
             BufferedImage bufferedImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
             Graphics2D graphics = bufferedImage.createGraphics();
-            
-            // Clear background (transparent)
-            graphics.setBackground(new Color(0, 0, 0, 0));
-            graphics.clearRect(0, 0, imageWidth, imageHeight);
-            
+
             // Draw semi-transparent background box
-            graphics.setColor(new Color(0, 0, 0, 150));
+            graphics.setColor(BACKGROUND_COLOR);
             graphics.fillRoundRect(0, 0, imageWidth, imageHeight, 6, 6);
-            
+
             // Draw text
-            graphics.setFont(font);
+            graphics.setFont(style.font);
             graphics.setColor(textColor);
-            graphics.drawString(text, padding, padding + textAscent);
-            
+            graphics.drawString(text, PADDING, PADDING + style.fontMetrics.getAscent());
+
             graphics.dispose();
-            
-            // Center the marker horizontally and position it near the price
-            int iconOffsetX = -imageWidth / 2;
-            int iconOffsetY = -imageHeight / 2;
-            
-            return new Marker(price, iconOffsetX, iconOffsetY, bufferedImage);
+            return bufferedImage;
         }
     }
 
@@ -290,7 +346,11 @@ public class Layer1ApiBarsCountV2 implements
     private Map<String, BarsCountCalculator> calculators = new HashMap<>();
     private Map<String, BarAccumulator> barAccumulators = new HashMap<>();
     private Map<String, Long> lastEventTimeByAlias = new HashMap<>();
-    private Map<String, InvalidateInterface> invalidateInterfaceMap = new HashMap<>();
+    /** Completed bars as generated, read by range queries from other threads */
+    private Map<String, BarsCountHistory> histories = new ConcurrentHashMap<>();
+    /** Intervals already answered by calculateValuesInRange */
+    private Map<String, IntervalResultCache<BarsCountEvent>> resultCaches = new ConcurrentHashMap<>();
+    private Map<String, InvalidateInterface> invalidateInterfaceMap = new ConcurrentHashMap<>();
     private Map<String, BarsCountSettings> settingsMap = new ConcurrentHashMap<>();
     private SettingsAccess settingsAccess;
     private String indicatorUserName;
@@ -330,6 +390,8 @@ public class Layer1ApiBarsCountV2 implements
         calculators.remove(alias);
         barAccumulators.remove(alias);
         lastEventTimeByAlias.remove(alias);
+        histories.remove(alias);
+        resultCaches.remove(alias);
     }
 
     private void clearInstrumentState(String alias) {
@@ -465,8 +527,7 @@ public class Layer1ApiBarsCountV2 implements
                     BarsCountCalculator calculator = calculators.computeIfAbsent(alias, key -> {
                         Log.info("QI Bars Count V2: Created new calculator for " + alias);
                         return new BarsCountCalculator(
-                                lookbackPeriod, maxCount, compareWith,
-                                upColor, downColor, newHighColor, newLowColor, fontSize);
+                                lookbackPeriod, maxCount, CompareWith.parse(compareWith));
                     });
 
                     CountResult result = calculator.addBar(completedBar.closePrice);
@@ -477,6 +538,8 @@ public class Layer1ApiBarsCountV2 implements
                         eventTime = lastEventTime + 1;
                     }
                     lastEventTimeByAlias.put(alias, eventTime);
+                    histories.computeIfAbsent(alias, key -> new BarsCountHistory())
+                            .add(eventTime, completedBar.closePrice, calculator.getAverage(), result);
 
                     BarsCountEvent event = new BarsCountEvent(
                         eventTime,
@@ -487,6 +550,10 @@ public class Layer1ApiBarsCountV2 implements
                     );
 
                     consumer.accept(new CustomGeneratedEventAliased(event, alias));
+                    // Normally lands after all cached intervals, repaint only if it did not
+                    if (resultCaches.computeIfAbsent(alias, key -> new IntervalResultCache<>()).onEvent(eventTime)) {
+                        requestInvalidate(alias);
+                    }
 
                     if (calculator.getTotalBars() <= 5 || calculator.getTotalBars() % 20 == 0) {
                         Log.info("QI Bars Count V2: " + alias + " bar#" + calculator.getTotalBars() +
@@ -636,6 +703,33 @@ public class Layer1ApiBarsCountV2 implements
             listener.setCompleted();
             return;
         }
+
+        IntervalResultCache<BarsCountEvent> cache = resultCaches.computeIfAbsent(alias, key -> new IntervalResultCache<>());
+        List<BarsCountEvent> events = cache.get(t0, intervalWidth, intervalsNumber,
+                (start, width, number) -> calculateEvents(alias, start, width, number));
+        for (BarsCountEvent event : events) {
+            if (event != null) {
+                // The marker will be drawn automatically by the DataCoordinateMarker interface
+                listener.provideResponse(event);
+            }
+        }
+
+        listener.setCompleted();
+    }
+
+    private List<BarsCountEvent> calculateEvents(String alias, long t0, long intervalWidth, int intervalsNumber) {
+        List<BarsCountEvent> events = new ArrayList<>(intervalsNumber);
+
+        // Bars generated since the last reset are answered from the columns,
+        // older ranges (e.g. before an interval change) from the tree
+        BarsCountHistory history = histories.get(alias);
+        if (history != null && history.size() > 0 && t0 >= history.getTime(0)) {
+            int[] lastIndices = history.getLastIndices(t0, intervalWidth, intervalsNumber);
+            for (int i = 0; i < intervalsNumber; i++) {
+                events.add(createEvent(history, lastIndices[i], t0 + i * intervalWidth));
+            }
+            return events;
+        }
         
         Class<?>[] interestingEvents = new Class<?>[] { BarsCountEvent.class };
         List<TreeResponseInterval> result = dataStructureInterface.get(
@@ -649,15 +743,27 @@ public class Layer1ApiBarsCountV2 implements
         );
         
         for (TreeResponseInterval interval : result) {
-            Object event = interval.events.get(BarsCountEvent.class.toString());
-            if (event != null) {
-                BarsCountEvent barsCountEvent = (BarsCountEvent) event;
-                // The marker will be drawn automatically by the DataCoordinateMarker interface
-                listener.provideResponse(barsCountEvent);
-            }
+            events.add((BarsCountEvent) interval.events.get(BarsCountEvent.class.toString()));
         }
-        
-        listener.setCompleted();
+        return events;
+    }
+
+    /**
+     * Same event as the tree aggregation of the interval would give
+     *
+     * @param index last bar of the interval, -1 for an empty interval
+     */
+    private BarsCountEvent createEvent(BarsCountHistory history, int index, long intervalStart) {
+        if (index < 0) {
+            return new BarsCountEvent(intervalStart);
+        }
+        return new BarsCountEvent(
+            intervalStart,
+            history.getClose(index),
+            history.getCount(index), history.isDown(index),
+            history.isNewHigh(index), history.isNewLow(index),
+            upColor, downColor, newHighColor, newLowColor, fontSize
+        );
     }
 
     @Override
@@ -709,152 +815,6 @@ public class Layer1ApiBarsCountV2 implements
         }
     }
 
-    /**
-     * Result of bar count calculation
-     */
-    private static class CountResult {
-        final int count;
-        final boolean isDown;
-        final boolean isNewHigh;
-        final boolean isNewLow;
-        
-        CountResult(int count, boolean isDown, boolean isNewHigh, boolean isNewLow) {
-            this.count = count;
-            this.isDown = isDown;
-            this.isNewHigh = isNewHigh;
-            this.isNewLow = isNewLow;
-        }
-    }
-    
-    /**
-     * Helper class to calculate bar counts
-     */
-    private static class BarsCountCalculator {
-        private final int lookbackPeriod;
-        private final int maxCount;
-        private final String compareWith;
-        private final Color upColor;
-        private final Color downColor;
-        private final Color newHighColor;
-        private final Color newLowColor;
-        private final int fontSize;
-        
-        private int count = 0;
-        private int lastHighCount = 0;
-        private int lastLowCount = 0;
-        private int totalBars = 0;
-        private boolean isDown = false;
-        private double sumClose = 0.0;
-        private final java.util.LinkedList<Double> priceQueue = new java.util.LinkedList<>();
-        private double lastSMA = Double.NaN;
-        
-        public BarsCountCalculator(int lookbackPeriod, int maxCount, String compareWith,
-                                 Color upColor, Color downColor, Color newHighColor, 
-                                 Color newLowColor, int fontSize) {
-            this.lookbackPeriod = lookbackPeriod;
-            this.maxCount = maxCount;
-            this.compareWith = compareWith;
-            this.upColor = upColor;
-            this.downColor = downColor;
-            this.newHighColor = newHighColor;
-            this.newLowColor = newLowColor;
-            this.fontSize = fontSize;
-        }
-        
-        public int getTotalBars() {
-            return totalBars;
-        }
-        
-        public CountResult addBar(double close) {
-            totalBars++;
-            
-            // Calculate simple moving average for direction using a proper queue
-            priceQueue.add(close);
-            sumClose += close;
-            
-            // Remove oldest price if we exceed lookback period
-            if (priceQueue.size() > lookbackPeriod) {
-                double oldestPrice = priceQueue.removeFirst();
-                sumClose -= oldestPrice;
-            }
-            
-            double currentSMA = sumClose / priceQueue.size();
-            
-            // Determine if we're in a down trend (compare close to previous SMA)
-            boolean newIsDown = !Double.isNaN(lastSMA) && close < lastSMA;
-            lastSMA = currentSMA;
-            
-            // Check if direction changed
-            boolean resetCond = (totalBars > 1) && (newIsDown != isDown);
-            
-            if (resetCond) {
-                // Update last high/low count when direction changes
-                if (newIsDown && count > 0) {
-                    lastHighCount = count;
-                }
-                if (!newIsDown && count > 0) {
-                    lastLowCount = count;
-                }
-                count = 0;
-            } else if (totalBars > 1) {
-                count++;
-            }
-            
-            isDown = newIsDown;
-            
-            // Check if current count is a new high or new low
-            boolean isNewHigh = false;
-            boolean isNewLow = false;
-            
-            if (!isDown) {
-                // Up trend - check for new high
-                switch (compareWith) {
-                    case "self":
-                        isNewHigh = count > lastHighCount;
-                        break;
-                    case "other":
-                        isNewHigh = count > lastLowCount;
-                        break;
-                    case "both":
-                        isNewHigh = count > Math.max(lastHighCount, lastLowCount);
-                        break;
-                    case "either":
-                        isNewHigh = count > Math.min(lastHighCount, lastLowCount);
-                        break;
-                    default:
-                        isNewHigh = count > lastHighCount;
-                }
-            } else {
-                // Down trend - check for new low
-                switch (compareWith) {
-                    case "self":
-                        isNewLow = count > lastLowCount;
-                        break;
-                    case "other":
-                        isNewLow = count > lastHighCount;
-                        break;
-                    case "both":
-                        isNewLow = count > Math.max(lastHighCount, lastLowCount);
-                        break;
-                    case "either":
-                        isNewLow = count > Math.min(lastHighCount, lastLowCount);
-                        break;
-                    default:
-                        isNewLow = count > lastLowCount;
-                }
-            }
-            
-            // Reset count if it exceeds maxCount
-            if (maxCount > 0 && count > maxCount) {
-                count = 1;
-                isNewHigh = false;
-                isNewLow = false;
-            }
-            
-            return new CountResult(count, isDown, isNewHigh, isNewLow);
-        }
-    }
-
     private static class CompletedBar {
         final long closeTime;
         final double closePrice;
@@ -1,8 +1,6 @@
 package velox.api.layer1.aaa.movingaverage;
 
 import java.awt.Color;
-import java.util.LinkedList;
-import java.util.Queue;
 
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
@@ -102,9 +100,9 @@ public class Layer1ApiMovingAverage0 implements CustomModule, BarDataListener, H
             type = MAType.EMA;
         }
         
-        calculator1 = new MovingAverageCalculator(period1.intValue(), type);
-        calculator2 = new MovingAverageCalculator(period2.intValue(), type);
-        calculator3 = new MovingAverageCalculator(period3.intValue(), type);
+        calculator1 = MovingAverageCalculator.create(period1.intValue(), type);
+        calculator2 = MovingAverageCalculator.create(period2.intValue(), type);
+        calculator3 = MovingAverageCalculator.create(period3.intValue(), type);
     }
     
     @Override
@@ -216,108 +214,4 @@ public class Layer1ApiMovingAverage0 implements CustomModule, BarDataListener, H
         // Convert seconds to nanoseconds
         return (long)(intervalSeconds * 1_000_000_000L);
     }
-    
-    /**
-     * Helper class to calculate moving averages
-     */
-    private static class MovingAverageCalculator {
-        private final int period;
-        private final MAType maType;
-        private final Queue<Double> priceQueue;
-        private double sum = 0.0;
-        private double ema = Double.NaN;
-        private final double multiplier;
-        private int count = 0;
-        
-        public MovingAverageCalculator(int period, MAType maType) {
-            this.period = period;
-            this.maType = maType;
-            this.priceQueue = new LinkedList<>();
-            this.multiplier = 2.0 / (period + 1.0);
-        }
-        
-        public int getCount() {
-            return count;
-        }
-        
-        public double addPrice(double price) {
-            if (Double.isNaN(price)) {
-                return Double.NaN;
-            }
-            
-            count++;
-            
-            switch (maType) {
-                case SMA:
-                    return calculateSMA(price);
-                case EMA:
-                    return calculateEMA(price);
-                case WMA:
-                    return calculateWMA(price);
-                default:
-                    return calculateSMA(price);
-            }
-        }
-        
-        private double calculateSMA(double price) {
-            priceQueue.offer(price);
-            sum += price;
-            
-            if (priceQueue.size() > period) {
-                double oldPrice = priceQueue.poll();
-                sum -= oldPrice;
-            }
-            
-            if (priceQueue.size() < period) {
-                return Double.NaN;
-            }
-            
-            return sum / period;
-        }
-        
-        private double calculateEMA(double price) {
-            if (Double.isNaN(ema)) {
-                // Initialize with SMA
-                priceQueue.offer(price);
-                sum += price;
-                
-                if (priceQueue.size() < period) {
-                    return Double.NaN;
-                }
-                
-                // First EMA value is SMA
-                ema = sum / period;
-                return ema;
-            }
-            
-            // EMA formula: EMA = (Price - PreviousEMA) * multiplier + PreviousEMA
-            ema = (price - ema) * multiplier + ema;
-            return ema;
-        }
-        
-        private double calculateWMA(double price) {
-            priceQueue.offer(price);
-            
-            if (priceQueue.size() > period) {
-                priceQueue.poll();
-            }
-            
-            if (priceQueue.size() < period) {
-                return Double.NaN;
-            }
-            
-            // WMA calculation: sum of (price * weight) / sum of weights
-            double weightedSum = 0.0;
-            double weightSum = 0.0;
-            int weight = 1;
-            
-            for (Double p : priceQueue) {
-                weightedSum += p * weight;
-                weightSum += weight;
-                weight++;
-            }
-            
-            return weightedSum / weightSum;
-        }
-    }
 }
@@ -0,0 +1,199 @@
+package velox.api.layer1.aaa.movingaverage;
+
+import velox.api.layer1.aaa.movingaverage.MovingAverageSettings.MAType;
+
+/**
+ * Moving average over the last period prices, updated in O(1) per price.
+ * Window prices are kept in a primitive ring buffer, implementation is picked
+ * once per {@link MAType} by {@link #create(int, MAType)}.
+ */
+abstract class MovingAverageCalculator {
+    protected final int period;
+    private int count = 0;
+
+    protected MovingAverageCalculator(int period) {
+        this.period = period;
+    }
+
+    public static MovingAverageCalculator create(int period, MAType maType) {
+        period = Math.max(period, 1);
+        switch (maType) {
+            case EMA:
+                return new Exponential(period);
+            case WMA:
+                return new Weighted(period);
+            case SMA:
+            default:
+                return new Simple(period);
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return moving average including this price, NaN until period prices
+     *         were added
+     */
+    public double addPrice(double price) {
+        if (Double.isNaN(price)) {
+            return Double.NaN;
+        }
+        count++;
+        return onPrice(price);
+    }
+
+    protected abstract double onPrice(double price);
+
+    /**
+     * Keeps the last period prices. Running sums are recalculated from the
+     * buffer each time it wraps around, so rounding errors do not accumulate
+     * while the cost stays O(1) amortized.
+     */
+    private abstract static class Windowed extends MovingAverageCalculator {
+        protected final double[] prices;
+        /** Index of the oldest price once the window is full */
+        protected int head = 0;
+        protected int size = 0;
+
+        Windowed(int period) {
+            super(period);
+            prices = new double[period];
+        }
+
+        @Override
+        protected double onPrice(double price) {
+            if (size < period) {
+                prices[size++] = price;
+                onAdded(price, size);
+            } else {
+                double oldPrice = prices[head];
+                prices[head] = price;
+                if (++head == period) {
+                    head = 0;
+                    recalculate();
+                } else {
+                    onReplaced(oldPrice, price);
+                }
+            }
+            return size < period ? Double.NaN : getValue();
+        }
+
+        /** Price was appended, window is now of given size */
+        protected abstract void onAdded(double price, int size);
+
+        /** Oldest price was dropped and new one was appended to a full window */
+        protected abstract void onReplaced(double oldPrice, double price);
+
+        /** Recalculates sums from scratch, buffer starts from the oldest price */
+        protected abstract void recalculate();
+
+        protected abstract double getValue();
+    }
+
+    private static class Simple extends Windowed {
+        private double sum = 0;
+
+        Simple(int period) {
+            super(period);
+        }
+
+        @Override
+        protected void onAdded(double price, int size) {
+            sum += price;
+        }
+
+        @Override
+        protected void onReplaced(double oldPrice, double price) {
+            sum += price - oldPrice;
+        }
+
+        @Override
+        protected void recalculate() {
+            sum = 0;
+            for (double price : prices) {
+                sum += price;
+            }
+        }
+
+        @Override
+        protected double getValue() {
+            return sum / period;
+        }
+    }
+
+    /**
+     * Weights are 1 for the oldest price up to period for the newest one. When
+     * the window moves each remaining price loses 1 of weight, so the weighted
+     * sum decreases by the sum of the window
+     */
+    private static class Weighted extends Windowed {
+        private final double weightSum;
+        private double sum = 0;
+        private double weightedSum = 0;
+
+        Weighted(int period) {
+            super(period);
+            weightSum = period * (period + 1.0) / 2;
+        }
+
+        @Override
+        protected void onAdded(double price, int size) {
+            sum += price;
+            weightedSum += price * size;
+        }
+
+        @Override
+        protected void onReplaced(double oldPrice, double price) {
+            weightedSum += price * period - sum;
+            sum += price - oldPrice;
+        }
+
+        @Override
+        protected void recalculate() {
+            sum = 0;
+            weightedSum = 0;
+            for (int i = 0; i < period; i++) {
+                sum += prices[i];
+                weightedSum += prices[i] * (i + 1);
+            }
+        }
+
+        @Override
+        protected double getValue() {
+            return weightedSum / weightSum;
+        }
+    }
+
+    /**
+     * Seeded with the SMA of the first period prices, no window is needed after
+     * that
+     */
+    private static class Exponential extends MovingAverageCalculator {
+        private final double multiplier;
+        private double sum = 0;
+        private double ema = Double.NaN;
+
+        Exponential(int period) {
+            super(period);
+            multiplier = 2.0 / (period + 1.0);
+        }
+
+        @Override
+        protected double onPrice(double price) {
+            if (Double.isNaN(ema)) {
+                sum += price;
+                if (getCount() < period) {
+                    return Double.NaN;
+                }
+                ema = sum / period;
+                return ema;
+            }
+
+            // EMA formula: EMA = (Price - PreviousEMA) * multiplier + PreviousEMA
+            ema = (price - ema) * multiplier + ema;
+            return ema;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package velox.api.layer1.aaa.vwap;
 
 import java.awt.Color;
+import java.time.DateTimeException;
+import java.time.ZoneId;
 
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
@@ -18,16 +20,20 @@ import velox.api.layer1.simplified.InitialState;
 import velox.api.layer1.simplified.IntervalListener;
 import velox.api.layer1.simplified.Intervals;
 import velox.api.layer1.simplified.Parameter;
+import velox.api.layer1.simplified.TimeListener;
 import velox.api.layer1.simplified.TradeDataListener;
 
 /**
  * VWAP (Volume Weighted Average Price) Indicator for Bookmap using Simplified API
- * Updates on every trade for smooth, accurate VWAP calculation
+ * Trades are added to the VWAP as they come, and its points are drawn once
+ * per 100ms interval.
+ * Optionally starts over at daily session start times and draws bands at a
+ * number of volume weighted standard deviations around the VWAP.
  */
 @Layer1SimpleAttachable
 @Layer1StrategyName("QI VWAP")
 @Layer1ApiVersion(Layer1ApiVersionValue.VERSION2)
-public class Layer1ApiVWAP implements CustomModule, TradeDataListener, HistoricalDataListener, IntervalListener {
+public class Layer1ApiVWAP implements CustomModule, TradeDataListener, HistoricalDataListener, TimeListener, IntervalListener {
     
     @Parameter(name = "Color")
     public Color color = new Color(250, 128, 114); // Salmon color
@@ -35,9 +41,26 @@ public class Layer1ApiVWAP implements CustomModule, TradeDataListener, Historica
     @Parameter(name = "Line Width", step = 1.0)
     public Double lineWidth = 3.0;
     
+    @Parameter(name = "Session starts (HH:mm, comma separated, empty for none)")
+    public String sessionStarts = "";
+    
+    @Parameter(name = "Session time zone")
+    public String sessionTimeZone = "America/New_York";
+    
+    @Parameter(name = "Bands (standard deviations, 0 for none)", step = 0.5)
+    public Double bandDeviations = 2.0;
+    
+    @Parameter(name = "Bands Color")
+    public Color bandColor = new Color(255, 192, 180); // Light salmon color
+    
     private Indicator vwapIndicator;
-    private VWAPCalculator calculator;
-    private double lastVwap = Double.NaN;
+    private Indicator upperBandIndicator;
+    private Indicator lowerBandIndicator;
+    private final VwapAccumulator accumulator = new VwapAccumulator();
+    private SessionSchedule sessionSchedule;
+    /** Nanoseconds, MIN_VALUE until the first timestamp */
+    private long nextSessionStart;
+    private boolean isSessionStarted = false;
     
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
@@ -47,9 +70,24 @@ public class Layer1ApiVWAP implements CustomModule, TradeDataListener, Historica
         vwapIndicator.setColor(color);
         vwapIndicator.setWidth(lineWidth.intValue());
         
-        calculator = new VWAPCalculator();
+        if (bandDeviations > 0) {
+            upperBandIndicator = api.registerIndicator("VWAP +" + bandDeviations + " SD", GraphType.PRIMARY);
+            upperBandIndicator.setColor(bandColor);
+            lowerBandIndicator = api.registerIndicator("VWAP -" + bandDeviations + " SD", GraphType.PRIMARY);
+            lowerBandIndicator.setColor(bandColor);
+        }
         
-        Log.info("QI VWAP: Indicator registered");
+        ZoneId zone;
+        try {
+            zone = ZoneId.of(sessionTimeZone);
+        } catch (DateTimeException e) {
+            Log.warn("QI VWAP: Invalid time zone '" + sessionTimeZone + "', defaulting to UTC");
+            zone = ZoneId.of("UTC");
+        }
+        sessionSchedule = new SessionSchedule(sessionStarts, zone);
+        nextSessionStart = sessionSchedule.isEmpty() ? Long.MAX_VALUE : Long.MIN_VALUE;
+        
+        Log.info("QI VWAP: Indicator registered, sessions=[" + sessionStarts + "] " + zone + ", bands=" + bandDeviations);
     }
     
     @Override
@@ -60,14 +98,39 @@ public class Layer1ApiVWAP implements CustomModule, TradeDataListener, Historica
     @Override
     public void onTrade(double price, int size, TradeInfo tradeInfo) {
         // Update VWAP calculation on every trade
-        lastVwap = calculator.addTrade(price, size);
+        accumulator.addTrade(price, size);
+    }
+    
+    @Override
+    public void onTimestamp(long t) {
+        if (t >= nextSessionStart) {
+            isSessionStarted = nextSessionStart != Long.MIN_VALUE;
+            // Computed once per session, not per event
+            nextSessionStart = sessionSchedule.getNextStart(t);
+            accumulator.reset();
+        }
     }
     
     @Override
     public void onInterval() {
+        if (isSessionStarted) {
+            // Break the lines between sessions
+            isSessionStarted = false;
+            addPoints(Double.NaN, Double.NaN);
+            return;
+        }
         // Update indicator display at regular intervals for smooth rendering
-        if (!Double.isNaN(lastVwap)) {
-            vwapIndicator.addPoint(lastVwap);
+        double vwap = accumulator.getVwap();
+        if (!Double.isNaN(vwap)) {
+            addPoints(vwap, bandDeviations * accumulator.getStandardDeviation());
+        }
+    }
+    
+    private void addPoints(double vwap, double bandOffset) {
+        vwapIndicator.addPoint(vwap);
+        if (upperBandIndicator != null) {
+            upperBandIndicator.addPoint(vwap + bandOffset);
+            lowerBandIndicator.addPoint(vwap - bandOffset);
         }
     }
     
@@ -76,34 +139,4 @@ public class Layer1ApiVWAP implements CustomModule, TradeDataListener, Historica
         // Update display every 100ms for smooth line
         return Intervals.INTERVAL_100_MILLISECONDS;
     }
-    
-    /**
-     * Helper class to calculate VWAP
-     * VWAP = Sum(Price * Volume) / Sum(Volume)
-     */
-    private static class VWAPCalculator {
-        private double cumulativePV = 0.0; // Cumulative Price * Volume
-        private double cumulativeVolume = 0.0; // Cumulative Volume
-        
-        public double addTrade(double price, int size) {
-            if (Double.isNaN(price) || size <= 0) {
-                return Double.isNaN(price) ? Double.NaN : getCurrentVWAP();
-            }
-            
-            // Add to cumulative values
-            cumulativePV += price * size;
-            cumulativeVolume += size;
-            
-            return getCurrentVWAP();
-        }
-        
-        private double getCurrentVWAP() {
-            if (cumulativeVolume == 0) {
-                return Double.NaN;
-            }
-            
-            // VWAP = Cumulative(Price * Volume) / Cumulative(Volume)
-            return cumulativePV / cumulativeVolume;
-        }
-    }
 }
@@ -0,0 +1,67 @@
+package velox.api.layer1.aaa.vwap;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import velox.api.layer1.common.Log;
+
+/**
+ * Daily session start times in a time zone, e.g. "09:30,18:00" in
+ * America/New_York. Finding the next start converts dates, callers should
+ * remember it and only ask again once it is reached.
+ */
+public class SessionSchedule {
+    private final List<LocalTime> startTimes = new ArrayList<>();
+    private final ZoneId zone;
+
+    /**
+     * @param startTimes comma separated HH:mm times, entries that can not be
+     *                   parsed are skipped with a warning
+     */
+    public SessionSchedule(String startTimes, ZoneId zone) {
+        this.zone = zone;
+        for (String startTime : startTimes.split(",")) {
+            startTime = startTime.trim();
+            if (startTime.isEmpty()) {
+                continue;
+            }
+            try {
+                this.startTimes.add(LocalTime.parse(startTime));
+            } catch (DateTimeParseException e) {
+                Log.warn("Session schedule: invalid start time '" + startTime + "', expected HH:mm");
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return startTimes.isEmpty();
+    }
+
+    /**
+     * @return first session start after the given time, both in nanoseconds
+     *         since epoch, {@link Long#MAX_VALUE} if there are no sessions
+     */
+    public long getNextStart(long nanoseconds) {
+        long next = Long.MAX_VALUE;
+        Instant instant = Instant.ofEpochSecond(0, nanoseconds);
+        LocalDate date = instant.atZone(zone).toLocalDate();
+        // A day after is enough for every time to have a start after the given one
+        for (int days = 0; days <= 1; days++) {
+            for (LocalTime startTime : startTimes) {
+                ZonedDateTime start = ZonedDateTime.of(date.plusDays(days), startTime, zone);
+                long startNanoseconds = TimeUnit.SECONDS.toNanos(start.toEpochSecond());
+                if (startNanoseconds > nanoseconds && startNanoseconds < next) {
+                    next = startNanoseconds;
+                }
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,89 @@
+package velox.api.layer1.aaa.vwap;
+
+/**
+ * Volume weighted average price of trades and the volume weighted standard
+ * deviation of their prices around it, O(1) per trade without keeping trades.
+ * Prices are taken relative to the first price after a reset, so the variance
+ * does not come from subtracting two huge sums, and sums of size * offset and
+ * size * offset^2 use compensated (Neumaier) summation while the volume is
+ * exact, so sessions of any length keep full double precision.
+ */
+public class VwapAccumulator {
+    private static class CompensatedSum {
+        private double sum = 0;
+        private double compensation = 0;
+
+        void add(double value) {
+            double newSum = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - newSum) + value;
+            } else {
+                compensation += (value - newSum) + sum;
+            }
+            sum = newSum;
+        }
+
+        double get() {
+            return sum + compensation;
+        }
+
+        void reset() {
+            sum = 0;
+            compensation = 0;
+        }
+    }
+
+    private double anchorPrice = Double.NaN;
+    private long volume = 0;
+    private final CompensatedSum offsetSum = new CompensatedSum();
+    private final CompensatedSum squaredOffsetSum = new CompensatedSum();
+
+    public void addTrade(double price, long size) {
+        if (Double.isNaN(price) || size <= 0) {
+            return;
+        }
+        if (volume == 0) {
+            anchorPrice = price;
+        }
+        double offset = price - anchorPrice;
+        double weightedOffset = offset * size;
+        volume += size;
+        offsetSum.add(weightedOffset);
+        squaredOffsetSum.add(weightedOffset * offset);
+    }
+
+    /** Starts over, e.g. at a session start */
+    public void reset() {
+        anchorPrice = Double.NaN;
+        volume = 0;
+        offsetSum.reset();
+        squaredOffsetSum.reset();
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return VWAP, NaN if there were no trades since the reset
+     */
+    public double getVwap() {
+        if (volume == 0) {
+            return Double.NaN;
+        }
+        return anchorPrice + offsetSum.get() / volume;
+    }
+
+    /**
+     * @return volume weighted standard deviation of trade prices, NaN if there
+     *         were no trades since the reset
+     */
+    public double getStandardDeviation() {
+        if (volume == 0) {
+            return Double.NaN;
+        }
+        double meanOffset = offsetSum.get() / volume;
+        double variance = squaredOffsetSum.get() / volume - meanOffset * meanOffset;
+        return Math.sqrt(Math.max(variance, 0));
+    }
+}
@@ -0,0 +1,85 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import velox.api.layer1.layers.utils.OrderBook;
+import velox.api.layer1.providers.data.Combination;
+
+/**
+ * Everything helper strategies keep for a single instrument. Each instance is
+ * used as the lock for its own fields, so updates for different instruments
+ * never wait for each other.
+ */
+public class AliasState {
+    public final double pips;
+    /** Update with {@link #onDepth} and replace with {@link #setOrderBook}, so level sums follow it */
+    public OrderBook orderBook = new OrderBook();
+    public final Map<String, Combination<Integer, Boolean>> ordersMap = new HashMap<>(); //orderId - <price, isBid>
+    public final RequestThrottle requestThrottle = new RequestThrottle(Layer1ApiHelperStrategyAbstract.REQUEST_DELAY_MS);
+    public final LevelsSum bidLevelsSum = new LevelsSum(true);
+    public final LevelsSum askLevelsSum = new LevelsSum(false);
+    /**
+     * {@link RequestThrottle#getAttemptsCount()} after the last depth
+     * evaluation if it made no requests, -1 otherwise or if the book was
+     * replaced since. While it matches the throttle, evaluating the same book
+     * again can not make any requests.
+     */
+    long idleAttemptsCount = -1;
+    /** Depth changed since the last evaluation, coalesced updates only */
+    boolean isActionPending = false;
+    /** System.nanoTime from which the next depth update may be evaluated, coalesced updates only */
+    long nextDepthActionNanos = System.nanoTime();
+    
+    public AliasState(double pips) {
+        this.pips = pips;
+    }
+    
+    /**
+     * Applies a depth update to {@link #orderBook} and the level sums
+     */
+    public synchronized void onDepth(boolean isBid, int price, int size) {
+        Long previousSize = getSideMap(isBid).get(price);
+        orderBook.onUpdate(isBid, price, size);
+        getLevelsSum(isBid).onUpdate(getSideMap(isBid), price, size - (previousSize == null ? 0 : previousSize));
+    }
+    
+    public synchronized void setOrderBook(OrderBook orderBook) {
+        this.orderBook = orderBook;
+        bidLevelsSum.reset();
+        askLevelsSum.reset();
+    }
+    
+    /**
+     * Total size at levelsNumber levels from the best price, see
+     * {@link LevelsSum}
+     */
+    public synchronized int getTopLevelsSum(boolean isBid, int levelsNumber) {
+        return getLevelsSum(isBid).getSum(getSideMap(isBid), levelsNumber);
+    }
+    
+    private TreeMap<Integer, Long> getSideMap(boolean isBid) {
+        return isBid ? orderBook.getBidMap() : orderBook.getAskMap();
+    }
+    
+    private LevelsSum getLevelsSum(boolean isBid) {
+        return isBid ? bidLevelsSum : askLevelsSum;
+    }
+    
+    public synchronized void clearRequests() {
+        requestThrottle.clear();
+    }
+    
+    public synchronized void clearOrders() {
+        ordersMap.clear();
+    }
+    
+    public synchronized void resetIdle() {
+        idleAttemptsCount = -1;
+    }
+    
+    synchronized boolean isIdle() {
+        return idleAttemptsCount == requestThrottle.getAttemptsCount();
+    }
+}
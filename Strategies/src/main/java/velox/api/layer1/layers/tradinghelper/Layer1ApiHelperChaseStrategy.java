@@ -5,6 +5,7 @@ import java.awt.FlowLayout;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JLabel;
@@ -45,7 +46,7 @@ public class Layer1ApiHelperChaseStrategy extends Layer1ApiHelperStrategyAbstrac
     
     private Map<String, HelperChaseStrategySettings> settingsMap = new HashMap<>();
     
-    private Map<String, Double> lastPriceMap = new HashMap<>();
+    private Map<String, Double> lastPriceMap = new ConcurrentHashMap<>();
     
     public Layer1ApiHelperChaseStrategy(Layer1ApiProvider provider) {
         super(provider, "Chase", "velox.strategy.Chase", HelperChaseStrategySettings.class);
@@ -115,21 +116,28 @@ public class Layer1ApiHelperChaseStrategy extends Layer1ApiHelperStrategyAbstrac
         super.reloadGui(alias);
     }
     
+    @Override
+    protected int getConsideredLevelsNumber(String alias) {
+        // Orders chase the best price or the last trade, sizes do not matter
+        return 0;
+    }
+    
     @Override
     protected void doActionForAlias(String alias) {
         if (!getSettingsFor(alias).isEnabled() || !isWorking) {
             return;
         }
         
-        synchronized (locker) {
-            OrderBook orderBook = orderBookMap.get(alias);
-            Map<String, Combination<Integer, Boolean>> ordersMap = aliasToOrdersMap.get(alias);
-            Double pips = pipsMap.get(alias);
-            Map<OrderRequest, Long> requestTimesMap = lastRequestMap.get(alias);
-            
-            if (orderBook == null || ordersMap == null || pips == null || requestTimesMap == null) {
-                return;
-            }
+        AliasState state = aliasStates.get(alias);
+        if (state == null) {
+            return;
+        }
+        
+        synchronized (state) {
+            OrderBook orderBook = state.orderBook;
+            Map<String, Combination<Integer, Boolean>> ordersMap = state.ordersMap;
+            double pips = state.pips;
+            RequestThrottle requestThrottle = state.requestThrottle;
             
             int distance = getSettingsFor(alias).getDistance();
             
@@ -171,11 +179,9 @@ public class Layer1ApiHelperChaseStrategy extends Layer1ApiHelperStrategyAbstrac
                     
                     if (targetLevel != null) {
                         OrderRequest orderRequest = new OrderRequest(orderId, targetLevel);
-                        Long t = requestTimesMap.getOrDefault(orderRequest, 0L);
                         
-                        if (System.currentTimeMillis() - t >= REQUEST_DELAY_MS) {
+                        if (requestThrottle.tryAcquire(orderRequest)) {
                             pendingMoves.add(new Combination<String, Double>(orderId, targetLevel * pips));
-                            requestTimesMap.put(orderRequest, System.currentTimeMillis());
                         }
                     }
                 });
@@ -191,11 +197,9 @@ public class Layer1ApiHelperChaseStrategy extends Layer1ApiHelperStrategyAbstrac
     public void onTrade(String alias, double price, int size, TradeInfo tradeInfo) {
         super.onTrade(alias, price, size, tradeInfo);
         
-        synchronized (locker) {
-            if (size > 0) {
-                lastPriceMap.put(alias, price);
-                doActionForAlias(alias);
-            }
+        if (size > 0) {
+            lastPriceMap.put(alias, price);
+            doActionForAlias(alias);
         }
     }
     
@@ -219,9 +223,7 @@ public class Layer1ApiHelperChaseStrategy extends Layer1ApiHelperStrategyAbstrac
     public void onUserMessage(Object data) {
         super.onUserMessage(data);
         if (data instanceof UserMessageRewindBase) {
-            synchronized (locker) {
-                lastPriceMap.clear();
-            }
+            lastPriceMap.clear();
         }
     }
 }
@@ -21,7 +21,6 @@ import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1Attachable;
 import velox.api.layer1.annotations.Layer1StrategyName;
 import velox.api.layer1.annotations.Layer1TradingStrategy;
-import velox.api.layer1.common.Log;
 import velox.api.layer1.config.beans.HelperEscapeStrategySettings;
 import velox.api.layer1.config.beans.HelperEscapeStrategySettings.Mode;
 import velox.api.layer1.data.OrderCancelParameters;
@@ -168,7 +167,7 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
             settings.setMode(Mode.MOVE);
             if (Mode.MOVE != currentMode) {
                 currentMode = settings.getMode();
-                lastRequestMap.forEach((currentAlias, map) -> map.clear());
+                aliasStates.values().forEach(AliasState::clearRequests);
             }
             settingsChanged(alias, settings);
         };
@@ -181,7 +180,7 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
             settings.setMode(Mode.CANCEL);
             if (Mode.CANCEL != currentMode) {
                 currentMode = settings.getMode();
-                lastRequestMap.forEach((currentAlias, map) -> map.clear());
+                aliasStates.values().forEach(AliasState::clearRequests);
             }
             settingsChanged(alias, settings);
         };
@@ -229,36 +228,42 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
         spinnerMoveDistance.setEnabled(rbMoveOrder.isSelected());
     }
     
+    @Override
+    protected int getConsideredLevelsNumber(String alias) {
+        return getSettingsFor(alias).getConsideredLevelsNumber();
+    }
+    
     @Override
     protected void doActionForAlias(String alias) {
         if (!getSettingsFor(alias).isEnabled() || !isWorking) {
             return;
         }
         
-        synchronized (locker) {
-            OrderBook orderBook = orderBookMap.get(alias);
-            
-            if (orderBook == null) {
-                return;
-            }
+        AliasState state = aliasStates.get(alias);
+        if (state == null) {
+            return;
+        }
+        
+        synchronized (state) {
+            OrderBook orderBook = state.orderBook;
             
             int levelsNumber = getSettingsFor(alias).getConsideredLevelsNumber();
             int affectedLevelsNumber = getSettingsFor(alias).getAffectedLevelsNumber();
             int percent = getSettingsFor(alias).getPercent();
             
-            int volumeBid = getTopLevelsSum(orderBook.getBidMap(), levelsNumber, true);
-            int volumeAsk = getTopLevelsSum(orderBook.getAskMap(), levelsNumber, false);
+            int volumeBid = state.getTopLevelsSum(true, levelsNumber);
+            int volumeAsk = state.getTopLevelsSum(false, levelsNumber);
             
             if (!orderBook.getBidMap().isEmpty() && !orderBook.getAskMap().isEmpty()) {
                 int firstBidLevel = orderBook.getBidMap().firstKey();
                 int firstAskLevel = orderBook.getAskMap().firstKey();
                 
                 if (isConditionSatisfiedLess(volumeBid, volumeAsk, percent)) {
-                    executeAction(alias, true, firstBidLevel - affectedLevelsNumber + 1, firstAskLevel);
+                    executeAction(alias, state, true, firstBidLevel - affectedLevelsNumber + 1, firstAskLevel);
                 }
                 
                 if (isConditionSatisfiedLess(volumeAsk, volumeBid, percent)) {
-                    executeAction(alias, false, firstAskLevel + affectedLevelsNumber - 1, firstBidLevel);
+                    executeAction(alias, state, false, firstAskLevel + affectedLevelsNumber - 1, firstBidLevel);
                 }
             }
         }
@@ -267,24 +272,20 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
     /**
      * Move orders with prices in range [-inf, borderLevel] or [borderLevel, +inf] (defined by isBid) by offset in moveDirection
      * @param alias
+     * @param state state of the alias
      * @param isBid if true, execute condition for buy orders, otherwise for sell orders
      * @param borderLevel
      * @param oppositeStartLevel level where opposite trades start
      * @param offset
      * @param moveDirection
      */
-    private void executeAction(String alias, boolean isBid, final int borderLevel, final int oppositeStartLevel) {
-        synchronized (locker) {
+    private void executeAction(String alias, AliasState state, boolean isBid, final int borderLevel, final int oppositeStartLevel) {
+        synchronized (state) {
             ArrayList<Combination<String, Integer>> affectedOrders = new ArrayList<>();
             
-            Map<String, Combination<Integer, Boolean>> ordersMap = aliasToOrdersMap.get(alias);
-            Double pips = pipsMap.get(alias);
-            Map<OrderRequest, Long> requestTimesMap = lastRequestMap.get(alias);
-            
-            if (ordersMap == null || pips == null || requestTimesMap == null) {
-                Log.warn("Helper strategy: unknown instrument: " + alias);
-                return;
-            }
+            Map<String, Combination<Integer, Boolean>> ordersMap = state.ordersMap;
+            double pips = state.pips;
+            RequestThrottle requestThrottle = state.requestThrottle;
             
             ordersMap.forEach((orderId, info) -> {
                 int level = info.first;
@@ -304,11 +305,9 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
                 switch (mode) {
                 case CANCEL: {
                     OrderRequest orderRequest = new OrderRequest(pair.first, pair.second);
-                    Long t = requestTimesMap.getOrDefault(orderRequest, 0L);
                     
-                    if (System.currentTimeMillis() - t >= REQUEST_DELAY_MS) {
+                    if (requestThrottle.tryAcquire(orderRequest)) {
                         provider.updateOrder(new OrderCancelParameters(pair.first));
-                        requestTimesMap.put(orderRequest, System.currentTimeMillis());
                     }
                     
                     break;
@@ -321,11 +320,9 @@ public class Layer1ApiHelperEscapeStrategy extends Layer1ApiHelperStrategyAbstra
                     }
                     
                     OrderRequest orderRequest = new OrderRequest(pair.first, pair.second + k * moveDelta);
-                    Long t = requestTimesMap.getOrDefault(orderRequest, 0L);
                     
-                    if (System.currentTimeMillis() - t >= REQUEST_DELAY_MS) {
+                    if (requestThrottle.tryAcquire(orderRequest)) {
                         provider.updateOrder(new OrderMoveParameters(pair.first, Double.NaN, (pair.second + k * moveDelta) * pips));
-                        requestTimesMap.put(orderRequest, System.currentTimeMillis());
                     }
                     
                     break;
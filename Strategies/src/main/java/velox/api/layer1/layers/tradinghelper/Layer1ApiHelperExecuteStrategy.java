@@ -119,38 +119,44 @@ public class Layer1ApiHelperExecuteStrategy extends Layer1ApiHelperStrategyAbstr
         super.reloadGui(alias);
     }
     
+    @Override
+    protected int getConsideredLevelsNumber(String alias) {
+        return getSettingsFor(alias).getLevelsNumber();
+    }
+    
     @Override
     protected void doActionForAlias(String alias) {
         if (!getSettingsFor(alias).isEnabled() || !isWorking) {
             return;
         }
         
-        synchronized (locker) {
-            OrderBook orderBook = orderBookMap.get(alias);
-            Map<String, Combination<Integer, Boolean>> ordersMap = aliasToOrdersMap.get(alias);
-            Double pips = pipsMap.get(alias);
-            Map<OrderRequest, Long> requestTimesMap = lastRequestMap.get(alias);
-            
-            if (orderBook == null || ordersMap == null || pips == null || requestTimesMap == null) {
-                return;
-            }
+        AliasState state = aliasStates.get(alias);
+        if (state == null) {
+            return;
+        }
+        
+        synchronized (state) {
+            OrderBook orderBook = state.orderBook;
+            Map<String, Combination<Integer, Boolean>> ordersMap = state.ordersMap;
+            double pips = state.pips;
+            RequestThrottle requestThrottle = state.requestThrottle;
             
             ArrayList<Combination<String, Double>> pendingMoves = new ArrayList<>();
             
             int levelsNumber = getSettingsFor(alias).getLevelsNumber();
             
-            int volumeBid = getTopLevelsSum(orderBook.getBidMap(), levelsNumber, true);
-            int volumeAsk = getTopLevelsSum(orderBook.getAskMap(), levelsNumber, false);
+            int volumeBid = state.getTopLevelsSum(true, levelsNumber);
+            int volumeAsk = state.getTopLevelsSum(false, levelsNumber);
             int percent = getSettingsFor(alias).getPercent();
             int distance = getSettingsFor(alias).getTickNumber();
             
             if (!orderBook.getBidMap().isEmpty() && !orderBook.getAskMap().isEmpty()) {
                 if (isConditionSatisfiedMore(volumeAsk, volumeBid, percent)) {
-                    moveOrders(false, orderBook.getAskMap().firstKey() - distance, ordersMap, pips, requestTimesMap, levelsNumber, pendingMoves);
+                    moveOrders(false, orderBook.getAskMap().firstKey() - distance, ordersMap, pips, requestThrottle, levelsNumber, pendingMoves);
                 }
                 
                 if (isConditionSatisfiedMore(volumeBid, volumeAsk, percent)) {
-                    moveOrders(true, orderBook.getBidMap().firstKey() + distance, ordersMap, pips, requestTimesMap, levelsNumber, pendingMoves);
+                    moveOrders(true, orderBook.getBidMap().firstKey() + distance, ordersMap, pips, requestThrottle, levelsNumber, pendingMoves);
                 }
             }
             
@@ -161,16 +167,14 @@ public class Layer1ApiHelperExecuteStrategy extends Layer1ApiHelperStrategyAbstr
     }
     
     private void moveOrders(boolean isBid, int targetLevel, Map<String, Combination<Integer, Boolean>> ordersMap,
-            double pips, Map<OrderRequest, Long> requestTimesMap,
+            double pips, RequestThrottle requestThrottle,
             int levelsNumber, ArrayList<Combination<String, Double>> pendingMoves) {
         ordersMap.forEach((orderId, info) -> {
             if (info.second == isBid) {
                 OrderRequest orderRequest = new OrderRequest(orderId, targetLevel);
-                Long t = requestTimesMap.getOrDefault(orderRequest, 0L);
                 
-                if (System.currentTimeMillis() - t >= REQUEST_DELAY_MS) {
+                if (requestThrottle.tryAcquire(orderRequest)) {
                     pendingMoves.add(new Combination<String, Double>(orderId, targetLevel * pips));
-                    requestTimesMap.put(orderRequest, System.currentTimeMillis());
                 }
             }
         });
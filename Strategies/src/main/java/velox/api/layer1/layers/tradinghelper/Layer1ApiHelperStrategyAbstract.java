@@ -3,9 +3,10 @@ package velox.api.layer1.layers.tradinghelper;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JCheckBox;
 import javax.swing.JFormattedTextField;
@@ -54,19 +55,34 @@ public class Layer1ApiHelperStrategyAbstract<V extends HelperStrategySettings> i
      */
     protected static final long REQUEST_DELAY_MS = 1000;
     
+    /**
+     * -DHelperStrategy.coalesceMs=N evaluates an instrument at most once per N
+     * ms on depth updates, so a burst of updates costs few evaluations. Updates
+     * within the interval only change the book, which is evaluated on the first
+     * depth update of the instrument after the interval (or by an order or
+     * trade event before that). Evaluations stay on the provider thread that
+     * delivers the update. 0 (default) evaluates on every update that can
+     * change a decision.
+     */
+    private static final long COALESCE_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("HelperStrategy.coalesceMs", 0));
+    
     protected final String userReadableStrategyName;
     protected final String strategyName;
     
+    /**
+     * Guards GUI and settings persistence. Market data and orders are guarded by
+     * the {@link AliasState} of their instrument instead.
+     */
     protected Object locker = new Object();
     
-    private Map<String, V> settingsMap = new HashMap<>();
+    /** Key of the null alias, which ConcurrentHashMap does not allow */
+    private static final Object NULL_ALIAS_KEY = new Object();
+    
+    private final Map<Object, V> settingsMap = new ConcurrentHashMap<>(); //alias or NULL_ALIAS_KEY - settings
     
     protected StrategyPanel[] lastPanels;
     
-    protected Map<String, OrderBook> orderBookMap = new HashMap<>(); //alias - order book
-    protected Map<String, Map<String, Combination<Integer, Boolean>>> aliasToOrdersMap = new HashMap<>(); //alias - (orderId - <price, isBid>)
-    protected Map<String, Double> pipsMap = new HashMap<>();
-    protected Map<String, Map<OrderRequest, Long>> lastRequestMap = new HashMap<>(); //alias - mapping <(order id, level number) - last time request on that level was made>
+    protected Map<String, AliasState> aliasStates = new ConcurrentHashMap<>(); //alias - instrument state
     
     protected SettingsAccess settingsAccess;
     
@@ -90,18 +106,27 @@ public class Layer1ApiHelperStrategyAbstract<V extends HelperStrategySettings> i
     
     protected void settingsChanged(String settingsAlias, HelperStrategySettings settingsObject) {
         synchronized (locker) {
-            V instrumentSettings = getSettingsFor(settingsAlias);
-            
             settingsAccess.setSettings(settingsAlias, strategyName, settingsObject, settingsObject.getClass());
-            
-            for (String alias : orderBookMap.keySet()) {
-                doActionForAlias(alias);
-            }
+        }
+        
+        for (String alias : aliasStates.keySet()) {
+            doActionForAlias(alias);
         }
     }
     
     protected void doActionForAlias(String alias) {}
     
+    /**
+     * @return number of price levels from the best price, at both sides, that
+     *         decisions depend on. Depth updates further away from the best
+     *         price are only applied to the book, unless the previous
+     *         evaluation made requests (they might be retried). 0 if only the
+     *         best prices matter.
+     */
+    protected int getConsideredLevelsNumber(String alias) {
+        return Integer.MAX_VALUE;
+    }
+    
     @Override
     public StrategyPanel[] getCustomGuiFor(String alias, String indicatorName) {
         return new StrategyPanel[0];
@@ -111,88 +136,108 @@ public class Layer1ApiHelperStrategyAbstract<V extends HelperStrategySettings> i
     public void finish() {
         isWorking = false;
         onUserMessage(new Layer1ApiUserMessageModifyIndicator(Layer1ApiHelperStrategyAbstract.class, userReadableStrategyName, false));
-        synchronized (locker) {
-            orderBookMap.clear();
-            aliasToOrdersMap.clear();
-            lastRequestMap.clear();
-        }
+        aliasStates.clear();
     }
     
     @Override
     public void onInstrumentAdded(String alias, InstrumentInfo instrumentInfo) {
-        synchronized (locker) {
-            aliasToOrdersMap.put(alias, new HashMap<>());
-            orderBookMap.put(alias, new OrderBook());
-            pipsMap.put(alias, instrumentInfo.pips);
-            lastRequestMap.put(alias, new TreeMap<>());
-        }
+        aliasStates.put(alias, new AliasState(instrumentInfo.pips));
     }
     
     @Override
     public void onInstrumentRemoved(String alias) {
-        synchronized (locker) {
-            orderBookMap.remove(alias);
-            lastRequestMap.remove(alias);
-        }
+        aliasStates.remove(alias);
     }
     
     @Override
     public void onDepth(String alias, boolean isBid, int price, int size) {
-        synchronized (locker) {
-            OrderBook orderBook = orderBookMap.get(alias);
-            if (orderBook != null) {
-                orderBook.onUpdate(isBid, price, size);
-                doActionForAlias(alias);
-            } else {
-                Log.warn("Helper strategy: unknown instrument " + alias);
+        AliasState state = aliasStates.get(alias);
+        if (state != null) {
+            synchronized (state) {
+                Integer bestPriceBefore = getBestPrice(state.orderBook, isBid);
+                state.onDepth(isBid, price, size);
+                Integer bestPrice = getBestPrice(state.orderBook, isBid);
+                
+                boolean isRelevant = !(state.isIdle() && bestPrice != null && bestPrice.equals(bestPriceBefore)
+                        && (isBid ? bestPrice - price : price - bestPrice) >= getConsideredLevelsNumber(alias));
+                if (!isRelevant && !state.isActionPending) {
+                    return;
+                }
+                
+                if (COALESCE_NANOS > 0) {
+                    long now = System.nanoTime();
+                    if (now - state.nextDepthActionNanos < 0) {
+                        // The book is evaluated with a later update
+                        state.isActionPending = true;
+                        return;
+                    }
+                    state.nextDepthActionNanos = now + COALESCE_NANOS;
+                }
+                state.isActionPending = false;
+                doDepthActionForAlias(alias, state);
             }
+        } else {
+            Log.warn("Helper strategy: unknown instrument " + alias);
         }
     }
     
+    /**
+     * Called holding the state lock. Remembers whether the evaluation made
+     * requests, so depth updates that can not change it are skipped.
+     */
+    private void doDepthActionForAlias(String alias, AliasState state) {
+        long attemptsCount = state.requestThrottle.getAttemptsCount();
+        doActionForAlias(alias);
+        state.idleAttemptsCount = state.requestThrottle.getAttemptsCount() == attemptsCount ? attemptsCount : -1;
+    }
+    
+    private static Integer getBestPrice(OrderBook orderBook, boolean isBid) {
+        TreeMap<Integer, Long> map = isBid ? orderBook.getBidMap() : orderBook.getAskMap();
+        return map.isEmpty() ? null : map.firstKey();
+    }
+    
     @Override
     public void onUserMessage(Object data) {
         if (data instanceof UserMessageLayersChainCreatedTargeted) {
             UserMessageLayersChainCreatedTargeted message = (UserMessageLayersChainCreatedTargeted) data;
             if (message.targetClass == getClass()) {
                 isWorking = true;
+                aliasStates.values().forEach(AliasState::resetIdle);
                 onUserMessage(new Layer1ApiUserMessageModifyIndicator(Layer1ApiHelperStrategyAbstract.class, userReadableStrategyName, true,
                         null, null, null, null, null, null, null, null, null, null, GraphType.NONE, false, null, null, null, null));
             }
         } else if (data instanceof UserMessageRewindBase) {
             UserMessageRewindBase message = (UserMessageRewindBase) data;
             
-            synchronized (locker) {
-                for (Entry<String, OrderBook> entry : message.aliasToOrderBooksMap.entrySet()) {
-                    OrderBook orderBook = orderBookMap.get(entry.getKey());
-                    
-                    if (orderBook != null) {
-                        orderBookMap.put(entry.getKey(), new OrderBook(entry.getValue()));
+            for (Entry<String, OrderBook> entry : message.aliasToOrderBooksMap.entrySet()) {
+                AliasState state = aliasStates.get(entry.getKey());
+                
+                if (state != null) {
+                    synchronized (state) {
+                        state.setOrderBook(new OrderBook(entry.getValue()));
+                        state.idleAttemptsCount = -1;
                     }
                 }
-                
-                aliasToOrdersMap.forEach((alias, orderMap) -> orderMap.clear());
             }
+            
+            aliasStates.values().forEach(AliasState::clearOrders);
         }
     }
 
     @Override
     public void onOrderUpdated(OrderInfoUpdate orderInfoUpdate) {
-        synchronized (locker) {
-            Map<String, Combination<Integer, Boolean>> ordersMap = aliasToOrdersMap.get(orderInfoUpdate.instrumentAlias);
-            if (ordersMap == null) {
-                ordersMap = new HashMap<>();
-                aliasToOrdersMap.put(orderInfoUpdate.instrumentAlias, ordersMap);
-            }
+        AliasState state = aliasStates.get(orderInfoUpdate.instrumentAlias);
+        if (state == null) {
+            Log.warn("Helper strategy: unknown instrument: " + orderInfoUpdate.instrumentAlias);
+            return;
+        }
+        
+        synchronized (state) {
             if (orderInfoUpdate.type == OrderType.LMT) {
                 if (orderInfoUpdate.unfilled == 0 || !(orderInfoUpdate.status == OrderStatus.WORKING)) {
-                    ordersMap.remove(orderInfoUpdate.orderId);
+                    state.ordersMap.remove(orderInfoUpdate.orderId);
                 } else {
-                    Double pips = pipsMap.get(orderInfoUpdate.instrumentAlias);
-                    if (pips == null) {
-                        Log.warn("Helper strategy: unknown instrument: " + orderInfoUpdate.instrumentAlias);
-                    } else {
-                        ordersMap.put(orderInfoUpdate.orderId, new Combination<Integer, Boolean>((int) Math.round(orderInfoUpdate.limitPrice / pips), orderInfoUpdate.isBuy));
-                    }
+                    state.ordersMap.put(orderInfoUpdate.orderId, new Combination<Integer, Boolean>((int) Math.round(orderInfoUpdate.limitPrice / state.pips), orderInfoUpdate.isBuy));
                 }
             }
             
@@ -205,6 +250,10 @@ public class Layer1ApiHelperStrategyAbstract<V extends HelperStrategySettings> i
         ((NumberFormatter) tfield.getFormatter()).setAllowsInvalid(false);
     }
     
+    /**
+     * Looks up every level, {@link AliasState#getTopLevelsSum(boolean, int)}
+     * returns the same from sums maintained on depth updates
+     */
     protected int getTopLevelsSum(TreeMap<Integer, Long> map, int levelsNumber, boolean isBid) {
         if (map.isEmpty()) {
             return 0;
@@ -289,16 +338,19 @@ public class Layer1ApiHelperStrategyAbstract<V extends HelperStrategySettings> i
         this.settingsAccess = settingsAccess;
     }
     
+    /**
+     * Does not take {@link #locker}, as it is called while holding an
+     * {@link AliasState} lock. Called on every depth update, so settings that
+     * are already loaded are read without locking.
+     */
     @SuppressWarnings("unchecked")
     protected V getSettingsFor(String alias) {
-        synchronized (locker) {
-            V settings = settingsMap.get(alias);
-            if (settings == null) {
-                settings = (V) settingsAccess.getSettings(alias, strategyName, settingsClass);
-                settingsMap.put(alias, settings);
-            }
-            return settings;
+        Object key = alias == null ? NULL_ALIAS_KEY : alias;
+        V settings = settingsMap.get(key);
+        if (settings == null) {
+            settings = settingsMap.computeIfAbsent(key, k -> (V) settingsAccess.getSettings(alias, strategyName, settingsClass));
         }
+        return settings;
     }
 
     @Override
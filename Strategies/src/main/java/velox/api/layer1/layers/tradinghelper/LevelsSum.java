@@ -0,0 +1,95 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.TreeMap;
+
+/**
+ * Sum of sizes at a number of price levels (ticks) from the best price of one
+ * side of the book, kept up to date from depth updates instead of looking up
+ * every level on each evaluation. The window follows the best price one tick
+ * at a time and is only recalculated when the best price jumps by the whole
+ * window, the number of levels changes or the side was empty.
+ */
+public class LevelsSum {
+    /** Price step towards better prices */
+    private final int step;
+    private boolean isAnchored = false;
+    private int levelsNumber;
+    private int bestPrice;
+    private long sum;
+
+    public LevelsSum(boolean isBid) {
+        this.step = isBid ? 1 : -1;
+    }
+
+    /**
+     * Called after the update was applied to the map, the window still starts
+     * at the previous best price
+     */
+    public void onUpdate(TreeMap<Integer, Long> map, int price, long sizeDelta) {
+        if (!isAnchored) {
+            return;
+        }
+        if (map.isEmpty()) {
+            isAnchored = false;
+            return;
+        }
+        int level = (bestPrice - price) * step;
+        if (level >= 0 && level < levelsNumber) {
+            sum += sizeDelta;
+        }
+        int newBestPrice = map.firstKey();
+        if (newBestPrice != bestPrice) {
+            moveTo(map, newBestPrice);
+        }
+    }
+
+    /**
+     * Same as
+     * {@link Layer1ApiHelperStrategyAbstract#getTopLevelsSum(TreeMap, int, boolean)}
+     */
+    public int getSum(TreeMap<Integer, Long> map, int levelsNumber) {
+        if (map.isEmpty()) {
+            return 0;
+        }
+        if (!isAnchored || levelsNumber != this.levelsNumber) {
+            this.levelsNumber = levelsNumber;
+            bestPrice = map.firstKey();
+            sum = calculateSum(map);
+            isAnchored = true;
+        }
+        return (int) sum;
+    }
+
+    /** Forgets the window, e.g. when the book is replaced */
+    public void reset() {
+        isAnchored = false;
+    }
+
+    private void moveTo(TreeMap<Integer, Long> map, int newBestPrice) {
+        int shift = (newBestPrice - bestPrice) * step;
+        if (Math.abs(shift) >= levelsNumber) {
+            bestPrice = newBestPrice;
+            sum = calculateSum(map);
+            return;
+        }
+        // One tick at a time: one level enters the window and one leaves it
+        while (bestPrice != newBestPrice) {
+            if (shift > 0) {
+                bestPrice += step;
+                sum += map.getOrDefault(bestPrice, 0L) - map.getOrDefault(bestPrice - step * levelsNumber, 0L);
+            } else {
+                sum -= map.getOrDefault(bestPrice, 0L);
+                bestPrice -= step;
+                sum += map.getOrDefault(bestPrice - step * (levelsNumber - 1), 0L);
+            }
+        }
+    }
+
+    private long calculateSum(TreeMap<Integer, Long> map) {
+        long result = 0;
+        for (int i = 0; i < levelsNumber; i++) {
+            result += map.getOrDefault(bestPrice - step * i, 0L);
+        }
+        return result;
+    }
+}
@@ -29,6 +29,11 @@ public class OrderRequest implements Comparable<OrderRequest> {
         return false;
     }
     
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, requestLevel);
+    }
+    
     @Override
     public String toString() {
         return "(" + orderId + " " + requestLevel + ")";
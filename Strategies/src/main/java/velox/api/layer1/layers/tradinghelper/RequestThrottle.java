@@ -0,0 +1,75 @@
+package velox.api.layer1.layers.tradinghelper;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers requests made during the last delay interval. Requests are kept in
+ * the order they were made, so expired ones are evicted from the head in O(1)
+ * and memory is bounded by the number of requests made within one interval.
+ * Uses {@link System#nanoTime()}, so wall clock adjustments do not affect it.
+ */
+public class RequestThrottle {
+    private static class Request {
+        final OrderRequest orderRequest;
+        final long time;
+        
+        Request(OrderRequest orderRequest, long time) {
+            this.orderRequest = orderRequest;
+            this.time = time;
+        }
+    }
+    
+    private final long delayNanos;
+    private final ArrayDeque<Request> requests = new ArrayDeque<>();
+    private final Map<OrderRequest, Request> lastRequests = new HashMap<>();
+    private long attemptsCount = 0;
+    
+    public RequestThrottle(long delayMs) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMs);
+    }
+    
+    /**
+     * @return true and records the request if the same request was not made
+     *         within the delay interval, false otherwise
+     */
+    public boolean tryAcquire(OrderRequest orderRequest) {
+        attemptsCount++;
+        long now = System.nanoTime();
+        evictExpired(now);
+        if (lastRequests.containsKey(orderRequest)) {
+            return false;
+        }
+        Request request = new Request(orderRequest, now);
+        requests.addLast(request);
+        lastRequests.put(orderRequest, request);
+        return true;
+    }
+    
+    /**
+     * @return number of {@link #tryAcquire(OrderRequest)} calls, granted or
+     *         not, since creation
+     */
+    public long getAttemptsCount() {
+        return attemptsCount;
+    }
+    
+    public int size() {
+        return lastRequests.size();
+    }
+    
+    public void clear() {
+        requests.clear();
+        lastRequests.clear();
+    }
+    
+    private void evictExpired(long now) {
+        Request oldest;
+        while ((oldest = requests.peekFirst()) != null && now - oldest.time >= delayNanos) {
+            requests.pollFirst();
+            lastRequests.remove(oldest.orderRequest);
+        }
+    }
+}
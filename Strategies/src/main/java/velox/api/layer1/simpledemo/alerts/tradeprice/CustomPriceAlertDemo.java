@@ -41,7 +41,8 @@ import velox.gui.StrategyPanel;
  * return to this example.</p>
  *
  * <p>With this addon you can setup an alert for trades of price greater-than / equal-to / less-than
- * some custom target price</p>
+ * some custom target price. An alert is triggered when a trade crosses its target price,
+ * see {@link PriceTriggerIndex}</p>
  */
 @Layer1Attachable
 @Layer1StrategyName("Custom price alert demo")
@@ -61,11 +62,17 @@ public class CustomPriceAlertDemo implements
     private final Map<String, CustomDeclarationSettings> declarationIdToDeclarationSettings = new ConcurrentHashMap<>();
     private final Map<String, Layer1ApiSoundAlertDeclarationMessage> declarationIdToDeclarationMessage = new ConcurrentHashMap<>();
     private final Map<String, InstrumentInfo> aliasToInstrumentInfo = new ConcurrentHashMap<>();
+    private final Map<String, LastTrade> aliasToLastTrade = new ConcurrentHashMap<>();
+    /** Rebuilt from declarationIdToTradeMatcher each time an alert is added, updated or removed */
+    private volatile PriceTriggerIndex triggerIndex = PriceTriggerIndex.EMPTY;
     private Layer1ApiAlertGuiMessage guiMessage;
     
     private final Object alertCreationLock = new Object();
     private final AtomicBoolean isActive = new AtomicBoolean(false);
 
+    private static class LastTrade {
+        double realPrice = Double.NaN;
+    }
     
     public CustomPriceAlertDemo(Layer1ApiProvider provider) {
         this.provider = provider;
@@ -80,9 +87,18 @@ public class CustomPriceAlertDemo implements
          * the pips and sizeMultiplier for a given instrument.
          */
         InstrumentInfo instrumentInfo = aliasToInstrumentInfo.get(alias);
-        declarationIdToTradeMatcher.values().forEach(tradeMatcher -> {
-            tradeMatcher.tryMatch(alias, price * instrumentInfo.pips, size / instrumentInfo.sizeMultiplier);
-        });
+        if (size == 0) {
+            // No alert matches such trades, so they should not move the last trade price either
+            return;
+        }
+        double realPrice = price * instrumentInfo.pips;
+        /*
+         * Instead of testing every TradeMatcher, the index only visits the alerts
+         * whose thresholds lie between the previous trade price and this one
+         */
+        LastTrade lastTrade = aliasToLastTrade.computeIfAbsent(alias, k -> new LastTrade());
+        triggerIndex.match(alias, lastTrade.realPrice, realPrice, size / instrumentInfo.sizeMultiplier);
+        lastTrade.realPrice = realPrice;
     }
     
     @Override
@@ -94,6 +110,7 @@ public class CustomPriceAlertDemo implements
                     declarationIdToDeclarationMessage.remove(declarationMessage.id);
                     declarationIdToDeclarationSettings.remove(declarationMessage.id);
                     declarationIdToTradeMatcher.remove(declarationMessage.id);
+                    rebuildTriggerIndex();
                     /*
                      * During addon unload we will obtain declaration messages with
                      * isAdd = false (sent from #finish()), but we don't want to store
@@ -163,7 +180,9 @@ public class CustomPriceAlertDemo implements
             
             declarationIdToDeclarationMessage.clear();
             declarationIdToTradeMatcher.clear();
+            triggerIndex = PriceTriggerIndex.EMPTY;
             aliasToInstrumentInfo.clear();
+            aliasToLastTrade.clear();
         }
     }
     
@@ -247,9 +266,19 @@ public class CustomPriceAlertDemo implements
         
             TradeMatcher tradeMatcher = new TradeMatcher(tradePredicate, onMatchCallback);
             declarationIdToTradeMatcher.put(declarationMessage.id, tradeMatcher);
+            rebuildTriggerIndex();
         }
     }
     
+    private void rebuildTriggerIndex() {
+        PriceTriggerIndex.Builder builder = new PriceTriggerIndex.Builder();
+        declarationIdToTradeMatcher.forEach((declarationId, tradeMatcher) -> {
+            CustomDeclarationSettings declarationSettings = declarationIdToDeclarationSettings.get(declarationId);
+            builder.add(declarationSettings.comparisonSymbol, declarationSettings.selectedPrice, tradeMatcher);
+        });
+        triggerIndex = builder.build();
+    }
+    
     private String getTriggerDescription(CustomDeclarationSettings declarationSettings) {
         return String.format("Trade with price %s %d",
             declarationSettings.comparisonSymbol,
@@ -264,6 +293,7 @@ public class CustomPriceAlertDemo implements
     @Override
     public void onInstrumentRemoved(String alias) {
         aliasToInstrumentInfo.remove(alias);
+        aliasToLastTrade.remove(alias);
     }
 
     @Override
@@ -0,0 +1,150 @@
+package velox.api.layer1.simpledemo.alerts.tradeprice;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Alert thresholds sorted by price in primitive arrays, one array per
+ * comparison, so that a trade only visits the alerts whose condition became
+ * true since the previous trade of the same instrument. Per-trade cost is
+ * O(log n + k) for n alerts of which k were crossed, instead of testing every
+ * alert.</p>
+ *
+ * <p>Alerts are therefore triggered once per crossing: an alert for
+ * price &gt; 100 fires on the first trade above 100 and then again only after
+ * a trade at or below 100. Instances are immutable, a new one is built with
+ * {@link Builder} whenever alerts are added or removed.</p>
+ */
+public class PriceTriggerIndex {
+
+    public static final PriceTriggerIndex EMPTY = new Builder().build();
+
+    /** Thresholds sorted in ascending order with matchers at the same indices */
+    private static class Thresholds {
+        private final double[] prices;
+        private final TradeMatcher[] matchers;
+
+        Thresholds(List<Threshold> thresholds) {
+            thresholds.sort(Comparator.comparingDouble(threshold -> threshold.price));
+            prices = new double[thresholds.size()];
+            matchers = new TradeMatcher[thresholds.size()];
+            for (int i = 0; i < prices.length; i++) {
+                prices[i] = thresholds.get(i).price;
+                matchers[i] = thresholds.get(i).matcher;
+            }
+        }
+
+        /** @return index of the first threshold that is &gt;= price */
+        int lowerBound(double price) {
+            int from = 0;
+            int to = prices.length;
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (prices[middle] < price) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+
+        /** @return index of the first threshold that is &gt; price */
+        int upperBound(double price) {
+            int from = 0;
+            int to = prices.length;
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (prices[middle] <= price) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+
+        void match(int from, int to, String alias, double realPrice, double realSize) {
+            for (int i = from; i < to; i++) {
+                matchers[i].tryMatch(alias, realPrice, realSize);
+            }
+        }
+    }
+
+    private static class Threshold {
+        final double price;
+        final TradeMatcher matcher;
+
+        Threshold(double price, TradeMatcher matcher) {
+            this.price = price;
+            this.matcher = matcher;
+        }
+    }
+
+    public static class Builder {
+        private final List<Threshold> above = new ArrayList<>();
+        private final List<Threshold> below = new ArrayList<>();
+        private final List<Threshold> equal = new ArrayList<>();
+
+        /**
+         * @param comparisonSymbol one of "&lt;", "=", "&gt;", trade price is on
+         *                         the left side of the comparison
+         * @param realPrice        price to compare trade price with
+         * @param matcher          invoked when the comparison becomes true
+         */
+        public Builder add(String comparisonSymbol, double realPrice, TradeMatcher matcher) {
+            switch (comparisonSymbol) {
+                case "<": below.add(new Threshold(realPrice, matcher)); break;
+                case "=": equal.add(new Threshold(realPrice, matcher)); break;
+                case ">": above.add(new Threshold(realPrice, matcher)); break;
+                default: throw new IllegalArgumentException("Unknown comparison symbol: " + comparisonSymbol);
+            }
+            return this;
+        }
+
+        public PriceTriggerIndex build() {
+            return new PriceTriggerIndex(new Thresholds(above), new Thresholds(below), new Thresholds(equal));
+        }
+    }
+
+    private final Thresholds above;
+    private final Thresholds below;
+    private final Thresholds equal;
+
+    private PriceTriggerIndex(Thresholds above, Thresholds below, Thresholds equal) {
+        this.above = above;
+        this.below = below;
+        this.equal = equal;
+    }
+
+    /**
+     * Invokes {@link TradeMatcher#tryMatch(String, double, double)} for the
+     * alerts whose condition is true for this trade but was false for the
+     * previous one
+     *
+     * @param previousRealPrice price of the previous trade of this instrument,
+     *                          {@link Double#NaN} if there was none
+     */
+    public void match(String alias, double previousRealPrice, double realPrice, double realSize) {
+        boolean hasPrevious = !Double.isNaN(previousRealPrice);
+
+        // previous <= threshold < price
+        if (!hasPrevious || realPrice > previousRealPrice) {
+            int from = hasPrevious ? above.lowerBound(previousRealPrice) : 0;
+            above.match(from, above.lowerBound(realPrice), alias, realPrice, realSize);
+        }
+        // price < threshold <= previous
+        if (!hasPrevious || realPrice < previousRealPrice) {
+            int to = hasPrevious ? below.upperBound(previousRealPrice) : below.prices.length;
+            below.match(below.upperBound(realPrice), to, alias, realPrice, realSize);
+        }
+        if (realPrice != previousRealPrice) {
+            equal.match(equal.lowerBound(realPrice), equal.upperBound(realPrice), alias, realPrice, realSize);
+        }
+    }
+
+    public int size() {
+        return above.prices.length + below.prices.length + equal.prices.length;
+    }
+}
@@ -0,0 +1,48 @@
+package velox.api.layer1.simpledemo.averagepositionprice;
+
+class CurrentState {
+    private final double pips;
+    public double avgPrice = 0;
+    public int positon = 0;
+
+    public CurrentState(double pips) {
+        this.pips = pips;
+    }
+
+    public double getLineY() {
+        return (positon == 0 || Double.isNaN(avgPrice)) ? Double.NaN : (avgPrice / pips);
+    }
+
+    public void onExecution(boolean isBuy, int size, double price) {
+        int positionDelta = size;
+        if (!isBuy) {
+            positionDelta = -positionDelta;
+        }
+
+        if (!isChangeSign(positon, positon + positionDelta)) {
+
+            if (positon >= 0 && isBuy || positon <= 0 && !isBuy) {
+                double oldValue = positon * avgPrice;
+                double addValue = price * positionDelta;
+
+                avgPrice = (oldValue + addValue) / (positon + positionDelta);
+                positon += positionDelta;
+            } else {
+                positon += positionDelta;
+            }
+
+        } else {
+            avgPrice = price;
+            positon += positionDelta;
+        }
+    }
+
+    private static boolean isChangeSign(int a, int b) {
+        return ((a > 0 && b < 0) || (a < 0 && b > 0));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + positon + "@ " + avgPrice + "]";
+    }
+}
@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,6 +32,7 @@ import velox.api.layer1.layers.strategies.interfaces.Layer1IndicatorColorInterfa
 import velox.api.layer1.layers.strategies.interfaces.OnlineCalculatable;
 import velox.api.layer1.layers.strategies.interfaces.OnlineValueCalculatorAdapter;
 import velox.api.layer1.messages.UserMessageLayersChainCreatedTargeted;
+import velox.api.layer1.messages.UserMessageRewindBase;
 import velox.api.layer1.messages.indicators.DataStructureInterface;
 import velox.api.layer1.messages.indicators.IndicatorColorInterface;
 import velox.api.layer1.messages.indicators.IndicatorColorScheme;
@@ -42,6 +42,7 @@ import velox.api.layer1.messages.indicators.Layer1ApiUserMessageModifyIndicator;
 import velox.api.layer1.messages.indicators.SettingsAccess;
 import velox.api.layer1.messages.indicators.ValuesFormatter;
 import velox.api.layer1.settings.Layer1ConfigSettingsInterface;
+import velox.api.layer1.simpledemo.averagepositionprice.PositionCheckpoints.Orders;
 import velox.api.layer1.messages.indicators.DataStructureInterface.StandardEvents;
 import velox.api.layer1.messages.indicators.DataStructureInterface.TreeResponseInterval;
 import velox.api.layer1.messages.indicators.Layer1ApiUserMessageModifyIndicator.GraphType;
@@ -59,25 +60,6 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
     Layer1ConfigSettingsInterface,
     Layer1IndicatorColorInterface {
     
-    private static class CurrentState {
-        private final double pips;
-        public double avgPrice = 0;
-        public int positon = 0;
-        
-        public CurrentState(double pips) {
-            this.pips = pips;
-        }
-        
-        public double getLineY() {
-            return (positon == 0 || Double.isNaN(avgPrice)) ? Double.NaN : (avgPrice / pips);
-        }
-        
-        @Override
-        public String toString() {
-            return "[" + positon + "@ " + avgPrice + "]";
-        }
-    }
-    
     private static final String INDICATOR_NAME = "Average Price";
     private static final String LINE_COLOR_NAME = "Line color";
     private static final Color LINE_COLOR_DEFAULT = Color.BLUE;
@@ -86,8 +68,8 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
     
     private Map<String, Double> pipsMap = new ConcurrentHashMap<>();
     
-    private Map<String, Map<String, Boolean>> aliasToBuyInfo = new ConcurrentHashMap<>();
-    private Map<String, Map<String, String>> aliasToOrderAliasInfo = new ConcurrentHashMap<>();
+    /** Orders of the last range query, used by the online calculator */
+    private Map<String, Orders> aliasToOrders = new ConcurrentHashMap<>();
     
     private DataStructureInterface dataStructureInterface;
     
@@ -97,6 +79,8 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
     
     private Map<String, InvalidateInterface> invalidateInterfaceMap = new ConcurrentHashMap<>();
     
+    private Map<String, PositionCheckpoints<TreeResponseInterval>> aliasToCheckpoints = new ConcurrentHashMap<>();
+    
     private Object locker = new Object();
     
     public Layer1ApiAveragePositionPriceDemo(Layer1ApiProvider provider) {
@@ -113,6 +97,7 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
                 provider.sendUserMessage(new Layer1ApiDataInterfaceRequestMessage(
                     dataStructureInterface -> {
                         this.dataStructureInterface = dataStructureInterface;
+                        aliasToCheckpoints.clear();
                         InvalidateInterface invalidateInterface = invalidateInterfaceMap.get(INDICATOR_NAME);
                         if (invalidateInterface != null) {
                             invalidateInterface.invalidate();
@@ -120,6 +105,13 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
                     }));
                 provider.sendUserMessage(getUserMessageAdd());
             }
+        } else if (data instanceof UserMessageRewindBase) {
+            // Events after the new time are dropped and come again, checkpoints may include them
+            aliasToCheckpoints.clear();
+            InvalidateInterface invalidateInterface = invalidateInterfaceMap.get(INDICATOR_NAME);
+            if (invalidateInterface != null) {
+                invalidateInterface.invalidate();
+            }
         }
     }
     
@@ -127,55 +119,26 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
         return (OrderUpdatesExecutionsAggregationEvent) interval.events.get(StandardEvents.ORDER.toString());
     }
     
-    private void updateState(CurrentState state, ExecutionInfo executionInfo, Map<String, Boolean> orderIdToIsBuy) {
-        Boolean isBuy = orderIdToIsBuy.get(executionInfo.orderId);
+    private void updateState(CurrentState state, ExecutionInfo executionInfo, Orders orders) {
+        Boolean isBuy = orders.isBuy(executionInfo.orderId);
         
         if (isBuy != null && executionInfo.size != 0) {
-            
-            int positionDelta = executionInfo.size;
-            if (!isBuy) {
-                positionDelta = -positionDelta;
-            }
-            
-            if (!isChangeSign(state.positon, state.positon + positionDelta)) {
-                
-                if (state.positon >= 0 && isBuy || state.positon <= 0 && !isBuy) {
-                    double oldValue = state.positon * state.avgPrice;
-                    double addValue = executionInfo.price * positionDelta;
-                    
-                    state.avgPrice = (oldValue + addValue) / (state.positon + positionDelta);
-                    state.positon += positionDelta;
-                } else {
-                    state.positon += positionDelta;
-                }
-                
-                
-            } else {
-                state.avgPrice = executionInfo.price;
-                state.positon += positionDelta;
-            }
-
+            state.onExecution(isBuy, executionInfo.size, executionInfo.price);
         } else {
             Log.warn("Unknown execution's orderId " + executionInfo.orderId);
         }
     }
     
-    private boolean isChangeSign(int a, int b) {
-        return ((a > 0 && b < 0) || (a < 0 && b > 0));
-    }
-    
-    private void updateState(String alias, CurrentState state, OrderUpdatesExecutionsAggregationEvent aggregationEvent, Map<String, Boolean> orderIdToIsBuy,
-            Map<String, String> orderIdToAlias) {
+    private void updateState(String alias, CurrentState state, OrderUpdatesExecutionsAggregationEvent aggregationEvent, Orders orders) {
         for (Object object : aggregationEvent.orderUpdates) {
             if (object instanceof OrderUpdatedEvent) {
                 OrderUpdatedEvent event = (OrderUpdatedEvent) object;
-                orderIdToIsBuy.put(event.orderInfoUpdate.orderId, event.orderInfoUpdate.isBuy);
-                orderIdToAlias.put(event.orderInfoUpdate.orderId, event.orderInfoUpdate.instrumentAlias);
+                orders.put(event.orderInfoUpdate.orderId, event.orderInfoUpdate.isBuy, event.orderInfoUpdate.instrumentAlias);
             } else if (object instanceof OrderExecutedEvent) {
                 OrderExecutedEvent event = (OrderExecutedEvent) object;
-                String orderAlias = orderIdToAlias.get(event.executionInfo.orderId);
+                String orderAlias = orders.getAlias(event.executionInfo.orderId);
                 if (alias.equals(orderAlias)) {
-                    updateState(state, event.executionInfo, orderIdToIsBuy);
+                    updateState(state, event.executionInfo, orders);
                 }
             } else {
                 throw new IllegalArgumentException("Unknown event: " + object);
@@ -237,28 +200,25 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
             return;
         }
         
-        ArrayList<TreeResponseInterval> intervalResponse = dataStructureInterface.get(t0, intervalWidth,
-                intervalsNumber, alias, new StandardEvents[] { StandardEvents.ORDER });
-        
         Double pips = pipsMap.get(alias);
         if (pips == null) {
             throw new IllegalStateException("Unknown pips for alias " + alias);
         }
         
-        Map<String, Boolean> orderIdToIsBuy = new HashMap<>();
-        Map<String, String> orderIdToAlias = new HashMap<>();
+        /*
+         * Instead of replaying everything before t0 (interval 0 of the response),
+         * start from the last checkpoint before t0 and only replay the events
+         * between the checkpoint and t0
+         */
+        PositionCheckpoints<TreeResponseInterval> checkpoints = aliasToCheckpoints.computeIfAbsent(alias,
+                k -> new PositionCheckpoints<>(pips,
+                        (from, width, count) -> dataStructureInterface.get(from, width, count, alias,
+                                new StandardEvents[] { StandardEvents.ORDER }),
+                        (interval, state, orders) -> updateState(alias, state, getOrderEvent(interval), orders)));
+        Orders orders = checkpoints.calculate(t0, intervalWidth, intervalsNumber, provider.getCurrentTime(),
+                state -> listener.provideResponse(state.getLineY()));
         
-        CurrentState state = new CurrentState(pips);
-        updateState(alias, state, getOrderEvent(intervalResponse.get(0)), orderIdToIsBuy, orderIdToAlias);
-        
-        for (int i = 1; i <= intervalsNumber; ++i) {
-            updateState(alias, state, getOrderEvent(intervalResponse.get(i)), orderIdToIsBuy, orderIdToAlias);
-            
-            listener.provideResponse(state.getLineY());
-        }
-        
-        aliasToBuyInfo.put(alias, orderIdToIsBuy);
-        aliasToOrderAliasInfo.put(alias, orderIdToAlias);
+        aliasToOrders.put(alias, orders);
         
         listener.setCompleted();
         
@@ -280,32 +240,22 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
             throw new IllegalStateException("Unknown pips for alias " + alias);
         }
         
-        if (!aliasToBuyInfo.containsKey(alias)) {
-            aliasToBuyInfo.put(alias, new HashMap<>());
-        }
-        
-        if (!aliasToOrderAliasInfo.containsKey(alias)) {
-            aliasToOrderAliasInfo.put(alias, new HashMap<>());
-        }
-        
-        Map<String, Boolean> orderIdToIsBuy = aliasToBuyInfo.get(alias);
-        Map<String, String> orderIdToAlias = aliasToOrderAliasInfo.get(alias);
+        Orders orders = aliasToOrders.computeIfAbsent(alias, k -> new Orders());
         
         CurrentState state = new CurrentState(pips);
-        updateState(alias, state, getOrderEvent(treeResponse), orderIdToIsBuy, orderIdToAlias);
+        updateState(alias, state, getOrderEvent(treeResponse), orders);
         
         return new OnlineValueCalculatorAdapter() {
             @Override
             public void onOrderUpdated(OrderInfoUpdate orderInfoUpdate) {
-                orderIdToIsBuy.put(orderInfoUpdate.orderId, orderInfoUpdate.isBuy);
-                orderIdToAlias.put(orderInfoUpdate.orderId, orderInfoUpdate.instrumentAlias);
+                orders.put(orderInfoUpdate.orderId, orderInfoUpdate.isBuy, orderInfoUpdate.instrumentAlias);
             }
             
             @Override
             public void onOrderExecuted(ExecutionInfo executionInfo) {
-                String orderAlias = orderIdToAlias.get(executionInfo.orderId);
+                String orderAlias = orders.getAlias(executionInfo.orderId);
                 if (alias.equals(orderAlias)) {
-                    updateState(state, executionInfo, orderIdToIsBuy);
+                    updateState(state, executionInfo, orders);
                     listener.accept(state.getLineY());
                 }
             }
@@ -318,7 +268,10 @@ public class Layer1ApiAveragePositionPriceDemo implements Layer1ApiFinishable,
     }
 
     @Override
-    public void onInstrumentRemoved(String alias) {}
+    public void onInstrumentRemoved(String alias) {
+        aliasToCheckpoints.remove(alias);
+        aliasToOrders.remove(alias);
+    }
     
     @Override
     public void onInstrumentNotFound(String symbol, String exchange, String type) {}
@@ -0,0 +1,247 @@
+package velox.api.layer1.simpledemo.averagepositionprice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Position of one alias at fixed time intervals, so that a range query
+ * replays the events after the last checkpoint before it instead of all
+ * events from the start.
+ * <p>
+ * Checkpoints don't copy the known orders. Every order id is stored once, in
+ * a map shared by all checkpoints, together with the time of the first
+ * checkpoint that knows it; a checkpoint sees the orders known at its time,
+ * and a replay from it keeps only the orders it updates itself. So memory is
+ * proportional to the number of orders rather than to orders times
+ * checkpoints, and a query costs the events it replays.
+ *
+ * @param <E> events of an interval, applied with {@link EventsApplier}
+ */
+class PositionCheckpoints<E> {
+
+    static final long CHECKPOINT_INTERVAL = TimeUnit.MINUTES.toNanos(5);
+
+    interface EventsSource<E> {
+        /**
+         * Same layout as DataStructureInterface.get: element 0 has the events
+         * before t0 and element i the events of interval i
+         */
+        List<E> get(long t0, long intervalWidth, int intervalsNumber);
+    }
+
+    interface EventsApplier<E> {
+        void apply(E events, CurrentState state, Orders orders);
+    }
+
+    /** Direction and alias of an order as of {@link #knownFrom} */
+    private static class KnownOrder {
+        final boolean isBuy;
+        final String alias;
+        final long knownFrom;
+        /** Values before knownFrom if an update changed them */
+        final KnownOrder previous;
+
+        KnownOrder(boolean isBuy, String alias, long knownFrom, KnownOrder previous) {
+            this.isBuy = isBuy;
+            this.alias = alias;
+            this.knownFrom = knownFrom;
+            this.previous = previous;
+        }
+    }
+
+    /** Orders seen by a replay: known at the checkpoint it started from, then updated by the replay */
+    static class Orders {
+        private final Map<String, KnownOrder> known;
+        private final long knownTime;
+        private final Map<String, KnownOrder> updated = new HashMap<>();
+
+        Orders() {
+            this(null, Long.MIN_VALUE);
+        }
+
+        private Orders(Map<String, KnownOrder> known, long knownTime) {
+            this.known = known;
+            this.knownTime = knownTime;
+        }
+
+        /** @return null if the order is unknown */
+        public Boolean isBuy(String orderId) {
+            KnownOrder order = get(orderId);
+            return order == null ? null : order.isBuy;
+        }
+
+        /** @return null if the order is unknown */
+        public String getAlias(String orderId) {
+            KnownOrder order = get(orderId);
+            return order == null ? null : order.alias;
+        }
+
+        public void put(String orderId, boolean isBuy, String alias) {
+            KnownOrder order = updated.get(orderId);
+            if (order == null || order.isBuy != isBuy || !Objects.equals(order.alias, alias)) {
+                updated.put(orderId, new KnownOrder(isBuy, alias, knownTime, null));
+            }
+        }
+
+        KnownOrder get(String orderId) {
+            KnownOrder order = updated.get(orderId);
+            if (order == null && known != null) {
+                order = known.get(orderId);
+                while (order != null && order.knownFrom > knownTime) {
+                    order = order.previous;
+                }
+            }
+            return order;
+        }
+    }
+
+    /** Adds the orders updated while checkpoints are created to the shared map */
+    private static class RecordingOrders extends Orders {
+        private final Map<String, KnownOrder> known;
+        /** Time of the checkpoint being created */
+        long time;
+
+        RecordingOrders(Map<String, KnownOrder> known) {
+            this.known = known;
+        }
+
+        @Override
+        public void put(String orderId, boolean isBuy, String alias) {
+            KnownOrder order = known.get(orderId);
+            if (order == null || order.isBuy != isBuy || !Objects.equals(order.alias, alias)) {
+                known.put(orderId, new KnownOrder(isBuy, alias, time, order));
+            }
+        }
+
+        @Override
+        KnownOrder get(String orderId) {
+            return known.get(orderId);
+        }
+    }
+
+    /** State after all events before {@link #time} */
+    private static class Checkpoint {
+        final long time;
+        final double avgPrice;
+        final int positon;
+        /** Orders of all checkpoints created together with this one */
+        final Map<String, KnownOrder> known;
+
+        Checkpoint(long time, CurrentState state, Map<String, KnownOrder> known) {
+            this.time = time;
+            this.avgPrice = state.avgPrice;
+            this.positon = state.positon;
+            this.known = known;
+        }
+
+        CurrentState getState(double pips) {
+            CurrentState state = new CurrentState(pips);
+            state.avgPrice = avgPrice;
+            state.positon = positon;
+            return state;
+        }
+    }
+
+    private final double pips;
+    private final EventsSource<E> source;
+    private final EventsApplier<E> applier;
+
+    /** Checkpoint i is at time of checkpoint 0 + i * CHECKPOINT_INTERVAL */
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private RecordingOrders recordingOrders;
+
+    PositionCheckpoints(double pips, EventsSource<E> source, EventsApplier<E> applier) {
+        this.pips = pips;
+        this.source = source;
+        this.applier = applier;
+    }
+
+    /**
+     * Replays the events of intervalsNumber intervals from t0, passing the
+     * state after each interval to the listener
+     *
+     * @param currentTime checkpoints are only created at least an interval
+     *            before it, later events can still be added to the source
+     * @return orders as of the end of the last interval
+     */
+    public Orders calculate(long t0, long intervalWidth, int intervalsNumber, long currentTime,
+            Consumer<CurrentState> listener) {
+        Checkpoint checkpoint = getCheckpoint(Math.min(t0, currentTime - CHECKPOINT_INTERVAL));
+
+        Orders orders = new Orders(checkpoint.known, checkpoint.time);
+        CurrentState state = checkpoint.getState(pips);
+        if (checkpoint.time < t0) {
+            List<E> gapResponse = source.get(checkpoint.time, t0 - checkpoint.time, 1);
+            applier.apply(gapResponse.get(1), state, orders);
+        }
+
+        List<E> intervalResponse = source.get(t0, intervalWidth, intervalsNumber);
+        for (int i = 1; i <= intervalsNumber; ++i) {
+            applier.apply(intervalResponse.get(i), state, orders);
+            listener.accept(state);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns the last checkpoint at or before t, creating checkpoints up to
+     * it if needed. When t is before the first checkpoint, checkpoints are
+     * rebuilt from a point at least twice as far back, so scrolling back
+     * through history rebuilds them only a logarithmic number of times.
+     */
+    private synchronized Checkpoint getCheckpoint(long t) {
+        long time = floorToCheckpoint(t);
+
+        if (checkpoints.isEmpty()) {
+            addCheckpoints(time, time);
+        } else {
+            long firstTime = checkpoints.get(0).time;
+            long lastTime = checkpoints.get(checkpoints.size() - 1).time;
+            if (time < firstTime) {
+                checkpoints.clear();
+                addCheckpoints(floorToCheckpoint(Math.min(time, 2 * firstTime - lastTime)), lastTime);
+            } else if (time > lastTime) {
+                addCheckpoints(lastTime, time);
+            }
+        }
+
+        return checkpoints.get((int) ((time - checkpoints.get(0).time) / CHECKPOINT_INTERVAL));
+    }
+
+    /**
+     * Appends checkpoints for times in (from, to], if the list is empty also
+     * adds the checkpoint at from
+     */
+    private void addCheckpoints(long from, long to) {
+        int count = (int) ((to - from) / CHECKPOINT_INTERVAL);
+        List<E> response = source.get(from, CHECKPOINT_INTERVAL, Math.max(count, 1));
+
+        CurrentState state;
+        if (checkpoints.isEmpty()) {
+            // Rebuilt checkpoints start over, queries in progress keep the old orders
+            recordingOrders = new RecordingOrders(new ConcurrentHashMap<>());
+            recordingOrders.time = from;
+            state = new CurrentState(pips);
+            applier.apply(response.get(0), state, recordingOrders);
+            checkpoints.add(new Checkpoint(from, state, recordingOrders.known));
+        } else {
+            state = checkpoints.get(checkpoints.size() - 1).getState(pips);
+        }
+
+        for (int i = 1; i <= count; ++i) {
+            recordingOrders.time = from + i * CHECKPOINT_INTERVAL;
+            applier.apply(response.get(i), state, recordingOrders);
+            checkpoints.add(new Checkpoint(recordingOrders.time, state, recordingOrders.known));
+        }
+    }
+
+    private static long floorToCheckpoint(long time) {
+        return Math.floorDiv(time, CHECKPOINT_INTERVAL) * CHECKPOINT_INTERVAL;
+    }
+}
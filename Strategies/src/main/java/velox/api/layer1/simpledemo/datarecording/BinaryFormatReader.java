@@ -0,0 +1,168 @@
+package velox.api.layer1.simpledemo.datarecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads files written by {@link BinaryFormatRecorder}. Segments are read in
+ * order until the first missing one; times, instruments and prices are
+ * deltas, so they are carried over from one segment to the next.
+ */
+public class BinaryFormatReader {
+
+    public interface Listener {
+        default void onFeedSource(long time, String dataSource) {
+        }
+
+        default void onContractDetails(long time, int id, String exchange, String symbol, String type, double pips,
+                double multiplier) {
+        }
+
+        default void onTrade(long time, int id, double price, int size, int aggressor, int otcCode) {
+        }
+
+        default void onDepth(long time, int id, boolean isBid, double price, int size) {
+        }
+
+        default void onOrderData(long time, String data) {
+        }
+    }
+
+    private final File directory;
+    private final String prefix;
+
+    private long time;
+    private double[] instrumentPips;
+    private int[] instrumentIds;
+    private long[] instrumentTicks;
+    private int instrumentsCount;
+
+    public BinaryFormatReader(File directory, String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+    }
+
+    public void read(Listener listener) throws IOException {
+        time = 0;
+        instrumentPips = new double[16];
+        instrumentIds = new int[16];
+        instrumentTicks = new long[16];
+        instrumentsCount = 0;
+        for (int i = 0;; i++) {
+            File file = MappedSegmentWriter.getSegmentFile(directory, prefix, i);
+            if (!file.exists()) {
+                break;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                readSegment(buffer, listener);
+            }
+        }
+    }
+
+    private void readSegment(MappedByteBuffer buffer, Listener listener) {
+        while (buffer.hasRemaining()) {
+            char tag = (char) buffer.get();
+            if (tag == 0) {
+                // zero-filled tail of a segment that was not truncated
+                break;
+            }
+            time += getVarLong(buffer);
+
+            switch (tag) {
+            case SpecificFormatTags.ON_TRADE: {
+                int index = (int) getVarLong(buffer) - 1;
+                int id = getId(buffer, index);
+                double price = getPrice(buffer, index);
+                int size = (int) getVarLong(buffer);
+                int aggressor = (int) getVarLong(buffer);
+                int otcCode = (int) getVarLong(buffer);
+                listener.onTrade(time, id, price, size, aggressor, otcCode);
+                break;
+            }
+            case SpecificFormatTags.ON_BOOK_UPDATE: {
+                long reference = getVarLong(buffer);
+                int index = (int) (reference >> 1) - 1;
+                int id = getId(buffer, index);
+                double price = getPrice(buffer, index);
+                int size = (int) getVarLong(buffer);
+                listener.onDepth(time, id, (reference & 1) == SpecificFormatTags.BID_SIDE, price, size);
+                break;
+            }
+            case SpecificFormatTags.ON_FEED_SOURCE:
+                listener.onFeedSource(time, getText(buffer));
+                break;
+            case SpecificFormatTags.ON_ORDER_DATA:
+                listener.onOrderData(time, getText(buffer));
+                break;
+            case SpecificFormatTags.ON_CONTRACT_DETAILS: {
+                int id = (int) getVarLong(buffer);
+                double pips = buffer.getDouble();
+                double multiplier = buffer.getDouble();
+                String exchange = getText(buffer);
+                String symbol = getText(buffer);
+                String type = getText(buffer);
+                addInstrument(id, pips);
+                listener.onContractDetails(time, id, exchange, symbol, type, pips, multiplier);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown record tag: " + (int) tag);
+            }
+        }
+    }
+
+    private void addInstrument(int id, double pips) {
+        if (instrumentsCount == instrumentIds.length) {
+            instrumentPips = Arrays.copyOf(instrumentPips, 2 * instrumentsCount);
+            instrumentIds = Arrays.copyOf(instrumentIds, 2 * instrumentsCount);
+            instrumentTicks = Arrays.copyOf(instrumentTicks, 2 * instrumentsCount);
+        }
+        instrumentPips[instrumentsCount] = pips;
+        instrumentIds[instrumentsCount] = id;
+        instrumentTicks[instrumentsCount] = 0;
+        instrumentsCount++;
+    }
+
+    private int getId(ByteBuffer buffer, int index) {
+        return index < 0 ? (int) getVarLong(buffer) : instrumentIds[index];
+    }
+
+    private double getPrice(ByteBuffer buffer, int index) {
+        long value = getVarLong(buffer);
+        if ((value & 1) != 0) {
+            return buffer.getDouble();
+        }
+        long ticks = instrumentTicks[index] + (value >> 1);
+        instrumentTicks[index] = ticks;
+        return ticks * instrumentPips[index];
+    }
+
+    private static String getText(ByteBuffer buffer) {
+        byte[] bytes = new byte[(int) getVarLong(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Reads a value written by {@link BinaryFormatRecorder#putVarLong(ByteBuffer, long)} */
+    static long getVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
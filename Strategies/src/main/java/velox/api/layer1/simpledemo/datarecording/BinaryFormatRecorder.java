@@ -0,0 +1,213 @@
+package velox.api.layer1.simpledemo.datarecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.simpledemo.datarecording.MappedSegmentWriter.FsyncPolicy;
+
+/**
+ * Compact binary counterpart of {@link SpecificFormatRecorder}. Every record
+ * starts with its {@link SpecificFormatTags} code and the time in milliseconds
+ * since the previous record of the file (since the epoch for the first one),
+ * followed by:
+ *
+ * <pre>
+ * T  instrument, price, size, aggressor, otc code
+ * r  instrument with side, price, size
+ * c  instrument id, pips (double), multiplier (double), exchange, symbol, type
+ * f  data source
+ * o  order data
+ * </pre>
+ *
+ * Integers are zigzag varints (LEB128), so small values of either sign take a
+ * byte. An instrument is the number of its contract details record in the
+ * file plus one, or 0 followed by the id if there was none; depth records
+ * shift it left by one and put the side (1 bid, 0 ask) into the lowest bit.
+ * A price is the change in ticks from the previous price of the instrument
+ * shifted left by one, or 1 followed by the double if it is not a whole
+ * number of ticks. Texts are a length and UTF-8 bytes. A typical depth or
+ * trade record takes 5-8 bytes against 35-45 bytes of a text line.
+ * <p>
+ * Records are written to memory-mapped segments with
+ * {@link MappedSegmentWriter} and can be read back with
+ * {@link BinaryFormatReader}. Methods are synchronized so that close can't
+ * unmap a segment while a record is being written.
+ */
+public class BinaryFormatRecorder implements FeedFormatRecorder {
+
+    /** Upper bound of a trade or depth record */
+    private static final int MAX_MARKET_RECORD_SIZE = 64;
+    static final int MAX_VARINT_SIZE = 10;
+
+    private final MappedSegmentWriter depthWriter;
+    private final MappedSegmentWriter ordersWriter;
+
+    private long depthTime = 0;
+    private long ordersTime = 0;
+    private final Map<Integer, Integer> instrumentIndexes = new HashMap<>();
+    private double[] instrumentPips = new double[16];
+    private long[] instrumentTicks = new long[16];
+    private int instrumentsCount = 0;
+    /** Last instrument looked up, most feeds are dominated by one */
+    private int lastId;
+    private int lastIndex = -1;
+
+    public BinaryFormatRecorder(long time, File directory, String depthPrefix, String ordersPrefix,
+            String dataSource) throws IOException {
+        this(time, directory, depthPrefix, ordersPrefix, dataSource, MappedSegmentWriter.DEFAULT_SEGMENT_SIZE,
+                FsyncPolicy.ON_ROLL, 0);
+    }
+
+    public BinaryFormatRecorder(long time, File directory, String depthPrefix, String ordersPrefix,
+            String dataSource, int segmentSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMs) throws IOException {
+        depthWriter = new MappedSegmentWriter(directory, depthPrefix, segmentSize, fsyncPolicy, fsyncIntervalMs);
+        ordersWriter = new MappedSegmentWriter(directory, ordersPrefix, segmentSize, fsyncPolicy, fsyncIntervalMs);
+
+        byte[] payload = dataSource.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = depthWriter.claim(2 * MAX_VARINT_SIZE + 1 + payload.length);
+        buffer.put((byte) SpecificFormatTags.ON_FEED_SOURCE);
+        putVarLong(buffer, time);
+        putText(buffer, payload);
+        depthTime = time;
+        depthWriter.commit(time);
+    }
+
+    @Override
+    public synchronized void onTrade(int id, double price, int size, int aggressor, int otcCode) throws IOException {
+        long time = System.currentTimeMillis();
+        ByteBuffer buffer = depthWriter.claim(MAX_MARKET_RECORD_SIZE);
+        buffer.put((byte) SpecificFormatTags.ON_TRADE);
+        putVarLong(buffer, time - depthTime);
+        int index = putInstrument(buffer, id, -1);
+        putPrice(buffer, index, price);
+        putVarLong(buffer, size);
+        putVarLong(buffer, aggressor);
+        putVarLong(buffer, otcCode);
+        depthTime = time;
+        depthWriter.commit(time);
+    }
+
+    @Override
+    public synchronized void onDepth(int id, boolean isBid, double price, int size) throws IOException {
+        long time = System.currentTimeMillis();
+        ByteBuffer buffer = depthWriter.claim(MAX_MARKET_RECORD_SIZE);
+        buffer.put((byte) SpecificFormatTags.ON_BOOK_UPDATE);
+        putVarLong(buffer, time - depthTime);
+        int index = putInstrument(buffer, id, isBid ? SpecificFormatTags.BID_SIDE : SpecificFormatTags.ASK_SIDE);
+        putPrice(buffer, index, price);
+        putVarLong(buffer, size);
+        depthTime = time;
+        depthWriter.commit(time);
+    }
+
+    @Override
+    public synchronized void onInstrumentAdded(int id, InstrumentInfo instrumentInfo) throws IOException {
+        long time = System.currentTimeMillis();
+        byte[] exchange = instrumentInfo.exchange.getBytes(StandardCharsets.UTF_8);
+        byte[] symbol = instrumentInfo.symbol.getBytes(StandardCharsets.UTF_8);
+        byte[] type = instrumentInfo.type.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = depthWriter.claim(5 * MAX_VARINT_SIZE + 2 * Double.BYTES + 1
+                + exchange.length + symbol.length + type.length);
+        buffer.put((byte) SpecificFormatTags.ON_CONTRACT_DETAILS);
+        putVarLong(buffer, time - depthTime);
+        putVarLong(buffer, id);
+        buffer.putDouble(instrumentInfo.pips);
+        buffer.putDouble(instrumentInfo.multiplier);
+        putText(buffer, exchange);
+        putText(buffer, symbol);
+        putText(buffer, type);
+        depthTime = time;
+        depthWriter.commit(time);
+
+        if (instrumentsCount == instrumentPips.length) {
+            instrumentPips = Arrays.copyOf(instrumentPips, 2 * instrumentsCount);
+            instrumentTicks = Arrays.copyOf(instrumentTicks, 2 * instrumentsCount);
+        }
+        instrumentPips[instrumentsCount] = instrumentInfo.pips;
+        instrumentTicks[instrumentsCount] = 0;
+        instrumentIndexes.put(id, instrumentsCount);
+        instrumentsCount++;
+        lastIndex = -1;
+    }
+
+    @Override
+    public synchronized void onOrderData(String data) throws IOException {
+        long time = System.currentTimeMillis();
+        byte[] payload = data.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ordersWriter.claim(2 * MAX_VARINT_SIZE + 1 + payload.length);
+        buffer.put((byte) SpecificFormatTags.ON_ORDER_DATA);
+        putVarLong(buffer, time - ordersTime);
+        putText(buffer, payload);
+        ordersTime = time;
+        ordersWriter.commit(time);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            depthWriter.close();
+        } finally {
+            ordersWriter.close();
+        }
+    }
+
+    /**
+     * @param side side bit for depth records, -1 for none
+     * @return instrument index, -1 if the instrument was not added
+     */
+    private int putInstrument(ByteBuffer buffer, int id, int side) {
+        int index;
+        if (lastIndex >= 0 && id == lastId) {
+            index = lastIndex;
+        } else {
+            Integer found = instrumentIndexes.get(id);
+            index = found == null ? -1 : found;
+            if (index >= 0) {
+                lastId = id;
+                lastIndex = index;
+            }
+        }
+        long reference = index + 1;
+        putVarLong(buffer, side < 0 ? reference : (reference << 1) | side);
+        if (index < 0) {
+            putVarLong(buffer, id);
+        }
+        return index;
+    }
+
+    private void putPrice(ByteBuffer buffer, int index, double price) {
+        if (index >= 0) {
+            double pips = instrumentPips[index];
+            long ticks = Math.round(price / pips);
+            if (ticks * pips == price) {
+                putVarLong(buffer, (ticks - instrumentTicks[index]) << 1);
+                instrumentTicks[index] = ticks;
+                return;
+            }
+        }
+        putVarLong(buffer, 1);
+        buffer.putDouble(price);
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] text) {
+        putVarLong(buffer, text.length);
+        buffer.put(text);
+    }
+
+    /** Zigzag LEB128 */
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+}
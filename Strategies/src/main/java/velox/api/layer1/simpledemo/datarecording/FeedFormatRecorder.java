@@ -0,0 +1,21 @@
+package velox.api.layer1.simpledemo.datarecording;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import velox.api.layer1.data.InstrumentInfo;
+
+/**
+ * Common interface of the text and binary recorders used by
+ * {@link FeedRecorder}
+ */
+public interface FeedFormatRecorder extends Closeable {
+
+    void onTrade(int id, double price, int size, int aggressor, int otcCode) throws IOException;
+
+    void onDepth(int id, boolean isBid, double price, int size) throws IOException;
+
+    void onInstrumentAdded(int id, InstrumentInfo instrumentInfo) throws IOException;
+
+    void onOrderData(String data) throws IOException;
+}
@@ -18,16 +18,24 @@ import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1Attachable;
 import velox.api.layer1.annotations.Layer1StrategyName;
 import velox.api.layer1.common.ListenableHelper;
+import velox.api.layer1.common.Log;
 import velox.api.layer1.data.ExecutionInfo;
 import velox.api.layer1.data.InstrumentInfo;
 import velox.api.layer1.data.OrderInfoUpdate;
 import velox.api.layer1.data.TradeInfo;
+import velox.api.layer1.simpledemo.datarecording.MappedSegmentWriter.FsyncPolicy;
 import velox.gui.StrategyPanel;
 
 /**
  * Simple demo for recording feed. It takes all data passing through the
  * strategy and writes it to text file in working
  * directory("C:\Bookmap\Config").
+ * Start Bookmap with -DFeedRecorder.binary=true to record into memory-mapped
+ * binary files instead (see {@link BinaryFormatRecorder}).
+ * -DFeedRecorder.fsyncPolicy selects when binary segments are forced to disk:
+ * NEVER, ON_ROLL (default) or PERIODIC, the last one also every
+ * -DFeedRecorder.fsyncIntervalMs milliseconds (default 1000), see
+ * {@link FsyncPolicy}.
  * In replay mode you should not use rewind functionality with this strategy.
  */
 
@@ -37,17 +45,33 @@ import velox.gui.StrategyPanel;
 public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdapter, Layer1ApiFinishable,
         Layer1ApiInstrumentAdapter, Layer1ApiTradingAdapter {
 
-    private SpecificFormatRecorder recorder;
+    private static final boolean USE_BINARY_FORMAT = Boolean.getBoolean("FeedRecorder.binary");
+    private static final long FSYNC_INTERVAL_MS = Long.getLong("FeedRecorder.fsyncIntervalMs", 1000);
+
+    private final Layer1ApiProvider provider;
+
+    private FeedFormatRecorder recorder;
     private Map<String, InstrumentInfo> instruments = new TreeMap<>();
     private Map<String, Integer> instrumentIds = new TreeMap<>();
     private JCheckBox recordTrades = new JCheckBox("Record trades", true);
     private JCheckBox recordOrders = new JCheckBox("Record orders", true);
+    /** Set on finish, events that were already on their way are dropped */
+    private volatile boolean isFinished = false;
 
     public FeedRecorder(Layer1ApiProvider provider) throws IOException {
-        File depthRecordsFile = new File(System.getProperty("user.dir"), "FeedRecorder_demo_depth-" + System.currentTimeMillis() + ".txt");
-        File ordersRecordsFile = new File(System.getProperty("user.dir"), "FeedRecorder_demo_orders-"  + System.currentTimeMillis() + ".txt");
-        recorder = new SpecificFormatRecorder(System.currentTimeMillis(), depthRecordsFile, ordersRecordsFile,
-                provider.getSource());
+        this.provider = provider;
+        if (USE_BINARY_FORMAT) {
+            File directory = new File(System.getProperty("user.dir"));
+            recorder = new BinaryFormatRecorder(System.currentTimeMillis(), directory,
+                    "FeedRecorder_demo_depth-" + System.currentTimeMillis(),
+                    "FeedRecorder_demo_orders-" + System.currentTimeMillis(), provider.getSource(),
+                    MappedSegmentWriter.DEFAULT_SEGMENT_SIZE, getFsyncPolicy(), FSYNC_INTERVAL_MS);
+        } else {
+            File depthRecordsFile = new File(System.getProperty("user.dir"), "FeedRecorder_demo_depth-" + System.currentTimeMillis() + ".txt");
+            File ordersRecordsFile = new File(System.getProperty("user.dir"), "FeedRecorder_demo_orders-"  + System.currentTimeMillis() + ".txt");
+            recorder = new SpecificFormatRecorder(System.currentTimeMillis(), depthRecordsFile, ordersRecordsFile,
+                    provider.getSource());
+        }
         // register listener to get data
         ListenableHelper.addListeners(provider, this);
     }
@@ -62,7 +86,7 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
 
     @Override
     public void onTrade(String alias, double price, int size, TradeInfo tradeInfo) {
-        if (recordTrades.isEnabled()) {
+        if (recordTrades.isEnabled() && !isFinished) {
             try {
                 recorder.onTrade(instrumentIds.get(alias), instruments.get(alias).pips * price, size,
                         tradeInfo.isBidAggressor ? 1 : -1, 0);
@@ -74,6 +98,9 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
 
     @Override
     public void onDepth(String alias, boolean isBid, int price, int size) {
+        if (isFinished) {
+            return;
+        }
         try {
             recorder.onDepth(instrumentIds.get(alias), isBid, instruments.get(alias).pips * price, size);
         } catch (IOException e) {
@@ -83,11 +110,20 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
 
     @Override
     public void finish() {
-        // We could close recorder here if it would be something more complex
+        isFinished = true;
+        ListenableHelper.removeListeners(provider, this);
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            throwRuntimeException(e);
+        }
     }
 
     @Override
     public void onInstrumentAdded(String alias, InstrumentInfo instrumentInfo) {
+        if (isFinished) {
+            return;
+        }
         instruments.put(alias, instrumentInfo);
         int id = (int) (Math.random() * Integer.MAX_VALUE);
         instrumentIds.put(alias, id);
@@ -98,6 +134,16 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
         }
     }
 
+    private static FsyncPolicy getFsyncPolicy() {
+        String name = System.getProperty("FeedRecorder.fsyncPolicy", FsyncPolicy.ON_ROLL.name());
+        try {
+            return FsyncPolicy.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.warn("FeedRecorder: unknown fsync policy " + name + ", using " + FsyncPolicy.ON_ROLL);
+            return FsyncPolicy.ON_ROLL;
+        }
+    }
+
     private void throwRuntimeException(Throwable e) {
         throw new RuntimeException(e);
     }
@@ -110,7 +156,7 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
 
     @Override
     public void onOrderUpdated(OrderInfoUpdate orderInfoUpdate) {
-        if (recordOrders.isEnabled()) {
+        if (recordOrders.isEnabled() && !isFinished) {
             try {
                 recorder.onOrderData(orderInfoUpdate.toString());
             } catch (IOException e) {
@@ -121,7 +167,7 @@ public class FeedRecorder implements Layer1CustomPanelsGetter, Layer1ApiDataAdap
 
     @Override
     public void onOrderExecuted(ExecutionInfo executionInfo) {
-        if (recordOrders.isEnabled()) {
+        if (recordOrders.isEnabled() && !isFinished) {
             try {
                 recorder.onOrderData(executionInfo.toString());
             } catch (IOException e) {
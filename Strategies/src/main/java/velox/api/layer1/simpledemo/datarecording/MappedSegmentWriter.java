@@ -0,0 +1,144 @@
+package velox.api.layer1.simpledemo.datarecording;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import velox.api.layer1.common.Log;
+
+/**
+ * Appends records to a sequence of memory-mapped files ("prefix-00000.bin",
+ * "prefix-00001.bin", ...) of up to segment size bytes. Writing a record is a
+ * plain memory copy, the OS writes pages to disk in background. A record never
+ * spans two segments: if it does not fit into the rest of current segment,
+ * next segment is started. A segment is truncated to its written length when
+ * the next one is started and on close; if truncation fails, the unused tail
+ * stays zero-filled, which readers treat as the end of data.
+ */
+public class MappedSegmentWriter implements Closeable {
+
+    public enum FsyncPolicy {
+        /** Let the OS decide when to write pages */
+        NEVER,
+        /** Force a segment to disk when it is complete and on close */
+        ON_ROLL,
+        /** Same as ON_ROLL plus forcing current segment every fsync interval */
+        PERIODIC
+    }
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final File directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMs;
+
+    private int segmentIndex = -1;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long lastFsyncTime;
+    private boolean isClosed = false;
+
+    public MappedSegmentWriter(File directory, String prefix, int segmentSize, FsyncPolicy fsyncPolicy,
+            long fsyncIntervalMs) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    public static File getSegmentFile(File directory, String prefix, int segmentIndex) {
+        return new File(directory, String.format("%s-%05d.bin", prefix, segmentIndex));
+    }
+
+    /**
+     * Returns buffer with at least given number of bytes remaining. Caller is
+     * expected to put at most that number of bytes and then call
+     * {@link #commit(long)}.
+     */
+    public ByteBuffer claim(int length) throws IOException {
+        if (isClosed) {
+            throw new IOException("Writer is closed");
+        }
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit into a segment");
+        }
+        if (buffer == null || buffer.remaining() < length) {
+            roll();
+        }
+        return buffer;
+    }
+
+    public void commit(long time) {
+        if (fsyncPolicy == FsyncPolicy.PERIODIC && buffer != null && time - lastFsyncTime >= fsyncIntervalMs) {
+            buffer.force();
+            lastFsyncTime = time;
+        }
+    }
+
+    private void roll() throws IOException {
+        finishSegment();
+        segmentIndex++;
+        File file = getSegmentFile(directory, prefix, segmentIndex);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Forces current segment if needed and truncates it to the written length
+     */
+    private void finishSegment() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            buffer.force();
+        }
+        int length = buffer.position();
+        MappedByteBuffer mapped = buffer;
+        buffer = null;
+        // Windows does not allow truncating a file while it is mapped
+        unmap(mapped);
+        try {
+            channel.truncate(length);
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            Log.warn("Could not truncate " + getSegmentFile(directory, prefix, segmentIndex) + ": " + e);
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Mapping is released by GC then
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isClosed) {
+            isClosed = true;
+            finishSegment();
+        }
+    }
+}
@@ -11,4 +11,7 @@ public class SpecificFormatTags {
     public static final char ON_TRADE = 'T';
 
     public static final char ON_BOOK_UPDATE = 'r';
+
+    /** Only used by binary format, text format writes order data as is */
+    public static final char ON_ORDER_DATA = 'o';
 }
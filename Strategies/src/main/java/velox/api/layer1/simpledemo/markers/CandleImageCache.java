@@ -0,0 +1,101 @@
+package velox.api.layer1.simpledemo.markers;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Candle images by their pixel geometry, least recently used ones are evicted
+ * when the total number of cached pixels exceeds the limit. Images are never
+ * modified after rendering, so the same image can be shared by any number of
+ * markers. Rendering happens outside of the lock, two threads asking for the
+ * same missing image may both render it.
+ */
+class CandleImageCache {
+
+    private static final int WIDTH_BITS = 6;
+    private static final int SIZE_BITS = 19;
+
+    private final long maxPixels;
+    private final LinkedHashMap<Long, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long pixels = 0;
+
+    /**
+     * @param maxPixels limit of width * height summed over cached images, 4
+     *                  bytes each. 0 disables caching.
+     */
+    CandleImageCache(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * @param bodyTop distance from the top of the image (high) to the top of
+     *                the body
+     */
+    BufferedImage get(int width, int height, int bodyTop, int bodyHeight, boolean isRising) {
+        if (width >= 1 << WIDTH_BITS || height >= 1 << SIZE_BITS || bodyTop >= 1 << SIZE_BITS
+                || bodyHeight >= 1 << SIZE_BITS || width < 0 || bodyTop < 0 || bodyHeight < 0) {
+            // Does not fit into the key, not something worth caching anyway
+            return render(width, height, bodyTop, bodyHeight, isRising);
+        }
+        Long key = ((long) width << (3 * SIZE_BITS + 1))
+                | ((long) height << (2 * SIZE_BITS + 1))
+                | ((long) bodyTop << (SIZE_BITS + 1))
+                | ((long) bodyHeight << 1)
+                | (isRising ? 1 : 0);
+        synchronized (images) {
+            BufferedImage image = images.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        BufferedImage image = render(width, height, bodyTop, bodyHeight, isRising);
+        long imagePixels = (long) width * height;
+        if (imagePixels <= maxPixels) {
+            synchronized (images) {
+                if (images.put(key, image) == null) {
+                    pixels += imagePixels;
+                }
+                Iterator<BufferedImage> iterator = images.values().iterator();
+                while (pixels > maxPixels) {
+                    BufferedImage eldest = iterator.next();
+                    pixels -= (long) eldest.getWidth() * eldest.getHeight();
+                    iterator.remove();
+                }
+            }
+        }
+        return image;
+    }
+
+    static BufferedImage render(int width, int height, int bodyTop, int bodyHeight, boolean isRising) {
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int imageCenterX = bufferedImage.getWidth() / 2;
+
+        Graphics2D graphics = bufferedImage.createGraphics();
+        // Clear background
+        graphics.setBackground(new Color(0, 0, 0, 0));
+        graphics.clearRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
+
+        /*
+         * Draw "shadow", also known as "wick". Here we'll take advantage of the fact
+         * we'll later draw a non-transparent body over it. If body would be
+         * semi-transparent you'd have to take that into account and leave (or make) a
+         * gap in the shadow.
+         */
+        graphics.setColor(Color.WHITE);
+        graphics.drawLine(imageCenterX, 0, imageCenterX, height);
+
+        /*
+         * Draw body. Keep in mind that BufferedImage coordinate system starts from the
+         * left top corner and Y axis points downwards
+         */
+        graphics.setColor(isRising ? Color.GREEN : Color.RED);
+        graphics.fillRect(0, bodyTop, width, bodyHeight);
+
+        graphics.dispose();
+        return bufferedImage;
+    }
+}
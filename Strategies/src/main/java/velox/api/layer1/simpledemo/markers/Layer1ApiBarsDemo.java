@@ -2,7 +2,6 @@ package velox.api.layer1.simpledemo.markers;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,8 +58,11 @@ public class Layer1ApiBarsDemo implements
     Layer1ApiInstrumentListener,
     OnlineCalculatable {
  
-    private static class BarEvent implements CustomGeneratedEvent, DataCoordinateMarker {
+    static class BarEvent implements CustomGeneratedEvent, DataCoordinateMarker {
         private static final long serialVersionUID = 1L;
+        /** About 32MB of 30 pixels wide candles */
+        private static final CandleImageCache CANDLE_IMAGES = new CandleImageCache(8 * 1024 * 1024);
+
         /**
          * While bar is being accumulated we store open time here, then we change it to
          * actual event time.
@@ -163,15 +165,28 @@ public class Layer1ApiBarsDemo implements
             this.bodyWidthPx = bodyWidthPx;
         }
 
+        /**
+         * Copy to be displayed, event returned by the data structure interface or
+         * passed in a message must not be modified. Single allocation instead of
+         * copying and then modifying the copy.
+         *
+         * @param priceMultiplier pips to show the bar in price, 1 to keep levels
+         */
+        public BarEvent copyForDisplay(int bodyWidthPx, double priceMultiplier) {
+            return new BarEvent(time, open * priceMultiplier, low * priceMultiplier, high * priceMultiplier,
+                    close * priceMultiplier, bodyWidthPx);
+        }
+
         @Override
         public Marker makeMarker(Function<Double, Integer> yDataCoordinateToPixelFunction) {
-            
-            /*
-             * Note, that caching and reusing markers would improve efficiency, but for
-             * simplicity we won't do that here. If you do decide to cache the icons - be
-             * mindful of the cache size.
-             */
-            
+            return makeMarker(yDataCoordinateToPixelFunction, CANDLE_IMAGES);
+        }
+
+        /**
+         * Candles with the same pixel geometry share the image from the cache, so
+         * zooming out over many bars mostly does not render anything
+         */
+        Marker makeMarker(Function<Double, Integer> yDataCoordinateToPixelFunction, CandleImageCache candleImages) {
             int top = yDataCoordinateToPixelFunction.apply(high);
             int bottom = yDataCoordinateToPixelFunction.apply(low);
             int openPx = yDataCoordinateToPixelFunction.apply(open);
@@ -181,32 +196,9 @@ public class Layer1ApiBarsDemo implements
             int bodyHigh = Math.max(openPx, closePx);
             
             int imageHeight = top - bottom + 1;
-            BufferedImage bufferedImage = new BufferedImage(bodyWidthPx, imageHeight, BufferedImage.TYPE_INT_ARGB);
+            BufferedImage bufferedImage = candleImages.get(bodyWidthPx, imageHeight, top - bodyHigh,
+                    bodyHigh - bodyLow + 1, open < close);
             int imageCenterX = bufferedImage.getWidth() / 2;
-            
-            Graphics2D graphics = bufferedImage.createGraphics();
-            // Clear background
-            graphics.setBackground(new Color(0, 0, 0, 0));
-            graphics.clearRect(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight());
-            
-            /*
-             * Draw "shadow", also known as "wick". Here we'll take advantage of the fact
-             * we'll later draw a non-transparent body over it. If body would be
-             * semi-transparent you'd have to take that into account and leave (or make) a
-             * gap in the shadow.
-             */
-            graphics.setColor(Color.WHITE);
-            graphics.drawLine(imageCenterX, 0, imageCenterX, imageHeight);
-            
-            
-            /*
-             * Draw body. Keep in mind that BufferedImage coordinate system starts from the
-             * left top corner and Y axis points downwards
-             */
-            graphics.setColor(open < close ? Color.GREEN : Color.RED);
-            graphics.fillRect(0, top - bodyHigh, bodyWidthPx, bodyHigh - bodyLow + 1);
-            
-            graphics.dispose();
 
             /*
              * This one is a little tricky. We have a reference point which we'll pass as
@@ -266,6 +258,7 @@ public class Layer1ApiBarsDemo implements
     
     private static final String TREE_NAME = "Bars";
     private static final Class<?>[] INTERESTING_CUSTOM_EVENTS = new Class<?>[] { BarEvent.class };
+    private static final String BAR_EVENT_KEY = BarEvent.class.toString();
 
     private static final int MAX_BODY_WIDTH = 30;
     private static final int MIN_BODY_WIDTH = 1;
@@ -385,13 +378,7 @@ public class Layer1ApiBarsDemo implements
                  * modified value next time you request it, but it isn't going to happen every
                  * time, so the behavior wont be predictable.
                  */
-                value = new BarEvent(value);
-                
-                value.setBodyWidthPx(bodyWidth);
-                if (isBottomChart) {
-                    value.applyPips(pips);
-                }
-                listener.provideResponse(value);
+                listener.provideResponse(value.copyForDisplay(bodyWidth, isBottomChart ? pips : 1));
             } else {
                 listener.provideResponse(Double.NaN);
             }
@@ -429,12 +416,7 @@ public class Layer1ApiBarsDemo implements
                          * it before or after it's stored inside bookmap, also resulting in undefined
                          * behavior.
                          */
-                        event = new BarEvent(event);
-                        event.setBodyWidthPx(bodyWidth);
-                        if (isBottomChart) {
-                            event.applyPips(pips);
-                        }
-                        listener.accept(event);
+                        listener.accept(event.copyForDisplay(bodyWidth, isBottomChart ? pips : 1));
                     }
                 }
             }
@@ -450,7 +432,7 @@ public class Layer1ApiBarsDemo implements
     }
     
     private BarEvent getBarEvent(TreeResponseInterval treeResponseInterval) {
-        Object result = treeResponseInterval.events.get(BarEvent.class.toString());
+        Object result = treeResponseInterval.events.get(BAR_EVENT_KEY);
         if (result != null) {
             return (BarEvent) result;
         } else {
@@ -1,9 +1,7 @@
 package velox.api.layer1.simplified.demo;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -22,25 +20,87 @@ import velox.api.layer1.simplified.Api;
 import velox.api.layer1.simplified.CustomModule;
 import velox.api.layer1.simplified.CustomSettingsPanelProvider;
 import velox.api.layer1.simplified.InitialState;
+import velox.api.layer1.simplified.IntervalListener;
+import velox.api.layer1.simplified.Intervals;
 import velox.api.layer1.simplified.MarketByOrderDepthDataListener;
 import velox.gui.StrategyPanel;
 
 /**
- * Visualizes MBO data
+ * Visualizes MBO data. Books are only touched by the data thread, which
+ * publishes an immutable snapshot of the top levels at most once per interval,
+ * so the UI never waits for the data thread or the other way around.
  */
 @Layer1SimpleAttachable
 @Layer1StrategyName("Mbo visualizer: no history")
 @Layer1ApiVersion(Layer1ApiVersionValue.VERSION2)
 public class MboVisualizerNoHistory
-        implements CustomModule, CustomSettingsPanelProvider, MarketByOrderDepthDataListener {
+        implements CustomModule, CustomSettingsPanelProvider, MarketByOrderDepthDataListener, IntervalListener {
+
+    private static final int LEVELS_DISPLAYED = 10;
+
+    /** Top levels of both sides, best first */
+    static final class BookSnapshot {
+        static final BookSnapshot EMPTY = new BookSnapshot(new int[0], new long[0], new int[0], new long[0]);
+
+        final int[] askPrices;
+        final long[] askSizes;
+        final int[] bidPrices;
+        final long[] bidSizes;
+
+        BookSnapshot(int[] askPrices, long[] askSizes, int[] bidPrices, long[] bidSizes) {
+            this.askPrices = askPrices;
+            this.askSizes = askSizes;
+            this.bidPrices = bidPrices;
+            this.bidSizes = bidSizes;
+        }
+
+        static BookSnapshot of(OrderBook orderBook, int levels) {
+            Map<Integer, Long> asks = orderBook.getAskMap();
+            Map<Integer, Long> bids = orderBook.getBidMap();
+            int asksCount = Math.min(levels, asks.size());
+            int bidsCount = Math.min(levels, bids.size());
+            BookSnapshot snapshot = new BookSnapshot(new int[asksCount], new long[asksCount], new int[bidsCount],
+                    new long[bidsCount]);
+            copyTop(asks, snapshot.askPrices, snapshot.askSizes);
+            copyTop(bids, snapshot.bidPrices, snapshot.bidSizes);
+            return snapshot;
+        }
+
+        private static void copyTop(Map<Integer, Long> side, int[] prices, long[] sizes) {
+            Iterator<Entry<Integer, Long>> iterator = side.entrySet().iterator();
+            for (int i = 0; i < prices.length; ++i) {
+                Entry<Integer, Long> entry = iterator.next();
+                prices[i] = entry.getKey();
+                sizes[i] = entry.getValue();
+            }
+        }
+
+        String toHtml() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("<html>");
+            for (int i = askPrices.length - 1; i >= 0; --i) {
+                builder.append("ASK Distance: ").append(i).append(" Price(int): ").append(askPrices[i])
+                        .append(" Size: ").append(askSizes[i]).append("<br/>");
+            }
+            for (int i = 0; i < bidPrices.length; ++i) {
+                builder.append("BID Distance: ").append(i).append(" Price(int): ").append(bidPrices[i])
+                        .append(" Size: ").append(bidSizes[i]).append("<br/>");
+            }
+            builder.append("</html>");
+            return builder.toString();
+        }
+    }
 
     private OrderBookMbo orderBookMbo = new OrderBookMbo();
     private OrderBook orderBook = new OrderBook();
+    /** Set by the data thread when the book changed since the last snapshot */
+    private boolean isBookChanged = false;
+    private volatile BookSnapshot snapshot = BookSnapshot.EMPTY;
 
     private JLabel displayLabel;
 
     private AtomicBoolean updateIsScheduled = new AtomicBoolean();
-    
+
     public MboVisualizerNoHistory() {
         SwingUtilities.invokeLater(() -> {
             displayLabel = new JLabel();
@@ -57,13 +117,10 @@ public class MboVisualizerNoHistory
     public void send(String orderId, boolean isBid, int price, int size) {
         orderBookMbo.send(orderId, isBid, price, size);
 
-        synchronized (orderBook) {
-            long levelSize = orderBook.getSizeFor(isBid, price, 0);
-            levelSize += size;
-            orderBook.onUpdate(isBid, price, levelSize);
-        }
-
-        scheduleUpdateIfNecessary();
+        long levelSize = orderBook.getSizeFor(isBid, price, 0);
+        levelSize += size;
+        orderBook.onUpdate(isBid, price, levelSize);
+        isBookChanged = true;
     }
 
     @Override
@@ -75,17 +132,15 @@ public class MboVisualizerNoHistory
 
         orderBookMbo.replace(orderId, price, size);
 
-        synchronized (orderBook) {
-            long oldLevelSize = orderBook.getSizeFor(isBid, oldPrice, 0);
-            oldLevelSize -= oldSize;
+        long oldLevelSize = orderBook.getSizeFor(isBid, oldPrice, 0);
+        oldLevelSize -= oldSize;
 
-            orderBook.onUpdate(isBid, oldPrice, oldLevelSize);
+        orderBook.onUpdate(isBid, oldPrice, oldLevelSize);
 
-            long newLevelSize = orderBook.getSizeFor(isBid, price, 0);
-            newLevelSize += size;
-            orderBook.onUpdate(isBid, price, newLevelSize);
-        }
-        scheduleUpdateIfNecessary();
+        long newLevelSize = orderBook.getSizeFor(isBid, price, 0);
+        newLevelSize += size;
+        orderBook.onUpdate(isBid, price, newLevelSize);
+        isBookChanged = true;
     }
 
     @Override
@@ -97,12 +152,28 @@ public class MboVisualizerNoHistory
 
         orderBookMbo.cancel(orderId);
 
-        synchronized (orderBook) {
-            long levelSize = orderBook.getSizeFor(isBid, price, 0);
-            levelSize -= size;
-            orderBook.onUpdate(isBid, price, levelSize);
+        long levelSize = orderBook.getSizeFor(isBid, price, 0);
+        levelSize -= size;
+        orderBook.onUpdate(isBid, price, levelSize);
+        isBookChanged = true;
+    }
+
+    @Override
+    public long getInterval() {
+        return Intervals.INTERVAL_100_MILLISECONDS;
+    }
+
+    @Override
+    public void onInterval() {
+        if (isBookChanged) {
+            isBookChanged = false;
+            snapshot = BookSnapshot.of(orderBook, LEVELS_DISPLAYED);
+            scheduleUpdateIfNecessary();
         }
-        scheduleUpdateIfNecessary();
+    }
+
+    BookSnapshot getSnapshot() {
+        return snapshot;
     }
 
     private void scheduleUpdateIfNecessary() {
@@ -111,32 +182,7 @@ public class MboVisualizerNoHistory
         if (shouldSchedule) {
             SwingUtilities.invokeLater(() -> {
                 updateIsScheduled.set(false);
-
-                StringBuilder builder = new StringBuilder();
-                builder.append("<html>");
-
-                synchronized (orderBook) {
-                    Iterator<Entry<Integer, Long>> askItterator = orderBook.getAskMap().entrySet().iterator();
-                    Iterator<Entry<Integer, Long>> bidItterator = orderBook.getBidMap().entrySet().iterator();
-                    
-                    List<String> askRows = new ArrayList<>();
-                    for (int i = 0; i < 10 && askItterator.hasNext(); ++i) {
-                        Entry<Integer, Long> nextAskEntry = askItterator.next();
-                        askRows.add("ASK Distance: " + i + " Price(int): " + nextAskEntry.getKey() + " Size: "
-                                + nextAskEntry.getValue() + "<br/>");
-                    }
-                    Collections.reverse(askRows);
-                    askRows.forEach(builder::append);
-                    
-                    for (int i = 0; i < 10 && bidItterator.hasNext(); ++i) {
-                        Entry<Integer, Long> nextBidEntry = bidItterator.next();
-                        builder.append("BID Distance: " + i + " Price(int): " + nextBidEntry.getKey() + " Size: "
-                                + nextBidEntry.getValue() + "<br/>");
-                    }
-                }
-
-                builder.append("</html>");
-                displayLabel.setText(builder.toString());
+                displayLabel.setText(snapshot.toHtml());
             });
         }
     }
@@ -0,0 +1,78 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookmap.api.simple.demo.utils.data.SyntheticFeed;
+
+/**
+ * One DataRecorder trade line: timestamp, event, side, price and size. Run
+ * with the GC profiler (gradle jmh -PjmhInclude=CsvLineEncoder) and compare
+ * gc.alloc.rate.norm, the encoder should allocate close to nothing per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvLineEncoderBenchmark {
+    private final SyntheticFeed trades = new SyntheticFeed(1 << 16, 2_000, 5, 1);
+    private final SyntheticFeed.Cursor cursor = trades.new Cursor();
+
+    private final CsvLineEncoder line = new CsvLineEncoder(',');
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter(TimeZone.getTimeZone("GMT"));
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    private final StringBuilder builder = new StringBuilder();
+
+    /** Line built the way DataRecorderBase.writeObjects used to build it */
+    @Benchmark
+    public int stringJoin() {
+        int i = cursor.next();
+        long nanoseconds = cursor.nanoseconds();
+        long millis = nanoseconds / 1_000_000L;
+        long nanos = nanoseconds - 1_000_000L * millis;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd HH:mm:ss.SSS");
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Object[] objects = { "Trade", trades.isBid[i] ? "Buy" : "Sell", (double) trades.prices[i], trades.sizes[i] };
+
+        builder.setLength(0);
+        builder.append(sdf.format(new Date(millis)) + String.format("%06d", nanos));
+        builder.append(",");
+        builder.append(Arrays.stream(objects).map(Object::toString).collect(Collectors.joining(",")));
+        return builder.toString().length();
+    }
+
+    @Benchmark
+    public int encoder() {
+        int i = cursor.next();
+        line.reset()
+                .addTimestamp(timestampFormatter, cursor.nanoseconds())
+                .add("Trade")
+                .add(trades.isBid[i] ? "Buy" : "Sell")
+                .add((double) trades.prices[i])
+                .add(trades.sizes[i]);
+        ByteBuffer lineBytes = line.toLine();
+        if (lineBytes.remaining() > buffer.remaining()) {
+            buffer.clear();
+        }
+        buffer.put(lineBytes);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,91 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookmap.api.simple.demo.utils.data.SyntheticFeed;
+
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.data.TradeInfo;
+
+/**
+ * Lines per second recorded by DataRecorderAll with asynchronous outputs,
+ * depth updates interleaved over the given number of instruments, written to
+ * one file (shards = 1) or a file per instrument (shards = 0). Recorder
+ * settings are static, every parameter combination runs in its own fork.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataRecorderAllBenchmark {
+    @Param({ "1", "10", "100", "1000" })
+    public int instrumentsCount;
+
+    @Param({ "1", "0" })
+    public String shards;
+
+    private final SyntheticFeed depth = new SyntheticFeed(1 << 16, 20_000, 20, 4);
+    private final TradeInfo tradeInfo = new TradeInfo(false, true, true, true);
+    private String[] aliases;
+    private Path directory;
+    private DataRecorderAll recorder;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("DataRecorderAllBenchmark");
+        System.setProperty("DataRecorder.directory", directory.toString());
+        System.setProperty("DataRecorder.async", "true");
+        System.setProperty("DataRecorderAll.aliases", "*");
+        System.setProperty("DataRecorderAll.shards", shards);
+
+        recorder = new DataRecorderAll();
+        aliases = new String[instrumentsCount];
+        for (int i = 0; i < instrumentsCount; i++) {
+            aliases[i] = "INSTRUMENT" + i;
+            recorder.onCurrentInstrument(aliases[i]);
+            recorder.onInstrumentAdded(new InstrumentInfo(aliases[i], "", "", 0.25, 50, aliases[i], false));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        recorder.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void recordDepth() {
+        int i = index++ & (depth.prices.length - 1);
+        recorder.onCurrentInstrument(aliases[i % aliases.length]);
+        recorder.onTimestamp(depth.nanoseconds[i]);
+        if (depth.sizes[i] % 10 == 0) {
+            recorder.onTrade(depth.prices[i], depth.sizes[i], tradeInfo);
+        } else {
+            recorder.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+        }
+    }
+}
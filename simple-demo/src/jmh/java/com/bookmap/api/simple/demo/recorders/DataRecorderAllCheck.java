@@ -0,0 +1,202 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import com.bookmap.api.simple.demo.utils.data.SyntheticFeed;
+
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.data.TradeInfo;
+
+/**
+ * Records depth interleaved over 1 to 1000 instruments with DataRecorderAll
+ * into 4MB rolling files and fails unless:
+ * <ul>
+ * <li>every part starts with exactly one InstrumentAdded line per recorded
+ * instrument, the last one written for it, even after instruments were
+ * added again;</li>
+ * <li>all events of recorded instruments and none of the others are in the
+ * files;</li>
+ * <li>recording 1000 instruments is at least a third as fast as recording
+ * one (best of three runs), and events of instruments that are not recorded
+ * are at least twice as cheap as recorded ones.</li>
+ * </ul>
+ * Prints events per second for every instrument count. Recorder settings are
+ * static, so they are set before the recorder classes load.
+ */
+public class DataRecorderAllCheck {
+    private static final int EVENTS = 2_000_000;
+    private static final int[] INSTRUMENT_COUNTS = { 1, 10, 100, 1000 };
+    private static final int RUNS = 3;
+
+    private static final SyntheticFeed depth = new SyntheticFeed(1 << 16, 20_000, 20, 4);
+    private static final TradeInfo tradeInfo = new TradeInfo(false, true, true, true);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("DataRecorderAllCheck");
+        System.setProperty("DataRecorder.directory", directory.toString());
+        System.setProperty("DataRecorder.rollMegabytes", "4");
+        System.setProperty("DataRecorderAll.aliases", "REC*");
+        try {
+            double[] rates = new double[INSTRUMENT_COUNTS.length];
+            for (int i = 0; i < INSTRUMENT_COUNTS.length; i++) {
+                for (int run = 0; run < RUNS; run++) {
+                    rates[i] = Math.max(rates[i], record(directory, INSTRUMENT_COUNTS[i], false));
+                }
+                System.out.printf("DataRecorderAllCheck: %d instruments, %.2fM events/s%n", INSTRUMENT_COUNTS[i],
+                        rates[i] / 1e6);
+            }
+            double skippedRate = 0;
+            for (int run = 0; run < RUNS; run++) {
+                skippedRate = Math.max(skippedRate, record(directory, 1000, true));
+            }
+            System.out.printf("DataRecorderAllCheck: 1000 instruments, 1%% recorded, %.2fM events/s%n",
+                    skippedRate / 1e6);
+
+            double last = rates[rates.length - 1];
+            if (last < rates[0] / 3) {
+                throw new IllegalStateException("Recording slows down with instruments: " + Arrays.toString(rates));
+            }
+            if (skippedRate < 2 * last) {
+                throw new IllegalStateException("Skipped instruments cost " + skippedRate + " events/s vs "
+                        + last + " recorded");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Records, checks the files and deletes them
+     *
+     * @param mostlySkipped if true only every 100th instrument is recorded
+     * @return events per second
+     */
+    private static double record(Path directory, int instrumentsCount, boolean mostlySkipped)
+            throws IOException, InterruptedException {
+        // File names are unique per millisecond
+        Thread.sleep(2);
+        DataRecorderAll recorder = new DataRecorderAll();
+        String[] aliases = new String[instrumentsCount];
+        for (int i = 0; i < instrumentsCount; i++) {
+            aliases[i] = (!mostlySkipped || i % 100 == 0 ? "REC" : "SKIP") + i;
+            addInstrument(recorder, aliases[i], 0.25);
+        }
+
+        long recorded = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            int event = i & (depth.prices.length - 1);
+            int instrument = i % instrumentsCount;
+            recorder.onCurrentInstrument(aliases[instrument]);
+            recorder.onTimestamp(depth.nanoseconds[event]);
+            if (depth.sizes[event] % 10 == 0) {
+                recorder.onTrade(depth.prices[event], depth.sizes[event], tradeInfo);
+            } else {
+                recorder.onDepth(depth.isBid[event], depth.prices[event], depth.sizes[event]);
+            }
+            if (aliases[instrument].startsWith("REC")) {
+                recorded++;
+            }
+            if (i == EVENTS / 2) {
+                // Added again with other contract details, later parts should only have these
+                addInstrument(recorder, aliases[0], 0.5);
+            }
+        }
+        recorder.stop();
+        double rate = EVENTS * 1e9 / (System.nanoTime() - start);
+
+        checkFiles(directory, aliases, recorded, !mostlySkipped);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        return rate;
+    }
+
+    private static void addInstrument(DataRecorderAll recorder, String alias, double pips) {
+        recorder.onCurrentInstrument(alias);
+        recorder.onInstrumentAdded(new InstrumentInfo(alias, "", "", pips, 50, alias, false));
+    }
+
+    /**
+     * @param isRolled true if the lines are enough for several parts
+     */
+    private static void checkFiles(Path directory, String[] aliases, long recorded, boolean isRolled)
+            throws IOException {
+        Set<String> expectedAliases = new HashSet<>();
+        for (String alias : aliases) {
+            if (alias.startsWith("REC")) {
+                expectedAliases.add(alias);
+            }
+        }
+        List<Path> parts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(parts::add);
+        }
+        // Numbered parts in order: name_1.txt, name_2.txt, ...
+        parts.sort(Comparator.comparing(part -> {
+            String name = part.getFileName().toString();
+            return Integer.parseInt(name.substring(name.lastIndexOf('_') + 1, name.lastIndexOf('.')));
+        }));
+
+        long dataLines = 0;
+        boolean isReAdded = false;
+        for (Path part : parts) {
+            List<String> lines = Files.readAllLines(part, StandardCharsets.UTF_8);
+            // Headers of the part: the current InstrumentAdded of every recorded instrument
+            Set<String> headerAliases = new HashSet<>();
+            int index = 0;
+            for (; index < lines.size() && field(lines.get(index), 2).equals("InstrumentAdded"); index++) {
+                String line = lines.get(index);
+                String alias = field(line, 3).substring("Alias=".length());
+                if (!headerAliases.add(alias)) {
+                    throw new IllegalStateException(part + " repeats the header of " + alias);
+                }
+                if (alias.equals(aliases[0]) && isReAdded && !line.contains("MinPriceIncrement=0.5")) {
+                    throw new IllegalStateException(part + " has a replaced header: " + line);
+                }
+            }
+            if (!headerAliases.equals(expectedAliases)) {
+                throw new IllegalStateException(part + " starts with headers of " + headerAliases.size()
+                        + " instruments instead of " + expectedAliases.size());
+            }
+            for (; index < lines.size(); index++) {
+                String type = field(lines.get(index), 2);
+                if (type.equals("Trade") || type.equals("Quote")) {
+                    dataLines++;
+                } else if (type.equals("InstrumentAdded")) {
+                    isReAdded = true;
+                } else if (!type.equals("InstrumentRemoved")) {
+                    throw new IllegalStateException(part + " has an unexpected line: " + lines.get(index));
+                }
+            }
+        }
+        if ((isRolled && parts.size() < 2) || dataLines != recorded) {
+            throw new IllegalStateException(parts.size() + " parts with " + dataLines + " events instead of "
+                    + recorded);
+        }
+    }
+
+    private static String field(String line, int index) {
+        String[] fields = line.split(",", index + 2);
+        return fields.length > index ? fields[index] : "";
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bookmap.api.simple.demo.replay;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Locale;
+import java.util.Random;
+
+import com.bookmap.api.simple.demo.indicators.AtrTrailingStop;
+import com.bookmap.api.simple.demo.replay.ReplayFeed.Instrument;
+
+/**
+ * Replays a day and a week of synthetic trades and depth (an event every
+ * 0.5s on average) into AtrTrailingStop and measures the heap retained by
+ * the module after each replay. Fails if the week retains noticeably more
+ * than the day, i.e. if interval history grows with session length.
+ */
+public class AtrTrailingStopSoakCheck {
+    private static final long DAY_NANOSECONDS = 24 * 3600 * 1_000_000_000L;
+    private static final long MAX_GROWTH_BYTES = 1 << 20;
+
+    /** Static, so that the module is reachable until it is measured */
+    private static AtrTrailingStop module;
+
+    public static void main(String[] args) throws Exception {
+        ReplayFeed dayFeed = createFeed(1);
+        // First replay loads classes and fills static caches
+        getRetainedBytes(dayFeed);
+        long dayBytes = getRetainedBytes(dayFeed);
+        long weekBytes = getRetainedBytes(createFeed(7));
+        System.out.printf(Locale.ROOT,
+                "AtrTrailingStopSoakCheck: module retains %.1f KB after a day, %.1f KB after a week%n",
+                dayBytes / 1024.0, weekBytes / 1024.0);
+        if (weekBytes - dayBytes > MAX_GROWTH_BYTES) {
+            throw new IllegalStateException("Retained heap grows with session length: " + dayBytes
+                    + " bytes after a day, " + weekBytes + " after a week");
+        }
+    }
+
+    /** Heap used with the replayed module minus heap used once it is dropped */
+    private static long getRetainedBytes(ReplayFeed feed) throws ReflectiveOperationException {
+        module = new AtrTrailingStop();
+        new ReplayRunner(feed, 0, module).run();
+        long withModule = getUsedHeap();
+        module = null;
+        return withModule - getUsedHeap();
+    }
+
+    /** Used heap once collections stop freeing anything, e.g. objects waiting for finalization */
+    private static long getUsedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private static ReplayFeed createFeed(int days) {
+        ReplayFeed feed = new ReplayFeed();
+        feed.addInstrument("1", new Instrument("ESZ3", 0.25, 50));
+        Random random = new Random(1);
+        long end = days * DAY_NANOSECONDS;
+        int mid = 16000;
+        for (long time = 0; time < end; time += random.nextInt(1_000_000_000)) {
+            if (random.nextInt(10) < 3) {
+                mid += random.nextBoolean() ? 1 : -1;
+            }
+            if (random.nextInt(4) == 0) {
+                feed.add(time, ReplayFeed.TRADE, 0, mid, 1 + random.nextInt(20), random.nextBoolean());
+            } else {
+                boolean isBid = random.nextBoolean();
+                int price = isBid ? mid - random.nextInt(10) : mid + 1 + random.nextInt(10);
+                feed.add(time, ReplayFeed.DEPTH, 0, price, random.nextInt(101), isBid);
+            }
+        }
+        return feed;
+    }
+}
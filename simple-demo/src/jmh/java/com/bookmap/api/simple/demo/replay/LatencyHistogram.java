@@ -0,0 +1,77 @@
+package com.bookmap.api.simple.demo.replay;
+
+/**
+ * Log-linear histogram of nanosecond latencies: each power of two is split
+ * into {@link #SUB_BUCKETS} equal buckets, so percentiles are within about 3%
+ * of the recorded values while recording is O(1) and does not allocate.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Values below 2 * SUB_BUCKETS are counted exactly, then SUB_BUCKETS per power of two */
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long totalCount = 0;
+    private long totalNanoseconds = 0;
+    private long max = 0;
+
+    public void record(long nanoseconds) {
+        if (nanoseconds < 0) {
+            nanoseconds = 0;
+        }
+        counts[indexOf(nanoseconds)]++;
+        totalCount++;
+        totalNanoseconds += nanoseconds;
+        max = Math.max(max, nanoseconds);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? Double.NaN : (double) totalNanoseconds / totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return upper bound of the bucket containing the percentile, capped by
+     *         the max recorded value
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= rank) {
+                return Math.min(max, upperBoundOf(i));
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
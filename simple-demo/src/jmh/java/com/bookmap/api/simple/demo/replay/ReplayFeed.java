@@ -0,0 +1,194 @@
+package com.bookmap.api.simple.demo.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded events loaded into primitive arrays, so that replay does not
+ * measure parsing. Reads two text formats:
+ * <ul>
+ * <li>DataRecorder / DataRecorderAll:
+ * {@code yyyyMMdd HH:mm:ss.SSSnnnnnn[,id],Trade|Quote,Buy|Sell,price,size}
+ * with prices in ticks and timestamps in the recording machine time zone</li>
+ * <li>SpecificFormatRecorder depth files: {@code T,millis,id,price,size,aggressor,otc}
+ * and {@code r,millis,id,side,price,size} with real prices, converted to ticks
+ * with the pips from the {@code c} line of the instrument</li>
+ * </ul>
+ * BBO lines are skipped, BBO is derived from depth during replay.
+ */
+public class ReplayFeed {
+    public static final byte TRADE = 0;
+    public static final byte DEPTH = 1;
+
+    public static class Instrument {
+        public final String alias;
+        public final double pips;
+        public final double multiplier;
+
+        public Instrument(String alias, double pips, double multiplier) {
+            this.alias = alias;
+            this.pips = pips;
+            this.multiplier = multiplier;
+        }
+    }
+
+    public final List<Instrument> instruments = new ArrayList<>();
+    public int size = 0;
+    public long[] nanoseconds = new long[1024];
+    public byte[] types = new byte[1024];
+    public int[] instrumentIndexes = new int[1024];
+    public double[] prices = new double[1024];
+    public int[] sizes = new int[1024];
+    /** isBid for depth, isBidAggressor for trades */
+    public boolean[] isBid = new boolean[1024];
+
+    private final Map<String, Integer> idToInstrumentIndex = new HashMap<>();
+
+    /**
+     * @param zoneId time zone of the machine that recorded a DataRecorder file,
+     *               not used for SpecificFormatRecorder files
+     */
+    public static ReplayFeed load(Path file, ZoneId zoneId) throws IOException {
+        ReplayFeed feed = new ReplayFeed();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    String[] fields = line.split(",", -1);
+                    if (fields[0].length() == 1) {
+                        feed.parseSpecificFormat(fields);
+                    } else {
+                        feed.parseDataRecorder(fields, zoneId);
+                    }
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Can not parse line " + lineNumber + " of " + file + ": " + line, e);
+                }
+            }
+        }
+        if (feed.instruments.isEmpty()) {
+            throw new IllegalArgumentException("No instruments in " + file);
+        }
+        return feed;
+    }
+
+    private void parseSpecificFormat(String[] fields) {
+        long nanoseconds = Long.parseLong(fields[1]) * 1_000_000L;
+        switch (fields[0].charAt(0)) {
+        case 'c': {
+            String alias = fields[4];
+            addInstrument(fields[2], new Instrument(alias, Double.parseDouble(fields[6]), Double.parseDouble(fields[7])));
+            break;
+        }
+        case 'T': {
+            int index = getInstrumentIndex(fields[2]);
+            double price = Double.parseDouble(fields[3]) / instruments.get(index).pips;
+            add(nanoseconds, TRADE, index, price, Integer.parseInt(fields[4]), Integer.parseInt(fields[5]) == 1);
+            break;
+        }
+        case 'r': {
+            int index = getInstrumentIndex(fields[2]);
+            double price = Math.round(Double.parseDouble(fields[4]) / instruments.get(index).pips);
+            add(nanoseconds, DEPTH, index, price, Integer.parseInt(fields[5]), Integer.parseInt(fields[3]) == 1);
+            break;
+        }
+        default:
+            // Feed source and anything else are not replayed
+            break;
+        }
+    }
+
+    private void parseDataRecorder(String[] fields, ZoneId zoneId) {
+        long nanoseconds = parseTimestamp(fields[0], zoneId);
+        // DataRecorderAll adds instrument id after the timestamp
+        boolean hasId = fields.length > 2 && (fields[1].equals("null") || fields[1].chars().allMatch(Character::isDigit));
+        String id = hasId ? fields[1] : "";
+        int eventIndex = hasId ? 2 : 1;
+        switch (fields[eventIndex]) {
+        case "InstrumentAdded":
+            addInstrument(id, new Instrument(
+                    valueOf(fields[eventIndex + 1], "Alias="),
+                    Double.parseDouble(valueOf(fields[eventIndex + 2], "MinPriceIncrement=")),
+                    Double.parseDouble(valueOf(fields[eventIndex + 3], "Multiplier="))));
+            break;
+        case "Trade":
+        case "Quote":
+            add(nanoseconds, fields[eventIndex].equals("Trade") ? TRADE : DEPTH, getInstrumentIndex(id),
+                    Double.parseDouble(fields[eventIndex + 2]), Integer.parseInt(fields[eventIndex + 3]),
+                    fields[eventIndex + 1].equals("Buy"));
+            break;
+        default:
+            // BBO and InstrumentRemoved are not replayed
+            break;
+        }
+    }
+
+    private static String valueOf(String field, String prefix) {
+        if (!field.startsWith(prefix)) {
+            throw new IllegalArgumentException("Expected " + prefix + " but got " + field);
+        }
+        return field.substring(prefix.length());
+    }
+
+    /** Parses "yyyyMMdd HH:mm:ss.SSS" followed by 6 digits of nanoseconds */
+    static long parseTimestamp(String timestamp, ZoneId zoneId) {
+        LocalDateTime dateTime = LocalDateTime.of(
+                Integer.parseInt(timestamp.substring(0, 4)),
+                Integer.parseInt(timestamp.substring(4, 6)),
+                Integer.parseInt(timestamp.substring(6, 8)),
+                Integer.parseInt(timestamp.substring(9, 11)),
+                Integer.parseInt(timestamp.substring(12, 14)),
+                Integer.parseInt(timestamp.substring(15, 17)));
+        long fraction = Long.parseLong(timestamp.substring(18));
+        return dateTime.atZone(zoneId).toEpochSecond() * 1_000_000_000L + fraction;
+    }
+
+    void addInstrument(String id, Instrument instrument) {
+        // DataRecorderAll writes instrument again when it is re-added
+        Integer index = idToInstrumentIndex.get(id);
+        if (index == null) {
+            idToInstrumentIndex.put(id, instruments.size());
+            instruments.add(instrument);
+        }
+    }
+
+    private int getInstrumentIndex(String id) {
+        Integer index = idToInstrumentIndex.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException("Event for unknown instrument " + id);
+        }
+        return index;
+    }
+
+    void add(long time, byte type, int instrumentIndex, double price, int size, boolean isBid) {
+        if (this.size == nanoseconds.length) {
+            int capacity = 2 * this.size;
+            nanoseconds = Arrays.copyOf(nanoseconds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            instrumentIndexes = Arrays.copyOf(instrumentIndexes, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            this.isBid = Arrays.copyOf(this.isBid, capacity);
+        }
+        nanoseconds[this.size] = time;
+        types[this.size] = type;
+        instrumentIndexes[this.size] = instrumentIndex;
+        prices[this.size] = price;
+        sizes[this.size] = size;
+        this.isBid[this.size] = isBid;
+        this.size++;
+    }
+}
@@ -0,0 +1,410 @@
+package com.bookmap.api.simple.demo.replay;
+
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.bookmap.api.simple.demo.replay.ReplayFeed.Instrument;
+import com.bookmap.api.simple.demo.utils.data.PriceLadder;
+
+import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.data.TradeInfo;
+import velox.api.layer1.layers.utils.OrderBook;
+import velox.api.layer1.simplified.Api;
+import velox.api.layer1.simplified.Bar;
+import velox.api.layer1.simplified.BarDataListener;
+import velox.api.layer1.simplified.BboListener;
+import velox.api.layer1.simplified.CustomModule;
+import velox.api.layer1.simplified.DepthDataListener;
+import velox.api.layer1.simplified.HistoricalModeListener;
+import velox.api.layer1.simplified.InitialState;
+import velox.api.layer1.simplified.IntervalListener;
+import velox.api.layer1.simplified.MultiInstrumentListener;
+import velox.api.layer1.simplified.SnapshotEndListener;
+import velox.api.layer1.simplified.TimeListener;
+import velox.api.layer1.simplified.TradeDataListener;
+
+/**
+ * <p>Replays a file recorded by DataRecorder, DataRecorderAll or
+ * SpecificFormatRecorder into a simplified API module as fast as possible,
+ * without Bookmap, and reports throughput and per-callback latency:</p>
+ *
+ * <pre>
+ * gradle replay -PreplayModule=com.bookmap.api.simple.demo.indicators.VolumeTracker -PreplayFile=DataRecorderAll_1.txt
+ * </pre>
+ *
+ * <p>System properties: replay.alias - instrument to replay, the first one by
+ * default; replay.timeZone - time zone of the machine that made a DataRecorder
+ * recording, the current one by default; replay.warmupPasses - number of full
+ * passes with separate module instances before the measured one, 1 by default.</p>
+ *
+ * <p>Api and Indicator are dynamic proxies that ignore calls, so the calls a
+ * module makes to them cost a little boxing. BBO is derived from depth,
+ * onSnapshotEnd is called once the time moves past the first timestamp and
+ * onRealtimeStart after the last event.</p>
+ */
+public class ReplayRunner {
+
+    private final ReplayFeed feed;
+    private final int instrumentIndex;
+    private final CustomModule module;
+
+    private final TradeDataListener tradeListener;
+    private final DepthDataListener depthListener;
+    private final BboListener bboListener;
+    private final TimeListener timeListener;
+    private final IntervalListener intervalListener;
+    private final BarDataListener barListener;
+    private final MultiInstrumentListener multiInstrumentListener;
+    private final long interval;
+
+    private final PriceLadder[] bids;
+    private final PriceLadder[] asks;
+    private final OrderBook orderBook = new OrderBook();
+    private final Bar bar = new Bar();
+    private final TradeInfo bidAggressorTradeInfo = new TradeInfo(false, true, true, true);
+    private final TradeInfo askAggressorTradeInfo = new TradeInfo(false, false, true, true);
+    private long indicatorPointsCount = 0;
+    private final Map<Class<?>, Object> settings = new HashMap<>();
+
+    private final LatencyHistogram tradeLatency = new LatencyHistogram();
+    private final LatencyHistogram depthLatency = new LatencyHistogram();
+    private final LatencyHistogram bboLatency = new LatencyHistogram();
+    private final LatencyHistogram timestampLatency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private long replayNanoseconds;
+    private int eventsCount;
+
+    public ReplayRunner(ReplayFeed feed, int instrumentIndex, CustomModule module) {
+        this.feed = feed;
+        this.instrumentIndex = instrumentIndex;
+        this.module = module;
+        tradeListener = module instanceof TradeDataListener ? (TradeDataListener) module : null;
+        depthListener = module instanceof DepthDataListener ? (DepthDataListener) module : null;
+        bboListener = module instanceof BboListener ? (BboListener) module : null;
+        timeListener = module instanceof TimeListener ? (TimeListener) module : null;
+        barListener = module instanceof BarDataListener ? (BarDataListener) module : null;
+        intervalListener = module instanceof IntervalListener && barListener == null ? (IntervalListener) module : null;
+        multiInstrumentListener = module instanceof MultiInstrumentListener ? (MultiInstrumentListener) module : null;
+        interval = barListener != null ? barListener.getInterval()
+                : intervalListener != null ? intervalListener.getInterval() : 0;
+
+        bids = new PriceLadder[feed.instruments.size()];
+        asks = new PriceLadder[feed.instruments.size()];
+        for (int i = 0; i < bids.length; i++) {
+            bids[i] = new PriceLadder(true);
+            asks[i] = new PriceLadder(false);
+        }
+    }
+
+    public void run() throws ReflectiveOperationException {
+        Instrument instrument = feed.instruments.get(instrumentIndex);
+        Api api = createStub(Api.class);
+        module.initialize(instrument.alias, toInstrumentInfo(instrument), api, createInitialState());
+        if (multiInstrumentListener != null) {
+            for (Instrument added : feed.instruments) {
+                multiInstrumentListener.onCurrentInstrument(added.alias);
+                multiInstrumentListener.onInstrumentAdded(toInstrumentInfo(added));
+            }
+        }
+
+        long start = System.nanoTime();
+        replay();
+        replayNanoseconds = System.nanoTime() - start;
+
+        if (module instanceof HistoricalModeListener) {
+            ((HistoricalModeListener) module).onRealtimeStart();
+        }
+        module.stop();
+    }
+
+    private void replay() {
+        int currentInstrument = -1;
+        long time = Long.MIN_VALUE;
+        long firstTime = feed.size > 0 ? feed.nanoseconds[0] : 0;
+        boolean isSnapshotEnded = !(module instanceof SnapshotEndListener);
+        long nextIntervalTime = interval > 0 && feed.size > 0 ? (firstTime / interval + 1) * interval : Long.MAX_VALUE;
+
+        for (int i = 0; i < feed.size; i++) {
+            int eventInstrument = feed.instrumentIndexes[i];
+            if (eventInstrument != instrumentIndex && multiInstrumentListener == null) {
+                continue;
+            }
+            long eventTime = feed.nanoseconds[i];
+
+            if (!isSnapshotEnded && eventTime > firstTime) {
+                ((SnapshotEndListener) module).onSnapshotEnd();
+                isSnapshotEnded = true;
+            }
+            while (eventTime >= nextIntervalTime) {
+                time = onTimestamp(time, nextIntervalTime);
+                onInterval();
+                nextIntervalTime += interval;
+            }
+            time = onTimestamp(time, eventTime);
+
+            if (eventInstrument != currentInstrument && multiInstrumentListener != null) {
+                multiInstrumentListener.onCurrentInstrument(feed.instruments.get(eventInstrument).alias);
+            }
+            currentInstrument = eventInstrument;
+
+            if (feed.types[i] == ReplayFeed.TRADE) {
+                onTrade(eventInstrument, feed.prices[i], feed.sizes[i], feed.isBid[i]);
+            } else {
+                onDepth(eventInstrument, feed.isBid[i], (int) feed.prices[i], feed.sizes[i]);
+            }
+            eventsCount++;
+        }
+    }
+
+    private long onTimestamp(long time, long newTime) {
+        if (timeListener != null && newTime != time) {
+            long start = System.nanoTime();
+            timeListener.onTimestamp(newTime);
+            timestampLatency.record(System.nanoTime() - start);
+        }
+        return newTime;
+    }
+
+    private void onInterval() {
+        long start = System.nanoTime();
+        if (barListener != null) {
+            barListener.onBar(orderBook, bar);
+            intervalLatency.record(System.nanoTime() - start);
+            bar.startNext();
+        } else {
+            intervalListener.onInterval();
+            intervalLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void onTrade(int eventInstrument, double price, int size, boolean isBidAggressor) {
+        if (barListener != null && eventInstrument == instrumentIndex) {
+            bar.addTrade(isBidAggressor, size, price);
+        }
+        if (tradeListener != null) {
+            long start = System.nanoTime();
+            tradeListener.onTrade(price, size, isBidAggressor ? bidAggressorTradeInfo : askAggressorTradeInfo);
+            tradeLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void onDepth(int eventInstrument, boolean isBid, int price, int size) {
+        if (barListener != null && eventInstrument == instrumentIndex) {
+            orderBook.onUpdate(isBid, price, size);
+        }
+        if (depthListener != null) {
+            long start = System.nanoTime();
+            depthListener.onDepth(isBid, price, size);
+            depthLatency.record(System.nanoTime() - start);
+        }
+        if (bboListener != null) {
+            PriceLadder bid = bids[eventInstrument];
+            PriceLadder ask = asks[eventInstrument];
+            PriceLadder side = isBid ? bid : ask;
+            boolean wasBest = !side.isEmpty() && side.getBestPrice() == price;
+            side.onUpdate(price, size);
+            boolean isBest = !side.isEmpty() && side.getBestPrice() == price;
+            if ((wasBest || isBest) && !bid.isEmpty() && !ask.isEmpty()) {
+                long start = System.nanoTime();
+                bboListener.onBbo(bid.getBestPrice(), bid.getBestSize(), ask.getBestPrice(), ask.getBestSize());
+                bboLatency.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    public int getEventsCount() {
+        return eventsCount;
+    }
+
+    public long getIndicatorPointsCount() {
+        return indicatorPointsCount;
+    }
+
+    public void printReport(PrintStream out) {
+        Instrument instrument = feed.instruments.get(instrumentIndex);
+        out.printf(Locale.ROOT, "%s on %s: %d events in %.1f ms, %.0f events/s, %d indicator points%n",
+                module.getClass().getSimpleName(), instrument.alias, eventsCount, replayNanoseconds / 1e6,
+                eventsCount / (replayNanoseconds / 1e9), indicatorPointsCount);
+        out.printf(Locale.ROOT, "%-12s %10s %10s %10s %10s %10s %12s%n", "callback", "count", "mean ns", "p50 ns",
+                "p99 ns", "p99.9 ns", "max ns");
+        printLatency(out, "onTrade", tradeLatency);
+        printLatency(out, "onDepth", depthLatency);
+        printLatency(out, "onBbo", bboLatency);
+        printLatency(out, "onTimestamp", timestampLatency);
+        printLatency(out, barListener != null ? "onBar" : "onInterval", intervalLatency);
+    }
+
+    private static void printLatency(PrintStream out, String name, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        out.printf(Locale.ROOT, "%-12s %10d %10.0f %10d %10d %10d %12d%n", name, histogram.getCount(),
+                histogram.getMean(), histogram.getPercentile(50), histogram.getPercentile(99),
+                histogram.getPercentile(99.9), histogram.getMax());
+    }
+
+    private static InstrumentInfo toInstrumentInfo(Instrument instrument) {
+        return new InstrumentInfo(instrument.alias, "", "", instrument.pips, instrument.multiplier, instrument.alias,
+                true);
+    }
+
+    /**
+     * InitialState constructor differs between API versions, so the one with
+     * most parameters of supported types is used and parameters are filled by
+     * type from the first trade of the instrument
+     */
+    private InitialState createInitialState() throws ReflectiveOperationException {
+        double lastTradePrice = Double.NaN;
+        int lastTradeSize = 0;
+        TradeInfo tradeInfo = bidAggressorTradeInfo;
+        for (int i = 0; i < feed.size; i++) {
+            if (feed.types[i] == ReplayFeed.TRADE && feed.instrumentIndexes[i] == instrumentIndex) {
+                lastTradePrice = feed.prices[i];
+                lastTradeSize = feed.sizes[i];
+                tradeInfo = feed.isBid[i] ? bidAggressorTradeInfo : askAggressorTradeInfo;
+                break;
+            }
+        }
+
+        Constructor<?> constructor = null;
+        for (Constructor<?> candidate : InitialState.class.getConstructors()) {
+            if (isFillable(candidate.getParameterTypes()) && (constructor == null
+                    || candidate.getParameterCount() > constructor.getParameterCount())) {
+                constructor = candidate;
+            }
+        }
+        if (constructor == null) {
+            throw new IllegalStateException("No InitialState constructor with supported parameter types");
+        }
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Object[] parameters = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (type == double.class) {
+                parameters[i] = lastTradePrice;
+            } else if (type == int.class) {
+                parameters[i] = lastTradeSize;
+            } else if (type == long.class) {
+                parameters[i] = (long) lastTradeSize;
+            } else if (type == boolean.class) {
+                parameters[i] = false;
+            } else if (type == TradeInfo.class) {
+                parameters[i] = tradeInfo;
+            }
+        }
+        return (InitialState) constructor.newInstance(parameters);
+    }
+
+    private static boolean isFillable(Class<?>[] parameterTypes) {
+        for (Class<?> type : parameterTypes) {
+            if (type != double.class && type != int.class && type != long.class && type != boolean.class
+                    && type != TradeInfo.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Implements any interface by ignoring calls and returning zero values, or
+     * further stubs for interface return types. Counts indicator points.
+     * getSettings returns a default instance of the requested class, the same
+     * one for every call, or the one passed to setSettings.
+     */
+    private <T> T createStub(Class<T> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Stub " + type.getSimpleName();
+            case "addPoint":
+                indicatorPointsCount++;
+                break;
+            case "getSettings":
+                if (args != null && args.length == 1 && args[0] instanceof Class) {
+                    Class<?> settingsClass = (Class<?>) args[0];
+                    Object settings = this.settings.get(settingsClass);
+                    if (settings == null) {
+                        settings = settingsClass.getDeclaredConstructor().newInstance();
+                        this.settings.put(settingsClass, settings);
+                    }
+                    return settings;
+                }
+                break;
+            case "setSettings":
+                if (args != null && args.length == 1 && args[0] != null) {
+                    this.settings.put(args[0].getClass(), args[0]);
+                }
+                break;
+            default:
+                break;
+            }
+            if (returnType == void.class) {
+                return null;
+            } else if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == double.class) {
+                return 0.0;
+            } else if (returnType == float.class) {
+                return 0.0f;
+            } else if (returnType == long.class) {
+                return 0L;
+            } else if (returnType == int.class) {
+                return 0;
+            } else if (returnType == short.class) {
+                return (short) 0;
+            } else if (returnType == byte.class) {
+                return (byte) 0;
+            } else if (returnType == char.class) {
+                return (char) 0;
+            } else if (returnType.isInterface()) {
+                return createStub(returnType);
+            }
+            return null;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplayRunner <module class> <recorded file>");
+            System.exit(1);
+        }
+        Class<? extends CustomModule> moduleClass = Class.forName(args[0]).asSubclass(CustomModule.class);
+        ZoneId zoneId = ZoneId.of(System.getProperty("replay.timeZone", ZoneId.systemDefault().getId()));
+        ReplayFeed feed = ReplayFeed.load(Paths.get(args[1]), zoneId);
+
+        int instrumentIndex = 0;
+        String alias = System.getProperty("replay.alias");
+        if (alias != null) {
+            instrumentIndex = -1;
+            for (int i = 0; i < feed.instruments.size(); i++) {
+                if (feed.instruments.get(i).alias.equals(alias)) {
+                    instrumentIndex = i;
+                }
+            }
+            if (instrumentIndex < 0) {
+                throw new IllegalArgumentException("No instrument " + alias + " in " + args[1]);
+            }
+        }
+
+        int warmupPasses = Integer.getInteger("replay.warmupPasses", 1);
+        for (int i = 0; i < warmupPasses; i++) {
+            new ReplayRunner(feed, instrumentIndex, moduleClass.getDeclaredConstructor().newInstance()).run();
+        }
+        ReplayRunner runner = new ReplayRunner(feed, instrumentIndex, moduleClass.getDeclaredConstructor().newInstance());
+        runner.run();
+        runner.printReport(System.out);
+    }
+}
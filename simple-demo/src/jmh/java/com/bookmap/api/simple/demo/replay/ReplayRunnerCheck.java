@@ -0,0 +1,82 @@
+package com.bookmap.api.simple.demo.replay;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Random;
+
+import com.bookmap.api.simple.demo.indicators.AtrTrailingStop;
+import com.bookmap.api.simple.demo.indicators.IntrinsicPrice;
+import com.bookmap.api.simple.demo.indicators.VolumeTracker;
+import com.bookmap.api.simple.demo.strategies.StopLossRandomizerSettings;
+
+import velox.api.layer1.simplified.CustomModule;
+
+/**
+ * Writes an hour of synthetic SpecificFormatRecorder depth and trades, loads
+ * it with {@link ReplayFeed} and replays it into VolumeTracker,
+ * IntrinsicPrice, AtrTrailingStop and StopLossRandomizerSettings. Fails if a
+ * module throws, if not every event was replayed or if an indicator module
+ * added no points.
+ */
+public class ReplayRunnerCheck {
+    private static final int EVENTS = 400_000;
+
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("replay-check", ".txt");
+        try {
+            write(file);
+            ReplayFeed feed = ReplayFeed.load(file, ZoneId.systemDefault());
+            check(feed, new VolumeTracker(), true);
+            check(feed, new IntrinsicPrice(), true);
+            check(feed, new AtrTrailingStop(), true);
+            check(feed, new StopLossRandomizerSettings(), false);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void check(ReplayFeed feed, CustomModule module, boolean hasIndicators)
+            throws ReflectiveOperationException {
+        ReplayRunner runner = new ReplayRunner(feed, 0, module);
+        runner.run();
+        String name = module.getClass().getSimpleName();
+        if (runner.getEventsCount() != feed.size) {
+            throw new IllegalStateException(name + ": " + runner.getEventsCount() + " of " + feed.size
+                    + " events replayed");
+        }
+        if (hasIndicators && runner.getIndicatorPointsCount() == 0) {
+            throw new IllegalStateException(name + " added no indicator points");
+        }
+        System.out.printf(Locale.ROOT, "ReplayRunnerCheck: %s replayed %d events, %d indicator points%n", name,
+                runner.getEventsCount(), runner.getIndicatorPointsCount());
+    }
+
+    private static void write(Path file) throws IOException {
+        Random random = new Random(1);
+        long time = 1_700_000_000_000L;
+        int mid = 16000;
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("f," + time + ",-1,check");
+            out.println("c," + time + ",1,EX,ESZ3,FUT,0.25,50.0,0");
+            for (int i = 0; i < EVENTS; i++) {
+                time += random.nextInt(21);
+                if (random.nextInt(10) < 3) {
+                    mid += random.nextBoolean() ? 1 : -1;
+                }
+                if (random.nextInt(10) == 0) {
+                    out.println("T," + time + ",1," + mid * 0.25 + "," + (1 + random.nextInt(20)) + ","
+                            + (random.nextBoolean() ? 1 : -1) + ",0");
+                } else {
+                    boolean isBid = random.nextBoolean();
+                    int price = isBid ? mid - random.nextInt(21) : mid + 1 + random.nextInt(21);
+                    out.println("r," + time + ",1," + (isBid ? 1 : 0) + "," + price * 0.25 + ","
+                            + random.nextInt(101));
+                }
+            }
+        }
+    }
+}
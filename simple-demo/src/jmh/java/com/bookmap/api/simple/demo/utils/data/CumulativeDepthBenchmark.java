@@ -0,0 +1,108 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * IntrinsicPrice bars per second with five hypothetical market order sizes:
+ * the depth updates of one 100ms bar followed by average fill prices on both
+ * sides, compared with walking TreeMap books the way IntrinsicPrice did.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CumulativeDepthBenchmark {
+    private static final int[] SIZES = { 1_000, 5_000, 10_000, 25_000, 50_000 };
+    /** 20000 updates per second */
+    private static final int UPDATES_PER_BAR = 2_000;
+
+    private final SyntheticFeed depth = new SyntheticFeed(1 << 18, 20_000, 2_000, 3);
+    private SyntheticFeed.Cursor cursor;
+    private CumulativeDepth bids;
+    private CumulativeDepth asks;
+    private TreeMap<Integer, Long> bidMap;
+    private TreeMap<Integer, Long> askMap;
+
+    @Setup
+    public void setup() {
+        cursor = depth.new Cursor();
+        bids = new CumulativeDepth(true);
+        asks = new CumulativeDepth(false);
+        bidMap = new TreeMap<>(Collections.reverseOrder());
+        askMap = new TreeMap<>();
+        for (int i = 0; i < depth.prices.length; i++) {
+            onDepth(i);
+        }
+    }
+
+    private void onDepth(int i) {
+        (depth.isBid[i] ? bids : asks).onUpdate(depth.prices[i], depth.sizes[i]);
+        TreeMap<Integer, Long> map = depth.isBid[i] ? bidMap : askMap;
+        if (depth.sizes[i] == 0) {
+            map.remove(depth.prices[i]);
+        } else {
+            map.put(depth.prices[i], (long) depth.sizes[i]);
+        }
+    }
+
+    @Benchmark
+    public double cumulativeDepth() {
+        for (int j = 0; j < UPDATES_PER_BAR; j++) {
+            int i = cursor.next();
+            (depth.isBid[i] ? bids : asks).onUpdate(depth.prices[i], depth.sizes[i]);
+        }
+        double result = 0;
+        for (int size : SIZES) {
+            result += (bids.getAverageFillPrice(size) + asks.getAverageFillPrice(size)) / 2;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double treeMapWalk() {
+        for (int j = 0; j < UPDATES_PER_BAR; j++) {
+            int i = cursor.next();
+            TreeMap<Integer, Long> map = depth.isBid[i] ? bidMap : askMap;
+            if (depth.sizes[i] == 0) {
+                map.remove(depth.prices[i]);
+            } else {
+                map.put(depth.prices[i], (long) depth.sizes[i]);
+            }
+        }
+        double result = 0;
+        for (int size : SIZES) {
+            result += (calcIntrinsic(bidMap, size) + calcIntrinsic(askMap, size)) / 2;
+        }
+        return result;
+    }
+
+    private static double calcIntrinsic(TreeMap<Integer, Long> book, int size) {
+        double executionPrice = 0;
+        int hmoSize = size;
+        for (Entry<Integer, Long> entry : book.entrySet()) {
+            if (hmoSize == 0) {
+                break;
+            }
+            long matchedSize = Math.min(entry.getValue(), hmoSize);
+            hmoSize -= matchedSize;
+            executionPrice += entry.getKey() * matchedSize;
+        }
+        return hmoSize == 0 ? executionPrice / size : Double.NaN;
+    }
+}
@@ -0,0 +1,155 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Replays random depth updates into {@link CumulativeDepth} sides and TreeMap
+ * books and fails unless average fill prices of random market order sizes
+ * match walking the TreeMap levels from the best price the way IntrinsicPrice
+ * did (within 1e-12 of the largest price of the side), and are NaN in the same
+ * cases. Sizes range from a part of the best level to more than the whole
+ * side; levels up to 1M ticks from the market on either end make the trees
+ * grow, shift and keep levels aside, the market drifts and jumps, and now and
+ * then bad ticks come 50M ticks away or at the ends of the int range, on
+ * either side of the market.
+ */
+public class CumulativeDepthCheck {
+    private static final int UPDATES = 200_000;
+    private static final double TOLERANCE = 1e-12;
+    private static final int BAD_TICK_DISTANCE = 50_000_000;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        CumulativeDepth[] sides = { new CumulativeDepth(true), new CumulativeDepth(false) };
+        @SuppressWarnings("unchecked")
+        TreeMap<Integer, Long>[] maps = new TreeMap[] { new TreeMap<Integer, Long>(Collections.reverseOrder()),
+                new TreeMap<Integer, Long>() };
+        int mid = 100_000;
+        long queries = 0;
+        long nanQueries = 0;
+        long badTicks = 0;
+        double maxError = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            int kind = random.nextInt(10_000);
+            if (kind < 3) {
+                mid += (random.nextBoolean() ? 1 : -1) * random.nextInt(5_000);
+            } else if (random.nextInt(4) == 0) {
+                mid += random.nextInt(3) - 1;
+            }
+            int side = random.nextInt(2);
+            TreeMap<Integer, Long> map = maps[side];
+            int price;
+            int size = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(random.nextInt(20) == 0 ? 100_000 : 500);
+            if (kind < 2) {
+                // Bad ticks, better or worse than the market
+                switch (random.nextInt(4)) {
+                case 0:
+                    price = Integer.MIN_VALUE + 5 - random.nextInt(3);
+                    break;
+                case 1:
+                    price = Integer.MAX_VALUE - 5 + random.nextInt(3);
+                    break;
+                default:
+                    price = mid + (random.nextBoolean() ? 1 : -1) * (BAD_TICK_DISTANCE + random.nextInt(1_000));
+                    break;
+                }
+                badTicks++;
+            } else if (kind < 10) {
+                // Far levels grow the trees on either end and beyond their largest span
+                price = mid + (random.nextBoolean() ? 1 : -1) * (10_000 + random.nextInt(1_000_000));
+            } else if (kind < 200 && !map.isEmpty()) {
+                price = random.nextBoolean() ? map.firstKey() : map.lastKey();
+                size = 0;
+            } else {
+                price = side == 0 ? mid - random.nextInt(300) : mid + 1 + random.nextInt(300);
+            }
+            sides[side].onUpdate(price, size);
+            if (size == 0) {
+                map.remove(price);
+            } else {
+                map.put(price, (long) size);
+            }
+
+            if (random.nextInt(4) == 0) {
+                int querySide = random.nextInt(2);
+                long total = sum(maps[querySide]);
+                if (sides[querySide].getTotalSize() != total) {
+                    throw new IllegalStateException("Update " + i + ": total size "
+                            + sides[querySide].getTotalSize() + " instead of " + total);
+                }
+                long orderSize;
+                switch (random.nextInt(4)) {
+                case 0:
+                    orderSize = 1 + random.nextInt(100);
+                    break;
+                case 1:
+                    orderSize = total + random.nextInt(3) - 1;
+                    break;
+                default:
+                    orderSize = 1 + (long) (random.nextDouble() * 1.2 * total);
+                    break;
+                }
+                double expected = walk(maps[querySide], orderSize);
+                double actual = sides[querySide].getAverageFillPrice(orderSize);
+                if (Double.isNaN(expected) || Double.isNaN(actual)) {
+                    if (Double.isNaN(expected) != Double.isNaN(actual)) {
+                        throw new IllegalStateException("Update " + i + ": size " + orderSize + " fills at "
+                                + actual + " instead of " + expected);
+                    }
+                    nanQueries++;
+                } else {
+                    // Bad ticks at both ends of the range can average to about 0
+                    double scale = Math.max(Math.abs(expected), Math.max(Math.abs((double) maps[querySide].firstKey()),
+                            Math.abs((double) maps[querySide].lastKey())));
+                    double error = Math.abs(actual - expected) / scale;
+                    if (!(error <= TOLERANCE)) {
+                        throw new IllegalStateException("Update " + i + ": size " + orderSize + " fills at "
+                                + actual + " instead of " + expected);
+                    }
+                    maxError = Math.max(maxError, error);
+                }
+                queries++;
+            }
+        }
+        System.out.printf("CumulativeDepthCheck: %d queries (%d NaN) match the TreeMap walk with %d bad ticks, max"
+                + " relative error %.1e%n", queries, nanQueries, badTicks, maxError);
+    }
+
+    private static long sum(TreeMap<Integer, Long> map) {
+        long sum = 0;
+        for (long size : map.values()) {
+            sum += size;
+        }
+        return sum;
+    }
+
+    /**
+     * IntrinsicPrice calcIntrinsic with the order size as a parameter, summing
+     * in a BigInteger so that the reference itself neither rounds nor
+     * overflows at the ends of the int range
+     */
+    private static double walk(TreeMap<Integer, Long> book, long size) {
+        if (size <= 0) {
+            return Double.NaN;
+        }
+        BigInteger executionPrice = BigInteger.ZERO;
+        long hmoSize = size;
+        for (Entry<Integer, Long> entry : book.entrySet()) {
+            if (hmoSize == 0) {
+                break;
+            }
+            long matchedSize = Math.min(entry.getValue(), hmoSize);
+            hmoSize -= matchedSize;
+            executionPrice = executionPrice.add(BigInteger.valueOf((long) entry.getKey() * matchedSize));
+        }
+        return hmoSize == 0
+                ? new BigDecimal(executionPrice).divide(BigDecimal.valueOf(size), MathContext.DECIMAL128).doubleValue()
+                : Double.NaN;
+    }
+}
@@ -0,0 +1,106 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ExponentialSum and ExponentialAverage against the Math.exp implementation
+ * they replaced, on trade timestamps (arbitrary deltas) and on a fixed 50ms
+ * interval (cached decay factor).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExponentialBenchmark {
+    private final SyntheticFeed trades = new SyntheticFeed(1 << 16, 2_000, 5, 1);
+    private SyntheticFeed.Cursor cursor;
+    private ExponentialSum sum;
+    private ExponentialAverage average;
+    private MathExpSum mathExpSum;
+    private long intervalTime;
+
+    /** ExponentialSum as it was before ExponentialDecay */
+    private static class MathExpSum {
+        private double value = 0;
+        private Long nanosecondsPrev = null;
+        private final double halfLifeFactor;
+
+        MathExpSum(long halfLifeNanoseconds) {
+            this.halfLifeFactor = -Math.log(2) / halfLifeNanoseconds;
+        }
+
+        void onUpdate(long nanoseconds, double x) {
+            value = getRawValue(nanoseconds) + x;
+            nanosecondsPrev = nanoseconds;
+        }
+
+        double getValue(long nanoseconds) {
+            return Math.log(2) * getRawValue(nanoseconds);
+        }
+
+        private double getRawValue(long nanoseconds) {
+            if (nanosecondsPrev == null || nanoseconds < nanosecondsPrev) {
+                nanosecondsPrev = nanoseconds;
+            }
+            return value * Math.exp((nanoseconds - nanosecondsPrev) * halfLifeFactor);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        cursor = trades.new Cursor();
+        sum = new ExponentialSum(TimeUnit.SECONDS.toNanos(10));
+        average = new ExponentialAverage(TimeUnit.SECONDS.toNanos(10));
+        mathExpSum = new MathExpSum(TimeUnit.SECONDS.toNanos(10));
+        intervalTime = 0;
+    }
+
+    @Benchmark
+    public double exponentialSum() {
+        int i = cursor.next();
+        sum.onUpdate(cursor.nanoseconds(), trades.sizes[i]);
+        return sum.getValue(cursor.nanoseconds());
+    }
+
+    @Benchmark
+    public double exponentialAverage() {
+        int i = cursor.next();
+        return average.onUpdate(cursor.nanoseconds(), trades.prices[i]);
+    }
+
+    @Benchmark
+    public double mathExpSum() {
+        int i = cursor.next();
+        mathExpSum.onUpdate(cursor.nanoseconds(), trades.sizes[i]);
+        return mathExpSum.getValue(cursor.nanoseconds());
+    }
+
+    @Benchmark
+    public double exponentialSumFixedInterval() {
+        int i = cursor.next();
+        intervalTime += TimeUnit.MILLISECONDS.toNanos(50);
+        sum.onUpdate(intervalTime, trades.sizes[i]);
+        return sum.getValue(intervalTime);
+    }
+
+    @Benchmark
+    public double mathExpSumFixedInterval() {
+        int i = cursor.next();
+        intervalTime += TimeUnit.MILLISECONDS.toNanos(50);
+        mathExpSum.onUpdate(intervalTime, trades.sizes[i]);
+        return mathExpSum.getValue(intervalTime);
+    }
+}
@@ -0,0 +1,100 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails unless {@link ExponentialDecay} stays within 1e-10 relative of
+ * Math.pow and Math.exp: for half lives from nanoseconds up to 1022 half
+ * lives (below that factors are 0), for deltas on table boundaries and
+ * between them, and for factors served from the cache while deltas repeat or
+ * alternate. Then runs {@link ExponentialSum} and {@link ExponentialAverage}
+ * against Math.exp versions that decay by the time since the previous update
+ * over random trade times and a fixed 50ms interval, within 1e-8 relative.
+ */
+public class ExponentialDecayCheck {
+    private static final double TOLERANCE = 1e-10;
+    /** Factor errors add up over the updates within a few half lives */
+    private static final double VALUE_TOLERANCE = 1e-8;
+    private static final int SAMPLES = 20_000_000;
+    private static final long HALF_LIFE = TimeUnit.SECONDS.toNanos(10);
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        double maxError = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double halfLives;
+            switch (i % 4) {
+            case 0:
+                // Table boundaries
+                halfLives = random.nextInt(1022 * 1024) / 1024.0;
+                break;
+            case 1:
+                halfLives = random.nextDouble() * 1022;
+                break;
+            case 2:
+                halfLives = random.nextDouble() * 1e-3;
+                break;
+            default:
+                halfLives = random.nextDouble() * 4;
+                break;
+            }
+            double expected = Math.pow(2, -halfLives);
+            maxError = Math.max(maxError, checkRelative(ExponentialDecay.powerOfHalf(halfLives), expected,
+                    TOLERANCE, "powerOfHalf(" + halfLives + ")"));
+        }
+        if (ExponentialDecay.powerOfHalf(1022) != 0 || ExponentialDecay.powerOfHalf(0) != 1) {
+            throw new IllegalStateException("Wrong bounds: " + ExponentialDecay.powerOfHalf(1022) + ", "
+                    + ExponentialDecay.powerOfHalf(0));
+        }
+
+        // Cached factors while deltas repeat, alternate or change
+        ExponentialDecay decay = new ExponentialDecay(HALF_LIFE);
+        long[] deltas = { TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100), 0, 1 };
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            long dt = random.nextInt(3) == 0 ? random.nextInt(Integer.MAX_VALUE) : deltas[random.nextInt(4)];
+            double expected = Math.exp(-Math.log(2) * dt / HALF_LIFE);
+            maxError = Math.max(maxError, checkRelative(decay.getFactor(dt), expected, TOLERANCE,
+                    "getFactor(" + dt + ")"));
+        }
+
+        double maxSumError = 0;
+        double maxAverageError = 0;
+        ExponentialSum sum = new ExponentialSum(HALF_LIFE);
+        ExponentialAverage average = new ExponentialAverage(HALF_LIFE);
+        double expectedSum = 0;
+        double expectedAverage = 0;
+        long time = 0;
+        long previousTime = 0;
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            if (i < SAMPLES / 20) {
+                time += random.nextInt(5) == 0 ? random.nextInt(1_000_000_000) : random.nextInt(1_000_000);
+            } else {
+                time += TimeUnit.MILLISECONDS.toNanos(50);
+            }
+            double x = 1 + random.nextInt(100);
+            double w = Math.exp(-Math.log(2) * (time - previousTime) / HALF_LIFE);
+            expectedSum = expectedSum * w + x;
+            expectedAverage = i == 0 ? x : w * expectedAverage + (1 - w) * x;
+            previousTime = time;
+
+            sum.onUpdate(time, x);
+            double actualAverage = average.onUpdate(time, x);
+            maxSumError = Math.max(maxSumError, checkRelative(sum.getValue(time), Math.log(2) * expectedSum,
+                    VALUE_TOLERANCE, "sum at update " + i));
+            maxAverageError = Math.max(maxAverageError,
+                    checkRelative(actualAverage, expectedAverage, VALUE_TOLERANCE, "average at update " + i));
+        }
+        System.out.printf("ExponentialDecayCheck: max relative error %.1e decay, %.1e sum, %.1e average%n",
+                maxError, maxSumError, maxAverageError);
+    }
+
+    /** @return relative error */
+    private static double checkRelative(double actual, double expected, double tolerance, String what) {
+        double error = expected == 0 ? Math.abs(actual) : Math.abs(actual - expected) / expected;
+        if (!(error <= tolerance)) {
+            throw new IllegalStateException(what + ": " + actual + " instead of " + expected);
+        }
+        return error;
+    }
+}
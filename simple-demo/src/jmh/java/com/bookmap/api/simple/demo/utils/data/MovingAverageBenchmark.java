@@ -0,0 +1,41 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovingAverageBenchmark {
+    private final SyntheticFeed trades = new SyntheticFeed(1 << 16, 2_000, 5, 1);
+    private SyntheticFeed.Cursor cursor;
+    private MovingAverage movingAverage;
+
+    @Param({ "14", "200" })
+    public int period;
+
+    @Setup
+    public void setup() {
+        cursor = trades.new Cursor();
+        movingAverage = new MovingAverage(period);
+    }
+
+    @Benchmark
+    public double update() {
+        return movingAverage.update(trades.prices[cursor.next()]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Replays depth updates into {@link OrderBookBase} and the TreeMap book it
+ * replaced and fails on the first difference in returned previous sizes,
+ * best prices, level sizes or level counts. Besides the synthetic feed the
+ * updates include bad ticks far from the market, stop levels millions of
+ * ticks away, prices near the int range limits and a market drifting over
+ * more than the ladder array span.
+ */
+public class OrderBookBaseCheck {
+    private static final int UPDATES = 4_000_000;
+
+    public static void main(String[] args) {
+        SyntheticFeed feed = new SyntheticFeed(1 << 18, 20_000, 50, 1);
+        OrderBookBase book = new OrderBookBase();
+        TreeMapOrderBook reference = new TreeMapOrderBook();
+        for (int i = 0; i < feed.prices.length; i++) {
+            check(book, reference, feed.isBid[i], feed.prices[i], feed.sizes[i], i);
+        }
+
+        Random random = new Random(1);
+        book = new OrderBookBase();
+        reference = new TreeMapOrderBook();
+        int mid = 0;
+        for (int i = 0; i < UPDATES; i++) {
+            // Drifts by about 100K ticks over the run, past the ladder array span
+            if (random.nextInt(4) == 0) {
+                mid += random.nextInt(3) - 1;
+            }
+            if (random.nextInt(40) == 0) {
+                mid++;
+            }
+            boolean isBid = random.nextBoolean();
+            int price;
+            int kind = random.nextInt(1000);
+            if (kind == 0) {
+                price = mid + (random.nextBoolean() ? 1 : -1) * (100_000 + random.nextInt(10_000_000));
+            } else if (kind == 1) {
+                price = random.nextBoolean() ? Integer.MAX_VALUE - random.nextInt(3) : Integer.MIN_VALUE + random.nextInt(3);
+            } else if (kind < 20) {
+                // Remove a known outlier or the best level
+                TreeMap<Integer, Integer> side = isBid ? reference.bids : reference.asks;
+                if (!side.isEmpty()) {
+                    price = random.nextBoolean() ? side.firstKey() : side.lastKey();
+                    check(book, reference, isBid, price, 0, i);
+                }
+                continue;
+            } else {
+                price = isBid ? mid - random.nextInt(200) : mid + 1 + random.nextInt(200);
+            }
+            int size = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+            check(book, reference, isBid, price, size, i);
+            if (i % 100_000 == 0) {
+                compareMaps(book, reference, i);
+            }
+        }
+        compareMaps(book, reference, UPDATES);
+        System.out.println("OrderBookBase matches the TreeMap book on " + (feed.prices.length + UPDATES) + " updates");
+    }
+
+    private static void check(OrderBookBase book, TreeMapOrderBook reference, boolean isBid, int price, int size, int i) {
+        int previous = book.onDepth(isBid, price, size);
+        int expectedPrevious = reference.onDepth(isBid, price, size);
+        if (previous != expectedPrevious) {
+            fail(i, "previous size " + previous + " instead of " + expectedPrevious);
+        }
+        checkSide(isBid ? book.bids : book.asks, isBid ? reference.bids : reference.asks, price, i);
+    }
+
+    private static void checkSide(PriceLadder ladder, TreeMap<Integer, Integer> side, int price, int i) {
+        if (ladder.getLevelsCount() != side.size() || ladder.isEmpty() != side.isEmpty()) {
+            fail(i, ladder.getLevelsCount() + " levels instead of " + side.size());
+        }
+        if (!side.isEmpty() && (ladder.getBestPrice() != side.firstKey() || ladder.getBestSize() != side.firstEntry().getValue())) {
+            fail(i, "best " + ladder.getBestPrice() + " instead of " + side.firstKey());
+        }
+        if (ladder.getSize(price) != side.getOrDefault(price, 0)) {
+            fail(i, "size at " + price);
+        }
+    }
+
+    private static void compareMaps(OrderBookBase book, TreeMapOrderBook reference, int i) {
+        if (!book.bids.toTreeMap().equals(reference.bids) || !book.asks.toTreeMap().equals(reference.asks)) {
+            fail(i, "levels differ");
+        }
+    }
+
+    private static void fail(int i, String message) {
+        throw new IllegalStateException("Update " + i + ": " + message);
+    }
+}
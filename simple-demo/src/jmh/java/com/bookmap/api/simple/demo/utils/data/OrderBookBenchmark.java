@@ -0,0 +1,77 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Depth updates into the order books. onDepthBase and onDepthTreeMap compare
+ * the price ladders of OrderBookBase with the boxed TreeMaps it used before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+    private final SyntheticFeed depth = new SyntheticFeed(1 << 18, 20_000, 50, 2);
+    private SyntheticFeed.Cursor cursor;
+    private OrderBookBase orderBookBase;
+    private TreeMapOrderBook treeMapOrderBook;
+    private OrderBookSum orderBookSum;
+    private OrderBookExponential orderBookExponential;
+
+    @Setup
+    public void setup() {
+        cursor = depth.new Cursor();
+        orderBookBase = new OrderBookBase();
+        treeMapOrderBook = new TreeMapOrderBook();
+        orderBookSum = new OrderBookSum(10);
+        orderBookExponential = new OrderBookExponential(10);
+    }
+
+    @Benchmark
+    public int onDepthBase() {
+        int i = cursor.next();
+        return orderBookBase.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+    }
+
+    @Benchmark
+    public int onDepthTreeMap() {
+        int i = cursor.next();
+        return treeMapOrderBook.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+    }
+
+    @Benchmark
+    public int onDepth() {
+        int i = cursor.next();
+        return orderBookSum.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+    }
+
+    @Benchmark
+    public int onDepthExponential() {
+        int i = cursor.next();
+        return orderBookExponential.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+    }
+
+    /**
+     * Depth update followed by a liquidity query, an upper bound for
+     * LiquidityTracker which queries every 100ms
+     */
+    @Benchmark
+    public int onDepthAndSizeSum() {
+        int i = cursor.next();
+        orderBookSum.onDepth(depth.isBid[i], depth.prices[i], depth.sizes[i]);
+        return orderBookSum.getSizeSum(depth.isBid[i]);
+    }
+}
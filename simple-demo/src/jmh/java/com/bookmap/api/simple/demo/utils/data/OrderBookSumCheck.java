@@ -0,0 +1,89 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Replays random depth updates into {@link OrderBookSum} and the TreeMap book
+ * and fails unless the sums of both sides match walking the top levels of the
+ * TreeMap after every update. Window sizes go from 0 to wider than the book,
+ * best prices move by single ticks, jump by less and by more than the window
+ * in both directions, sides are emptied and refilled, and levels far from
+ * the market come and go.
+ */
+public class OrderBookSumCheck {
+    private static final int UPDATES = 300_000;
+    private static final int[] LEVELS = { 0, 1, 2, 3, 5, 10, 14, 50, 200 };
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        long comparisons = 0;
+        for (int levels : LEVELS) {
+            OrderBookSum book = new OrderBookSum(levels);
+            TreeMapOrderBook reference = new TreeMapOrderBook();
+            int mid = 10_000;
+            for (int i = 0; i < UPDATES; i++) {
+                int kind = random.nextInt(1000);
+                if (kind < 5) {
+                    // Jump, often farther than the window
+                    mid += (random.nextBoolean() ? 1 : -1) * random.nextInt(2 * levels + 20);
+                } else if (random.nextInt(4) == 0) {
+                    mid += random.nextInt(3) - 1;
+                }
+                boolean isBid = random.nextBoolean();
+                TreeMap<Integer, Integer> side = isBid ? reference.bids : reference.asks;
+                if (kind < 8) {
+                    // Empty the side level by level, best first
+                    while (!side.isEmpty()) {
+                        update(book, reference, isBid, side.firstKey(), 0, levels, i);
+                        comparisons++;
+                    }
+                    continue;
+                }
+                int price;
+                int size = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+                if (kind < 100 && !side.isEmpty()) {
+                    // Remove or change the best level
+                    price = side.firstKey();
+                    size = random.nextBoolean() ? 0 : size;
+                } else if (kind < 110) {
+                    price = mid + (random.nextBoolean() ? 1 : -1) * (1_000 + random.nextInt(100_000));
+                } else {
+                    // Crossing the other side now and then, the book does not prevent it
+                    price = isBid ? mid - random.nextInt(60) + 2 : mid + random.nextInt(60) - 1;
+                }
+                update(book, reference, isBid, price, size, levels, i);
+                comparisons++;
+            }
+        }
+        System.out.printf("OrderBookSumCheck: %d updates match the TreeMap walk on both sides%n", comparisons);
+    }
+
+    private static void update(OrderBookSum book, TreeMapOrderBook reference, boolean isBid, int price, int size,
+            int levels, int i) {
+        book.onDepth(isBid, price, size);
+        reference.onDepth(isBid, price, size);
+        for (boolean side : new boolean[] { true, false }) {
+            int expected = sum(side ? reference.bids : reference.asks, side, levels);
+            int actual = book.getSizeSum(side);
+            if (actual != expected) {
+                throw new IllegalStateException("Levels " + levels + ", update " + i + ": " + (side ? "bid" : "ask")
+                        + " sum " + actual + " instead of " + expected);
+            }
+        }
+    }
+
+    /** Sum of the levels ticks from the best price, as getSizeSum walked it */
+    private static int sum(TreeMap<Integer, Integer> side, boolean isBid, int levels) {
+        if (side.isEmpty()) {
+            return 0;
+        }
+        int best = side.firstKey();
+        int step = isBid ? -1 : 1;
+        int sum = 0;
+        for (int i = 0; i < levels; i++) {
+            sum += side.getOrDefault(best + step * i, 0);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Random;
+
+public class SyntheticFeed {
+    public final long[] nanoseconds;
+    public final boolean[] isBid;
+    public final int[] prices;
+    public final int[] sizes;
+    public final long durationNanoseconds;
+
+    /**
+     * Pre-generates a random walk feed so that generation cost is not measured.
+     * Events arrive with exponentially distributed gaps at given rate and are
+     * placed within a few levels of a mid price that moves by one tick at a
+     * time. Roughly a third of the events have zero size (level removal for
+     * depth data).
+     * 
+     * @param count number of events
+     * @param eventsPerSecond average event rate
+     * @param levels max distance of an event from the mid price
+     * @param seed random seed, same seed gives the same feed
+     */
+    public SyntheticFeed(int count, double eventsPerSecond, int levels, long seed) {
+        Random random = new Random(seed);
+        nanoseconds = new long[count];
+        isBid = new boolean[count];
+        prices = new int[count];
+        sizes = new int[count];
+        long time = 0;
+        int mid = 100_000;
+        for (int i = 0; i < count; i++) {
+            time += (long) (-Math.log(1 - random.nextDouble()) / eventsPerSecond * 1e9);
+            if (random.nextInt(100) == 0) {
+                mid += random.nextBoolean() ? 1 : -1;
+            }
+            nanoseconds[i] = time;
+            isBid[i] = random.nextBoolean();
+            prices[i] = isBid[i] ? mid - random.nextInt(levels) : mid + 1 + random.nextInt(levels);
+            sizes[i] = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(100);
+        }
+        durationNanoseconds = time + 1;
+    }
+
+    /**
+     * Cycles through events; timestamps keep growing after wrap around
+     */
+    public class Cursor {
+        private int index = -1;
+        private long timeShift = 0;
+
+        public int next() {
+            if (++index == nanoseconds.length) {
+                index = 0;
+                timeShift += durationNanoseconds;
+            }
+            return index;
+        }
+
+        public long nanoseconds() {
+            return nanoseconds[index] + timeShift;
+        }
+    }
+}
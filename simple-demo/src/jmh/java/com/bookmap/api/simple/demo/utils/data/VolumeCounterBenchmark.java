@@ -0,0 +1,68 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookmap.api.simple.demo.utils.data.VolumeCounter.VolumeCounterType;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VolumeCounterBenchmark {
+    private static final int BURST_SIZE = 10_000;
+
+    private final SyntheticFeed trades = new SyntheticFeed(1 << 16, 2_000, 5, 1);
+    private SyntheticFeed.Cursor cursor;
+    private VolumeCounter volumeCounter;
+
+    @Param({ "EXPONENTIAL", "MOVING_SUM", "CUMULATIVE" })
+    public VolumeCounterType type;
+
+    @Setup
+    public void setup() {
+        cursor = trades.new Cursor();
+        volumeCounter = new VolumeCounter(TimeUnit.MINUTES.toNanos(10), type);
+    }
+
+    /**
+     * One trade followed by a volume query, like VolatilityIndicator does on
+     * every trade
+     */
+    @Benchmark
+    public double onTrade() {
+        int i = cursor.next();
+        long nanoseconds = cursor.nanoseconds();
+        volumeCounter.onTrade(nanoseconds, trades.isBid[i], trades.sizes[i] + 1);
+        return volumeCounter.getVolume(nanoseconds, trades.isBid[i]);
+    }
+
+    /**
+     * Burst of trades within one millisecond which all expire at once, the
+     * worst case for moving sum eviction. Reported time is per trade.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public double burst() {
+        long start = cursor.nanoseconds() + TimeUnit.MINUTES.toNanos(20);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            volumeCounter.onTrade(start + i * 100, true, 1);
+        }
+        cursor.next();
+        return volumeCounter.getVolume(cursor.nanoseconds() + TimeUnit.MINUTES.toNanos(40), true);
+    }
+}
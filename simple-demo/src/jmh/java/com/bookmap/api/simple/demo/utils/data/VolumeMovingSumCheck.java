@@ -0,0 +1,85 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.bookmap.api.simple.demo.utils.data.VolumeCounter.VolumeCounterType;
+
+/**
+ * Feeds random trades and volume queries into a moving sum
+ * {@link VolumeCounter} and the list based moving sum it replaced, and fails
+ * on the first different volume. Trades come in bursts sharing a timestamp,
+ * with gaps longer than the window and occasional out of order times;
+ * queries are made after random numbers of trades so that the ring buffer
+ * grows and wraps around.
+ */
+public class VolumeMovingSumCheck {
+    private static final int TRADES = 5_000_000;
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    /** Moving sum as it was implemented before the ring buffer */
+    private static class ListMovingSum {
+        private final ArrayList<Pair<Long, Integer>> trades = new ArrayList<>();
+        private long volume = 0;
+
+        void onTrade(long nanoseconds, int size) {
+            trades.add(new MutablePair<Long, Integer>(nanoseconds, size));
+            volume += size;
+        }
+
+        double getVolume(long nanoseconds) {
+            Iterator<Pair<Long, Integer>> iterator = trades.iterator();
+            while (iterator.hasNext()) {
+                Pair<Long, Integer> pair = iterator.next();
+                if (pair.getKey() < nanoseconds - INTERVAL) {
+                    iterator.remove();
+                    volume -= pair.getValue();
+                } else {
+                    break;
+                }
+            }
+            return volume;
+        }
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        VolumeCounter counter = new VolumeCounter(INTERVAL, VolumeCounterType.MOVING_SUM);
+        ListMovingSum[] references = { new ListMovingSum(), new ListMovingSum() };
+        long time = 0;
+        long queries = 0;
+        for (int i = 0; i < TRADES; i++) {
+            int kind = random.nextInt(10_000);
+            if (kind == 0) {
+                // Gap after which everything expires
+                time += INTERVAL + random.nextInt(1_000_000_000);
+            } else if (kind < 5) {
+                // Trade reported with an earlier time
+                time -= random.nextInt(1_000_000);
+            } else if (random.nextInt(4) != 0) {
+                time += random.nextInt(5_000_000);
+            }
+            boolean isBuy = random.nextBoolean();
+            int size = 1 + random.nextInt(random.nextInt(50) == 0 ? 10_000 : 10);
+            counter.onTrade(time, isBuy, size);
+            references[isBuy ? 1 : 0].onTrade(time, size);
+
+            if (random.nextInt(random.nextInt(100) == 0 ? 5_000 : 3) == 0) {
+                long queryTime = time + (random.nextInt(10) == 0 ? random.nextInt(1_000_000_000) : 0);
+                boolean isBid = random.nextBoolean();
+                double expected = references[isBid ? 1 : 0].getVolume(queryTime);
+                double actual = counter.getVolume(queryTime, isBid);
+                if (expected != actual) {
+                    throw new IllegalStateException("Trade " + i + ": volume " + actual + " instead of " + expected);
+                }
+                queries++;
+            }
+        }
+        System.out.printf("VolumeMovingSumCheck: %d trades, %d queries match%n", TRADES, queries);
+    }
+}
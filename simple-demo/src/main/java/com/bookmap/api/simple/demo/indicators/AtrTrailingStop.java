@@ -2,11 +2,8 @@ package com.bookmap.api.simple.demo.indicators;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.TimeZone;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1SimpleAttachable;
@@ -32,6 +29,9 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
         SnapshotEndListener, HistoricalModeListener, TimeListener {
 
     private static final long defaultRecordingBarPeriod = Intervals.INTERVAL_1_SECOND;
+    // reload replays this many ATR periods, enough for the average to converge
+    private static final int reloadAtrPeriods = 5;
+    private static final int maxHistoryIntervals = 1 << 18;
 
     private static enum Trend {
         Up, Down, Undefined
@@ -54,18 +54,16 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
     private Bar compositeBar = new Bar();
     private Bar bboBidBar = new Bar();
     private Bar bboAskBar = new Bar();
-    private Bar tbar = new Bar();
     
     private final Object lock = new Object();
     private long intervalNumber;
     
-    private List<ImmutablePair <Long, Bar>> bars = new LinkedList<>();
-    private List<ImmutablePair <Long, Bar>> bids = new LinkedList<>();
-    private List<ImmutablePair <Long, Bar>> asks = new LinkedList<>();
+    private IntervalHistory history;
     
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
         super.initialize(alias, info, api, initialState);
+        history = new IntervalHistory(getHistoryCapacity());
         lastTradePrice = fixPrice(initialState.getLastTradePrice());
         lastBidPrice = lastAskPrice = (int) Math.round(lastTradePrice);
         onAtrUpdated(tr, atr);
@@ -79,19 +77,15 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
     @Override
     public void onInterval() {
         synchronized (lock) {
-            bars.add(new ImmutablePair<Long, Bar>(timestamp, getSemiClone(indivisibleBar)));
-            bids.add(new ImmutablePair<Long, Bar>(timestamp, getSemiClone(bboBidBar)));
-            asks.add(new ImmutablePair<Long, Bar>(timestamp, getSemiClone(bboAskBar)));
+            history.add(timestamp, indivisibleBar, bboBidBar, bboAskBar);
             
             indivisibleBar.startNext();
             bboBidBar.startNext();
             bboAskBar.startNext();
 
-            if (!bars.isEmpty()) {
-                updateAndOrTriggerTrades(bars.size() - 1);
-                updateAndOrTriggerBars(bars.size());
-                updateAndOrTriggerBbo(bars.size() - 1);
-            }
+            updateAndOrTriggerTrades(history.size() - 1);
+            updateAndOrTriggerBars(history.size());
+            updateAndOrTriggerBbo(history.size() - 1);
         }
         intervalNumber++;
     }
@@ -99,11 +93,9 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
     private void updateAndOrTriggerBars(int i) {
         if (isTimeToUpdate()) {
             int k = (int) (settings.barPeriod / 1_000_000_000L);
-            List<ImmutablePair <Long, Bar>> granularBars  = bars.subList(i - Math.min(k, i), i);
-            
-            for (ImmutablePair <Long, Bar> pair : granularBars) {
-                compositeBar.addTrade(true, 1, pair.right.getHigh());
-                compositeBar.addTrade(true, 1, pair.right.getLow());
+            for (int j = i - Math.min(k, i); j < i; j++) {
+                compositeBar.addTrade(true, 1, history.getHigh(j));
+                compositeBar.addTrade(true, 1, history.getLow(j));
             }
 
             double preCalculatedTr = settings.multiplier * (compositeBar.getHigh() - compositeBar.getLow());
@@ -121,25 +113,25 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
     }
     
     private void updateAndOrTriggerTrades(int i) {
-        tbar = bars.get(i).getRight();
-
-        if (!Double.isNaN(tbar.getClose())) {
-            if (tbar.getHigh() > Math.max(tbar.getOpen(), tbar.getClose())) {
-                updateLastTrades(tbar.getHigh());
+        double open = history.getOpen(i);
+        double high = history.getHigh(i);
+        double low = history.getLow(i);
+        double close = history.getClose(i);
+
+        if (!Double.isNaN(close)) {
+            if (high > Math.max(open, close)) {
+                updateLastTrades(high);
             }
-            if (tbar.getLow() < Math.min(tbar.getOpen(), tbar.getClose())) {
-                updateLastTrades(tbar.getLow());
+            if (low < Math.min(open, close)) {
+                updateLastTrades(low);
             }
-            updateLastTrades(tbar.getClose());
+            updateLastTrades(close);
         }
     }
     
     private void updateAndOrTriggerBbo(int i) {
-        Bar askBar = asks.get(i).getRight();
-        Bar bidBar = bids.get(i).getRight();
-
-        checkBboUpdates(askBar.getHigh(), bidBar.getLow());
-        checkBboUpdates(askBar.getClose(), bidBar.getClose());
+        checkBboUpdates(history.getAskHigh(i), history.getBidLow(i));
+        checkBboUpdates(history.getAskClose(i), history.getBidClose(i));
     }
     
     private void checkBboUpdates(double askPrice, double bidPrice) {
@@ -251,6 +243,10 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
         case ALL:
         }
         
+        synchronized (lock) {
+            history.setCapacity(getHistoryCapacity());
+        }
+        
         if (!settingsName.equals(SettingsName.RELOAD_CONDITION)) {
             reloadIfshould();
         }
@@ -260,9 +256,11 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
         if (settings.reloadOnChange) {
             synchronized (lock) {
                 resetInstanceFields();
-                int size = bars.size();
-                clearHistoricalIntervals(size);
-                processHistoricalData(size);
+                int size = history.size();
+                if (size > 0) {
+                    clearHistoricalIntervals(size);
+                    processHistoricalData(size);
+                }
             }
         }
     }
@@ -282,25 +280,22 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
         compositeBar = new Bar();
         bboBidBar = new Bar();
         bboAskBar = new Bar();
-        tbar = new Bar();
         
         intervalNumber = 0;
     }
     
     private void clearHistoricalIntervals(int size) {
-        lineBuy.clear(bars.get(0).getLeft(), bars.get(size - 1).getLeft());
-        lineSell.clear(bars.get(0).getLeft(), bars.get(size - 1).getLeft());
+        lineBuy.clear(history.getTime(0), history.getTime(size - 1));
+        lineSell.clear(history.getTime(0), history.getTime(size - 1));
     }
     
     private void processHistoricalData(int size) {
         for (int i = 0; i < size; i++) {
-            this.timestamp = bars.get(i).getLeft();
+            this.timestamp = history.getTime(i);
             
-            if (!bars.isEmpty()) {
-                updateAndOrTriggerTrades(i);
-                updateAndOrTriggerBars(i + 1);
-                updateAndOrTriggerBbo(i);
-            }
+            updateAndOrTriggerTrades(i);
+            updateAndOrTriggerBars(i + 1);
+            updateAndOrTriggerBbo(i);
             intervalNumber++;
         }
     }
@@ -369,13 +364,13 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
         this.timestamp = t;
     }
     
-    private Bar getSemiClone(Bar bar) {
-        Bar semiClone = new Bar();
-        semiClone.setOpen(bar.getOpen());
-        semiClone.setHigh(bar.getHigh());
-        semiClone.setLow(bar.getLow());
-        semiClone.setClose(bar.getClose());
-        return semiClone;
+    /**
+     * Number of recorded intervals to keep: one composite bar for the live
+     * calculation and {@link #reloadAtrPeriods} ATR periods for reload
+     */
+    private int getHistoryCapacity() {
+        long barSeconds = settings.barPeriod / 1_000_000_000L;
+        return (int) Math.min(maxHistoryIntervals, barSeconds * settings.atrNumBars * reloadAtrPeriods + 1);
     }
     
     @Override
@@ -398,4 +393,138 @@ public class AtrTrailingStop extends AtrTrailingStopSettings
             }
         }
     }
+
+    /**
+     * Values of recorded intervals used by the calculation, stored in primitive
+     * ring buffers. Once capacity is reached the oldest interval is
+     * overwritten. Index 0 is the oldest retained interval.
+     */
+    private static class IntervalHistory {
+        private long[] times;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private double[] bidLow;
+        private double[] bidClose;
+        private double[] askHigh;
+        private double[] askClose;
+        private int start = 0;
+        private int size = 0;
+
+        IntervalHistory(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            times = new long[capacity];
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            bidLow = new double[capacity];
+            bidClose = new double[capacity];
+            askHigh = new double[capacity];
+            askClose = new double[capacity];
+        }
+
+        void add(long time, Bar bar, Bar bidBar, Bar askBar) {
+            int index;
+            if (size == times.length) {
+                index = start;
+                start = index(1);
+            } else {
+                index = index(size);
+                size++;
+            }
+            times[index] = time;
+            open[index] = bar.getOpen();
+            high[index] = bar.getHigh();
+            low[index] = bar.getLow();
+            close[index] = bar.getClose();
+            bidLow[index] = bidBar.getLow();
+            bidClose[index] = bidBar.getClose();
+            askHigh[index] = askBar.getHigh();
+            askClose[index] = askBar.getClose();
+        }
+
+        /**
+         * Changes capacity keeping the most recent intervals
+         */
+        void setCapacity(int capacity) {
+            if (capacity == times.length) {
+                return;
+            }
+            IntervalHistory resized = new IntervalHistory(capacity);
+            for (int i = Math.max(0, size - capacity); i < size; i++) {
+                int from = index(i);
+                int to = resized.size++;
+                resized.times[to] = times[from];
+                resized.open[to] = open[from];
+                resized.high[to] = high[from];
+                resized.low[to] = low[from];
+                resized.close[to] = close[from];
+                resized.bidLow[to] = bidLow[from];
+                resized.bidClose[to] = bidClose[from];
+                resized.askHigh[to] = askHigh[from];
+                resized.askClose[to] = askClose[from];
+            }
+            times = resized.times;
+            open = resized.open;
+            high = resized.high;
+            low = resized.low;
+            close = resized.close;
+            bidLow = resized.bidLow;
+            bidClose = resized.bidClose;
+            askHigh = resized.askHigh;
+            askClose = resized.askClose;
+            start = 0;
+            size = resized.size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int index(int i) {
+            int index = start + i;
+            return index >= times.length ? index - times.length : index;
+        }
+
+        long getTime(int i) {
+            return times[index(i)];
+        }
+
+        double getOpen(int i) {
+            return open[index(i)];
+        }
+
+        double getHigh(int i) {
+            return high[index(i)];
+        }
+
+        double getLow(int i) {
+            return low[index(i)];
+        }
+
+        double getClose(int i) {
+            return close[index(i)];
+        }
+
+        double getBidLow(int i) {
+            return bidLow[index(i)];
+        }
+
+        double getBidClose(int i) {
+            return bidClose[index(i)];
+        }
+
+        double getAskHigh(int i) {
+            return askHigh[index(i)];
+        }
+
+        double getAskClose(int i) {
+            return askClose[index(i)];
+        }
+    }
 }
@@ -1,36 +1,79 @@
 package com.bookmap.api.simple.demo.indicators;
 
 import java.awt.Color;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.Arrays;
+
+import com.bookmap.api.simple.demo.utils.data.CumulativeDepth;
 
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1SimpleAttachable;
 import velox.api.layer1.annotations.Layer1StrategyName;
+import velox.api.layer1.common.Log;
 import velox.api.layer1.data.InstrumentInfo;
-import velox.api.layer1.layers.utils.OrderBook;
 import velox.api.layer1.messages.indicators.Layer1ApiUserMessageModifyIndicator.GraphType;
 import velox.api.layer1.simplified.Api;
-import velox.api.layer1.simplified.Bar;
-import velox.api.layer1.simplified.BarDataListener;
 import velox.api.layer1.simplified.CustomModule;
+import velox.api.layer1.simplified.DepthDataListener;
 import velox.api.layer1.simplified.Indicator;
 import velox.api.layer1.simplified.InitialState;
+import velox.api.layer1.simplified.IntervalListener;
 import velox.api.layer1.simplified.Intervals;
+import velox.api.layer1.simplified.Parameter;
 
 @Layer1SimpleAttachable
 @Layer1StrategyName("Intrinsic Price")
-@Layer1ApiVersion(Layer1ApiVersionValue.VERSION1)
-public class IntrinsicPrice implements CustomModule, BarDataListener {
+@Layer1ApiVersion(Layer1ApiVersionValue.VERSION2)
+public class IntrinsicPrice implements CustomModule, DepthDataListener, IntervalListener {
+
+    private static final int DEFAULT_MARKET_ORDER_SIZE = 1000;
+    private static final Color[] COLORS = { Color.WHITE, Color.CYAN, Color.MAGENTA, Color.YELLOW, Color.ORANGE };
+
+    @Parameter(name = "Market order sizes (comma separated)", reloadOnChange = true)
+    String marketOrderSizes = String.valueOf(DEFAULT_MARKET_ORDER_SIZE);
 
-    private int hypotheticalMarketOrderSize = 1000;
-    private Indicator line;
+    /** One line per size, average fill price of market orders of this size on both sides */
+    private int[] hypotheticalMarketOrderSizes;
+    private Indicator[] lines;
+    private final CumulativeDepth bids = new CumulativeDepth(true);
+    private final CumulativeDepth asks = new CumulativeDepth(false);
 
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
-        line = api.registerIndicator("Intrinsic Price", GraphType.PRIMARY);
-        line.setColor(Color.WHITE);
+        hypotheticalMarketOrderSizes = parseSizes(marketOrderSizes);
+        lines = new Indicator[hypotheticalMarketOrderSizes.length];
+        for (int i = 0; i < lines.length; i++) {
+            String name = lines.length == 1 ? "Intrinsic Price" : "Intrinsic Price " + hypotheticalMarketOrderSizes[i];
+            lines[i] = api.registerIndicator(name, GraphType.PRIMARY);
+            lines[i].setColor(COLORS[i % COLORS.length]);
+        }
+    }
+
+    /** Positive sizes in the order given, invalid entries are skipped */
+    private static int[] parseSizes(String text) {
+        int[] sizes = new int[0];
+        for (String entry : text.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                int size = Integer.parseInt(entry);
+                if (size > 0) {
+                    sizes = Arrays.copyOf(sizes, sizes.length + 1);
+                    sizes[sizes.length - 1] = size;
+                    continue;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            Log.warn("Intrinsic Price: ignoring market order size \"" + entry + "\", it has to be a positive integer");
+        }
+        if (sizes.length == 0) {
+            Log.warn("Intrinsic Price: no valid market order sizes, using " + DEFAULT_MARKET_ORDER_SIZE);
+            sizes = new int[] { DEFAULT_MARKET_ORDER_SIZE };
+        }
+        return sizes;
     }
 
     @Override
@@ -43,22 +86,16 @@ public class IntrinsicPrice implements CustomModule, BarDataListener {
     }
 
     @Override
-    public void onBar(OrderBook orderBook, Bar bar) {
-        double intrinsic = (calcIntrinsic(orderBook.getBidMap()) + calcIntrinsic(orderBook.getAskMap())) / 2;
-        line.addPoint(intrinsic);
+    public void onDepth(boolean isBid, int price, int size) {
+        (isBid ? bids : asks).onUpdate(price, size);
     }
 
-    private double calcIntrinsic(final TreeMap<Integer, Long> book) {
-        double executionPrice = 0;
-        int hmoSize = hypotheticalMarketOrderSize;
-        for (Entry<Integer, Long> entry : book.entrySet()) {
-            if (hmoSize == 0) {
-                break;
-            }
-            long matchedSize = Math.min(entry.getValue(), hmoSize);
-            hmoSize -= matchedSize;
-            executionPrice += entry.getKey() * matchedSize;
+    @Override
+    public void onInterval() {
+        for (int i = 0; i < lines.length; i++) {
+            int size = hypotheticalMarketOrderSizes[i];
+            double intrinsic = (bids.getAverageFillPrice(size) + asks.getAverageFillPrice(size)) / 2;
+            lines[i].addPoint(intrinsic);
         }
-        return hmoSize == 0 ? executionPrice / hypotheticalMarketOrderSize : Double.NaN;
     }
 }
@@ -42,10 +42,10 @@ public class WeightedMidprice implements CustomModule, TradeDataListener, DepthD
 
     @Override
     public void onTrade(double price, int size, TradeInfo tradeInfo) {
-        double bestBid = (double) orderBook.bids.firstKey();
-        int bestBidSize = orderBook.bids.firstEntry().getValue();
-        double bestAsk = (double) orderBook.asks.firstKey();
-        int bestAskSize = orderBook.asks.firstEntry().getValue();
+        double bestBid = (double) orderBook.bids.getBestPrice();
+        int bestBidSize = orderBook.bids.getBestSize();
+        double bestAsk = (double) orderBook.asks.getBestPrice();
+        int bestAskSize = orderBook.asks.getBestSize();
         double weightedMidprice = (bestBid * bestAskSize + bestAsk * bestBidSize) / (bestBidSize + bestAskSize);
         indicator.addPoint(weightedMidprice);
     }
@@ -0,0 +1,49 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matches aliases against a comma separated list of glob patterns, where
+ * {@code *} is any number of characters and {@code ?} is one character, e.g.
+ * {@code "ES*,CL*,*@BMD"}. Matching is a regular expression, so callers
+ * should remember the result per alias.
+ */
+public class AliasSelector {
+    private final Pattern pattern;
+
+    private AliasSelector(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    public static AliasSelector parse(String globs) {
+        StringBuilder regex = new StringBuilder();
+        for (String glob : globs.split(",")) {
+            glob = glob.trim();
+            if (glob.isEmpty()) {
+                continue;
+            }
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            int literalStart = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+            if (glob.length() > literalStart) {
+                regex.append(Pattern.quote(glob.substring(literalStart)));
+            }
+        }
+        return new AliasSelector(Pattern.compile(regex.toString()));
+    }
+
+    public boolean matches(String alias) {
+        return pattern.matcher(alias).matches();
+    }
+}
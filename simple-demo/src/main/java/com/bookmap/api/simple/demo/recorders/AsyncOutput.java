@@ -0,0 +1,177 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import velox.api.layer1.common.Log;
+
+/**
+ * Collects lines into batches on the calling thread and writes full batches
+ * to the channel on a dedicated writer thread, so a slow disk does not delay
+ * the data callbacks. A fixed number of batch buffers is passed back and forth
+ * between the two threads, when all of them wait to be written the
+ * {@link OverflowPolicy} decides what happens to new lines.
+ */
+public class AsyncOutput implements RecorderOutput {
+
+    public enum OverflowPolicy {
+        /** Wait until the writer thread frees a batch buffer */
+        BLOCK,
+        /** Drop lines until the writer thread frees a batch buffer */
+        DROP
+    }
+
+    private static final ByteBuffer END_OF_DATA = ByteBuffer.allocate(0);
+
+    private final WritableByteChannel channel;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<ByteBuffer> freeBatches;
+    private final BlockingQueue<ByteBuffer> fullBatches;
+    private final Thread writerThread;
+
+    /** Batch being filled by the calling thread, null if none was free */
+    private ByteBuffer batch;
+    private long droppedLinesCount = 0;
+    private volatile IOException writeException;
+    private boolean isWriteExceptionReported = false;
+
+    /**
+     * @param batchSize    size of each batch buffer, lines are written to the
+     *                     channel in batches of up to this size
+     * @param batchesCount number of batch buffers, limits memory and the amount
+     *                     of data waiting for the disk
+     */
+    public AsyncOutput(WritableByteChannel channel, String name, int batchSize, int batchesCount, OverflowPolicy overflowPolicy) {
+        this.channel = channel;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        freeBatches = new ArrayBlockingQueue<>(batchesCount);
+        // Bounded by the number of batches, except for rare lines longer than a batch
+        fullBatches = new LinkedBlockingQueue<>();
+        for (int i = 1; i < batchesCount; i++) {
+            freeBatches.add(ByteBuffer.allocate(batchSize));
+        }
+        batch = ByteBuffer.allocate(batchSize);
+
+        writerThread = new Thread(this::writeBatches, "Recorder writer " + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void write(ByteBuffer line) throws IOException {
+        if (writeException != null) {
+            // Lines can not be written anymore, report it only once
+            line.position(line.limit());
+            throwIfFailed();
+            return;
+        }
+        if (batch != null && line.remaining() > batch.remaining() && batch.position() > 0) {
+            submit(batch);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = takeFreeBatch();
+            if (batch == null) {
+                droppedLinesCount++;
+                line.position(line.limit());
+                return;
+            }
+        }
+        if (line.remaining() > batch.remaining()) {
+            // Longer than a batch, not expected for text lines
+            ByteBuffer copy = ByteBuffer.allocate(line.remaining());
+            copy.put(line);
+            submit(copy);
+        } else {
+            batch.put(line);
+        }
+    }
+
+    /**
+     * @return number of lines dropped because all batches were waiting for the
+     *         disk, always 0 for {@link OverflowPolicy#BLOCK}
+     */
+    public long getDroppedLinesCount() {
+        return droppedLinesCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (batch != null && batch.position() > 0) {
+                submit(batch);
+            }
+            batch = null;
+            fullBatches.add(END_OF_DATA);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the recorder writer thread");
+        } finally {
+            channel.close();
+        }
+        if (droppedLinesCount > 0) {
+            Log.warn("Recorder dropped " + droppedLinesCount + " lines because the disk could not keep up");
+        }
+        throwIfFailed();
+    }
+
+    private ByteBuffer takeFreeBatch() throws IOException {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+            return freeBatches.poll();
+        }
+        try {
+            return freeBatches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the recorder writer thread");
+        }
+    }
+
+    private void submit(ByteBuffer fullBatch) {
+        fullBatch.flip();
+        fullBatches.add(fullBatch);
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException exception = writeException;
+        if (exception != null && !isWriteExceptionReported) {
+            isWriteExceptionReported = true;
+            throw exception;
+        }
+    }
+
+    private void writeBatches() {
+        try {
+            while (true) {
+                ByteBuffer fullBatch = fullBatches.take();
+                if (fullBatch == END_OF_DATA) {
+                    return;
+                }
+                if (writeException == null) {
+                    try {
+                        while (fullBatch.hasRemaining()) {
+                            channel.write(fullBatch);
+                        }
+                    } catch (IOException e) {
+                        // Keep returning batches, so the calling thread never waits forever
+                        writeException = e;
+                    }
+                }
+                if (fullBatch.capacity() == batchSize) {
+                    fullBatch.clear();
+                    freeBatches.add(fullBatch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.bookmap.api.simple.demo.recorders;
 
+import java.util.TimeZone;
+
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1SimpleAttachable;
@@ -24,6 +26,7 @@ public class BarBuilder extends DataRecorderBase implements CustomModule, TradeD
     protected Long barTime = null;
     protected final long barInterval = Intervals.INTERVAL_1_MINUTE;
     private Bar bar = new Bar();
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter(TimeZone.getTimeZone("GMT"));
 
     @Override
     public void onTimestamp(long t) {
@@ -40,7 +43,8 @@ public class BarBuilder extends DataRecorderBase implements CustomModule, TradeD
     @Override
     public void onTrade(double price, int size, TradeInfo tradeInfo) {
         bar.addTrade(tradeInfo.isBidAggressor, size, price);
-        writeObjects(getDateTime(barTime), tradeInfo.isBidAggressor ? "Buy" : "Sell", price, size);
+        beginLine().addTimestamp(timestampFormatter, barTime).add(tradeInfo.isBidAggressor ? "Buy" : "Sell").add(price).add(size);
+        endLine();
     }
 
     @Override
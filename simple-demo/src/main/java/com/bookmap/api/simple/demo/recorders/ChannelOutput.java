@@ -0,0 +1,50 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffers lines and writes them to the channel on the calling thread once the
+ * buffer is full
+ */
+public class ChannelOutput implements RecorderOutput {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    public void write(ByteBuffer line) throws IOException {
+        if (line.remaining() > buffer.remaining()) {
+            flush();
+        }
+        if (line.remaining() > buffer.remaining()) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } else {
+            buffer.put(line);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,159 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Builds one delimited line directly in a reusable byte array. Numbers are
+ * written without creating strings and produce the same text as
+ * {@link String#valueOf}, non-ASCII text is encoded with the default charset,
+ * same as {@link java.io.FileWriter} does. Not thread safe, each recorder owns
+ * its encoder.
+ */
+public class CsvLineEncoder {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+    private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0);
+    /** Double.toString uses plain notation below this value */
+    private static final double PLAIN_NOTATION_LIMIT = 1e7;
+
+    private final byte delimiter;
+    private final StringBuilder scratch = new StringBuilder();
+    private byte[] bytes = new byte[256];
+    private ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    private int length = 0;
+    private int fieldsCount = 0;
+
+    public CsvLineEncoder(char delimiter) {
+        this.delimiter = (byte) delimiter;
+    }
+
+    public CsvLineEncoder reset() {
+        length = 0;
+        fieldsCount = 0;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public CsvLineEncoder add(CharSequence value) {
+        startField();
+        appendChars(value == null ? "null" : value);
+        return this;
+    }
+
+    public CsvLineEncoder add(long value) {
+        startField();
+        appendLong(value);
+        return this;
+    }
+
+    public CsvLineEncoder add(double value) {
+        startField();
+        if (value == (long) value && Math.abs(value) < PLAIN_NOTATION_LIMIT
+                && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+            appendLong((long) value);
+            ensureCapacity(2);
+            bytes[length++] = '.';
+            bytes[length++] = '0';
+        } else {
+            scratch.setLength(0);
+            appendChars(scratch.append(value));
+        }
+        return this;
+    }
+
+    /**
+     * Same text as {@link String#valueOf(Object)}, primitive wrappers are
+     * written without calling toString
+     */
+    public CsvLineEncoder add(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return add(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            return add(((Double) value).doubleValue());
+        } else if (value instanceof CharSequence) {
+            return add((CharSequence) value);
+        } else {
+            return add(String.valueOf(value));
+        }
+    }
+
+    public CsvLineEncoder addTimestamp(TimestampFormatter formatter, long nanoseconds) {
+        startField();
+        ensureCapacity(TimestampFormatter.LENGTH);
+        int end = formatter.format(nanoseconds, bytes, length);
+        if (end < 0) {
+            appendChars(formatter.format(nanoseconds));
+        } else {
+            length = end;
+        }
+        return this;
+    }
+
+    /**
+     * @return line terminated by the line separator, valid until the next
+     *         modification of the encoder
+     */
+    public ByteBuffer toLine() {
+        ensureCapacity(LINE_SEPARATOR.length);
+        System.arraycopy(LINE_SEPARATOR, 0, bytes, length, LINE_SEPARATOR.length);
+        byteBuffer.limit(length + LINE_SEPARATOR.length).position(0);
+        return byteBuffer;
+    }
+
+    private void startField() {
+        if (fieldsCount++ > 0) {
+            ensureCapacity(1);
+            bytes[length++] = delimiter;
+        }
+    }
+
+    private void appendChars(CharSequence value) {
+        int valueLength = value.length();
+        ensureCapacity(valueLength);
+        for (int i = 0; i < valueLength; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = value.subSequence(i, valueLength).toString().getBytes(Charset.defaultCharset());
+                ensureCapacity(encoded.length);
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length += encoded.length;
+                return;
+            }
+            bytes[length++] = (byte) c;
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendChars(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int end = length;
+        do {
+            bytes[end++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = length, j = end - 1; i < j; i++, j--) {
+            byte b = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = b;
+        }
+        length = end;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + extra));
+            byteBuffer = ByteBuffer.wrap(bytes);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.bookmap.api.simple.demo.recorders;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.TimeZone;
 
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
@@ -24,7 +23,7 @@ public class DataRecorder extends DataRecorderBase
         implements CustomModule, DepthDataListener, TradeDataListener, BboListener, TimeListener {
 
     private long nanoseconds;
-    SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd HH:mm:ss.SSS");
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter(TimeZone.getDefault());
 
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
@@ -39,24 +38,30 @@ public class DataRecorder extends DataRecorderBase
     @Override
     public void onTrade(double price, int size, TradeInfo tradeInfo) {
         String side = tradeInfo.isBidAggressor ? "Buy" : "Sell";
-        writeObjects("Trade", side, price, size);
+        beginLine().add("Trade").add(side).add(price).add(size);
+        endLine();
     }
 
     @Override
     public void onDepth(boolean isBid, int price, int size) {
         String side = isBid ? "Buy" : "Sell";
-        writeObjects("Quote", side, price, size);
+        beginLine().add("Quote").add(side).add(price).add(size);
+        endLine();
     }
 
     @Override
     public void onBbo(int bidPrice, int bidSize, int askPrice, int askSize) {
         // BBO is redundant given market depth data. For demonstration only.
-        writeObjects("BBO", "Buy", bidPrice, bidSize);
-        writeObjects("BBO", "Sell", askPrice, askSize);
+        beginLine().add("BBO").add("Buy").add(bidPrice).add(bidSize);
+        endLine();
+        beginLine().add("BBO").add("Sell").add(askPrice).add(askSize);
+        endLine();
     }
 
     protected void addInstrument(String alias, InstrumentInfo info) {
-        writeObjects("InstrumentAdded", "Alias=" + alias, "MinPriceIncrement=" + info.pips, "Multiplier=" + info.multiplier);
+        beginLine().add("InstrumentAdded").add("Alias=" + alias).add("MinPriceIncrement=" + info.pips)
+                .add("Multiplier=" + info.multiplier);
+        endHeaderLine(alias);
     }
 
     @Override
@@ -65,14 +70,7 @@ public class DataRecorder extends DataRecorderBase
     }
 
     @Override
-    protected void appendFirst(final StringBuilder s) {
-        s.append(getTimestamp());
-    }
-
-    protected String getTimestamp() {
-        long millis = nanoseconds / 1_000_000L;
-        long nanos = nanoseconds - 1_000_000L * millis;
-        String t = sdf.format(new Date(millis)) + String.format("%06d", nanos);
-        return t;
+    protected void appendFirst(final CsvLineEncoder line) {
+        line.addTimestamp(timestampFormatter, nanoseconds);
     }
 }
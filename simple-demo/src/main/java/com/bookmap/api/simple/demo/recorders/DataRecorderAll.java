@@ -1,12 +1,16 @@
 package com.bookmap.api.simple.demo.recorders;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import velox.api.layer1.annotations.Layer1ApiVersion;
 import velox.api.layer1.annotations.Layer1ApiVersionValue;
 import velox.api.layer1.annotations.Layer1SimpleAttachable;
 import velox.api.layer1.annotations.Layer1StrategyName;
 import velox.api.layer1.data.InstrumentInfo;
+import velox.api.layer1.data.TradeInfo;
 import velox.api.layer1.simplified.Api;
 import velox.api.layer1.simplified.InitialState;
 import velox.api.layer1.simplified.MultiInstrumentListener;
@@ -16,9 +20,36 @@ import velox.api.layer1.simplified.MultiInstrumentListener;
 @Layer1ApiVersion(Layer1ApiVersionValue.VERSION1)
 public class DataRecorderAll extends DataRecorder implements MultiInstrumentListener {
 
-    String currentAlias;
-    HashMap<String, Integer> alias2id = new HashMap<>();
-    String[] filter = new String[] { "ES", "CL" };
+    /**
+     * -DDataRecorderAll.aliases selects recorded instruments with comma
+     * separated glob patterns, see {@link AliasSelector}.
+     * -DDataRecorderAll.shards=N spreads instruments over N files, 0 writes a
+     * file per instrument. Each file has its own buffer (and writer thread with
+     * -DDataRecorder.async=true).
+     */
+    private static final String ALIASES = System.getProperty("DataRecorderAll.aliases", "*ES*,*CL*");
+    private static final int SHARDS = Integer.getInteger("DataRecorderAll.shards", 1);
+
+    private static class Instrument {
+        final String alias;
+        final boolean isRecorded;
+        Integer id;
+        RecorderOutput output;
+
+        Instrument(String alias, boolean isRecorded) {
+            this.alias = alias;
+            this.isRecorded = isRecorded;
+        }
+    }
+
+    private final AliasSelector aliasSelector = AliasSelector.parse(ALIASES);
+    private final HashMap<String, Instrument> instruments = new HashMap<>();
+    private Instrument currentInstrument;
+    private int instrumentsRecorded = 0;
+
+    private final long startMillis = System.currentTimeMillis();
+    private final RecorderOutput[] shardOutputs = new RecorderOutput[Math.max(SHARDS, 1)];
+    private final List<RecorderOutput> outputs = new ArrayList<>();
 
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
@@ -26,21 +57,20 @@ public class DataRecorderAll extends DataRecorder implements MultiInstrumentList
 
     @Override
     protected String getFilename() {
-        return "DataRecorderAll_" + System.currentTimeMillis() + ".txt";
+        return "DataRecorderAll_" + startMillis + ".txt";
     }
 
     @Override
     public void onCurrentInstrument(String alias) {
-        currentAlias = alias;
+        currentInstrument = instruments.get(alias);
+        if (currentInstrument == null) {
+            currentInstrument = new Instrument(alias, aliasSelector.matches(alias));
+            instruments.put(alias, currentInstrument);
+        }
     }
 
     private boolean acceptEvent() {
-        for (String s : filter) {
-            if (currentAlias.contains(s)) {
-                return true;
-            }
-        }
-        return false;
+        return currentInstrument != null && currentInstrument.isRecorded;
     }
 
     @Override
@@ -48,24 +78,73 @@ public class DataRecorderAll extends DataRecorder implements MultiInstrumentList
         if (!acceptEvent()) {
             return;
         }
-        if (alias2id.containsKey(currentAlias)) {
+        if (currentInstrument.id != null) {
             writeObjects("InstrumentRemoved");
         } else {
-            alias2id.put(currentAlias, alias2id.size());
+            currentInstrument.id = instrumentsRecorded++;
+        }
+        addInstrument(currentInstrument.alias, info);
+    }
+
+    /** Events of instruments that are not recorded are dropped before their lines are encoded */
+    @Override
+    public void onTrade(double price, int size, TradeInfo tradeInfo) {
+        if (acceptEvent()) {
+            super.onTrade(price, size, tradeInfo);
+        }
+    }
+
+    @Override
+    public void onDepth(boolean isBid, int price, int size) {
+        if (acceptEvent()) {
+            super.onDepth(isBid, price, size);
         }
-        addInstrument(currentAlias, info);
     }
-    
+
     @Override
-    protected void writeObjects(Object... objects) {
+    public void onBbo(int bidPrice, int bidSize, int askPrice, int askSize) {
         if (acceptEvent()) {
-            super.writeObjects(objects);
+            super.onBbo(bidPrice, bidSize, askPrice, askSize);
+        }
+    }
+
+    @Override
+    protected void appendFirst(final CsvLineEncoder line) {
+        super.appendFirst(line);
+        line.add(currentInstrument == null ? null : currentInstrument.id);
+    }
+
+    @Override
+    protected RecorderOutput getOutput() throws IOException {
+        if (SHARDS == 1) {
+            return super.getOutput();
+        }
+        if (currentInstrument.output == null) {
+            if (SHARDS == 0) {
+                String alias = currentInstrument.alias.replaceAll("[^A-Za-z0-9._-]", "_");
+                currentInstrument.output = createOutput("DataRecorderAll_" + startMillis + "_" + alias + ".txt");
+                outputs.add(currentInstrument.output);
+            } else {
+                int shard = currentInstrument.id == null ? 0 : currentInstrument.id % SHARDS;
+                if (shardOutputs[shard] == null) {
+                    shardOutputs[shard] = createOutput("DataRecorderAll_" + startMillis + "_shard" + shard + ".txt");
+                    outputs.add(shardOutputs[shard]);
+                }
+                currentInstrument.output = shardOutputs[shard];
+            }
         }
+        return currentInstrument.output;
     }
-    
+
     @Override
-    protected void appendFirst(final StringBuilder s) {
-        Integer id = alias2id.get(currentAlias);
-        s.append(getTimestamp()).append(delimiter).append(id);
+    public void stop() {
+        for (RecorderOutput output : outputs) {
+            try {
+                output.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        super.stop();
     }
 }
@@ -1,64 +1,137 @@
 package com.bookmap.api.simple.demo.recorders;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Date;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.TimeZone;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+
+import com.bookmap.api.simple.demo.recorders.AsyncOutput.OverflowPolicy;
 
 public abstract class DataRecorderBase {
-    private BufferedWriter writer;
-    StringBuilder builder = new StringBuilder();
-    protected final String delimiter = ",";
+    /**
+     * With -DDataRecorder.async=true lines are written to disk by a background
+     * thread in batches of DataRecorder.batchSize bytes. When
+     * DataRecorder.batchesCount batches wait for the disk, data callbacks either
+     * wait (DataRecorder.overflow=BLOCK) or new lines are dropped (DROP).
+     */
+    private static final boolean IS_ASYNC = Boolean.getBoolean("DataRecorder.async");
+    private static final int BUFFER_SIZE = Integer.getInteger("DataRecorder.batchSize", 64 * 1024);
+    private static final int BATCHES_COUNT = Integer.getInteger("DataRecorder.batchesCount", 16);
+    private static final OverflowPolicy OVERFLOW_POLICY = OverflowPolicy
+            .valueOf(System.getProperty("DataRecorder.overflow", OverflowPolicy.BLOCK.name()).toUpperCase());
+    /**
+     * Files are written to DataRecorder.directory (working directory by default)
+     * and, if DataRecorder.rollMegabytes or DataRecorder.rollMinutes is set,
+     * split into numbered parts of bounded size or duration.
+     */
+    private static final String DIRECTORY = System.getProperty("DataRecorder.directory", "");
+    private static final long ROLL_BYTES = Long.getLong("DataRecorder.rollMegabytes", 0) * 1024 * 1024;
+    private static final long ROLL_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("DataRecorder.rollMinutes", 0));
+    private static final ThreadLocal<TimestampFormatter> gmtFormatter = ThreadLocal
+            .withInitial(() -> new TimestampFormatter(TimeZone.getTimeZone("GMT")));
+
+    private RecorderOutput output;
+    private final CsvLineEncoder line = new CsvLineEncoder(',');
 
     protected abstract String getFilename();
 
-    protected void appendFirst(final StringBuilder s) {
+    protected void appendFirst(final CsvLineEncoder line) {
     }
 
-    protected void appendLast(final StringBuilder s) {
+    protected void appendLast(final CsvLineEncoder line) {
     }
 
     public void stop() {
         try {
-            writer.close();
+            if (output != null) {
+                output.close();
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-    
+
     public static String getDateTime(long nanoseconds) {
-        long millis = nanoseconds / 1_000_000L;
-        long nanos = nanoseconds - 1_000_000L * millis;
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd HH:mm:ss.SSS");
-        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-        String datetime = sdf.format(new Date(millis)) + String.format("%06d", nanos);
-        return datetime;
+        return gmtFormatter.get().format(nanoseconds);
     }
-    
-    protected void writeObjects(Object... objects) {
-        builder.setLength(0);
-        appendFirst(builder);
-        if (objects.length > 0) {
-            if (builder.length() > 0) {
-                builder.append(delimiter);
-            }
-            builder.append(Arrays.stream(objects).map(Object::toString).collect(Collectors.joining(delimiter)));
+
+    /**
+     * Starts a new line with fields from {@link #appendFirst(CsvLineEncoder)},
+     * fields added to the returned encoder are written by {@link #endLine()}
+     */
+    protected CsvLineEncoder beginLine() {
+        line.reset();
+        appendFirst(line);
+        return line;
+    }
+
+    protected void endLine() {
+        writeLine(null);
+    }
+
+    /**
+     * Like {@link #endLine()} for lines that describe the data that follows,
+     * the last one of each key is repeated at the start of each file when
+     * files are rolled
+     */
+    protected void endHeaderLine(Object key) {
+        writeLine(key);
+    }
+
+    /**
+     * @param headerKey null for data lines
+     */
+    private void writeLine(Object headerKey) {
+        appendLast(line);
+        if (line.isEmpty()) {
+            return;
         }
-        appendLast(builder);
         try {
-            if (writer == null) {
-                writer = new BufferedWriter(new FileWriter(getFilename()));
-            }
-            if (builder.length() > 0) {
-                writer.write(builder.toString());
-                writer.newLine();
+            RecorderOutput output = getOutput();
+            if (headerKey != null) {
+                output.writeHeader(headerKey, line.toLine());
+            } else {
+                output.write(line.toLine());
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Output for the line being written, by default one output created on the
+     * first line
+     */
+    protected RecorderOutput getOutput() throws IOException {
+        if (output == null) {
+            output = createOutput(getFilename());
+        }
+        return output;
+    }
+
+    protected void writeObjects(Object... objects) {
+        CsvLineEncoder line = beginLine();
+        for (Object object : objects) {
+            line.add(object);
+        }
+        endLine();
+    }
+
+    protected static RecorderOutput createOutput(String filename) throws IOException {
+        if (ROLL_BYTES > 0 || ROLL_MILLIS > 0) {
+            return new RollingOutput(filename, ROLL_BYTES, ROLL_MILLIS, DataRecorderBase::createFileOutput);
+        }
+        return createFileOutput(filename);
+    }
+
+    private static RecorderOutput createFileOutput(String filename) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(DIRECTORY, filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (IS_ASYNC) {
+            return new AsyncOutput(channel, filename, BUFFER_SIZE, BATCHES_COUNT, OVERFLOW_POLICY);
+        }
+        return new ChannelOutput(channel, BUFFER_SIZE);
+    }
 }
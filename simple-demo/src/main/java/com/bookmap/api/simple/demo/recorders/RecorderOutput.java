@@ -0,0 +1,27 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination of the lines written by a recorder. Lines are only passed from
+ * the thread that calls the recorder.
+ */
+public interface RecorderOutput extends Closeable {
+
+    /**
+     * Consumes remaining bytes of the line, the buffer can be reused by the
+     * caller after the call
+     */
+    void write(ByteBuffer line) throws IOException;
+
+    /**
+     * Line describing the data that follows, such as an instrument definition.
+     * Outputs that split data into several files repeat the last such line of
+     * each key (e.g. alias) in each.
+     */
+    default void writeHeader(Object key, ByteBuffer line) throws IOException {
+        write(line);
+    }
+}
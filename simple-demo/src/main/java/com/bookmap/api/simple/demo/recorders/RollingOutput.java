@@ -0,0 +1,95 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits lines into numbered files ("name_1.txt", "name_2.txt", ...) once a
+ * file reaches the size limit or has been open for the time limit, so long
+ * sessions produce bounded files. The last header line of each key is
+ * repeated at the start of every file, so each of them can be read on its
+ * own without replaying headers that were replaced since.
+ */
+public class RollingOutput implements RecorderOutput {
+
+    public interface PartFactory {
+        RecorderOutput open(String filename) throws IOException;
+    }
+
+    private final String filename;
+    private final long maxBytes;
+    private final long maxMillis;
+    private final PartFactory partFactory;
+    private final Map<Object, ByteBuffer> headerLines = new LinkedHashMap<>();
+
+    private RecorderOutput part;
+    private int partNumber = 0;
+    private long partBytes;
+    private long partOpenedMillis;
+
+    /**
+     * @param maxBytes  file size limit, 0 for no limit
+     * @param maxMillis file time limit, 0 for no limit
+     */
+    public RollingOutput(String filename, long maxBytes, long maxMillis, PartFactory partFactory) {
+        this.filename = filename;
+        this.maxBytes = maxBytes;
+        this.maxMillis = maxMillis;
+        this.partFactory = partFactory;
+    }
+
+    @Override
+    public void write(ByteBuffer line) throws IOException {
+        if (part == null || isPartFull(line.remaining())) {
+            roll();
+        }
+        partBytes += line.remaining();
+        part.write(line);
+    }
+
+    @Override
+    public void writeHeader(Object key, ByteBuffer line) throws IOException {
+        ByteBuffer copy = ByteBuffer.allocate(line.remaining());
+        copy.put(line.duplicate()).flip();
+        write(line);
+        // Re-inserted so that headers keep the order in which they were last written
+        headerLines.remove(key);
+        headerLines.put(key, copy);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (part != null) {
+            part.close();
+        }
+    }
+
+    private boolean isPartFull(int lineBytes) {
+        if (partBytes == 0) {
+            // At least one line per file
+            return false;
+        }
+        return (maxBytes > 0 && partBytes + lineBytes > maxBytes)
+                || (maxMillis > 0 && System.currentTimeMillis() - partOpenedMillis >= maxMillis);
+    }
+
+    private void roll() throws IOException {
+        if (part != null) {
+            part.close();
+        }
+        partNumber++;
+        int extension = filename.lastIndexOf('.');
+        String partFilename = extension < 0 ? filename + "_" + partNumber
+                : filename.substring(0, extension) + "_" + partNumber + filename.substring(extension);
+        part = partFactory.open(partFilename);
+        partBytes = 0;
+        partOpenedMillis = System.currentTimeMillis();
+        for (ByteBuffer headerLine : headerLines.values()) {
+            ByteBuffer duplicate = headerLine.duplicate();
+            partBytes += duplicate.remaining();
+            part.write(duplicate);
+        }
+    }
+}
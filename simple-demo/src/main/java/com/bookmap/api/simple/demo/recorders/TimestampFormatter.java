@@ -0,0 +1,96 @@
+package com.bookmap.api.simple.demo.recorders;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Formats nanosecond timestamps as "yyyyMMdd HH:mm:ss.SSS" followed by 6 digits
+ * of nanoseconds within the millisecond. The date and time up to minutes is
+ * formatted once per minute, seconds and fractions are written directly.
+ * Not thread safe.
+ */
+public class TimestampFormatter {
+    private static final String PATTERN = "yyyyMMdd HH:mm:ss.SSS";
+    /** Length of "yyyyMMdd HH:mm:" */
+    private static final int MINUTE_LENGTH = 15;
+    public static final int LENGTH = PATTERN.length() + 6;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(PATTERN);
+    private final TimeZone timeZone;
+    private final byte[] minuteBytes = new byte[MINUTE_LENGTH];
+    private long minute = Long.MIN_VALUE;
+    /** False if minute prefix can not be reused for all seconds of the minute */
+    private boolean isMinuteCacheable;
+
+    public TimestampFormatter(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        dateFormat.setTimeZone(timeZone);
+    }
+
+    /**
+     * Writes {@link #LENGTH} ASCII bytes, target must have enough space
+     *
+     * @return offset after the written timestamp or -1 if nothing was written
+     *         because the timestamp can only be formatted by
+     *         {@link #format(long)}, e.g. it is negative or the time zone has an
+     *         offset which is not a whole number of minutes
+     */
+    public int format(long nanoseconds, byte[] target, int offset) {
+        if (nanoseconds < 0) {
+            return -1;
+        }
+        long millis = nanoseconds / 1_000_000L;
+        long nanos = nanoseconds - 1_000_000L * millis;
+        long currentMinute = millis / 60_000L;
+        if (currentMinute != minute) {
+            updateMinute(currentMinute);
+        }
+        if (!isMinuteCacheable) {
+            return -1;
+        }
+
+        System.arraycopy(minuteBytes, 0, target, offset, MINUTE_LENGTH);
+        offset += MINUTE_LENGTH;
+        offset = writeDigits(millis / 1000 % 60, 2, target, offset);
+        target[offset++] = '.';
+        offset = writeDigits(millis % 1000, 3, target, offset);
+        return writeDigits(nanos, 6, target, offset);
+    }
+
+    public String format(long nanoseconds) {
+        byte[] bytes = new byte[LENGTH];
+        if (format(nanoseconds, bytes, 0) < 0) {
+            long millis = nanoseconds / 1_000_000L;
+            long nanos = nanoseconds - 1_000_000L * millis;
+            return dateFormat.format(new Date(millis)) + String.format("%06d", nanos);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void updateMinute(long currentMinute) {
+        minute = currentMinute;
+        long minuteMillis = currentMinute * 60_000L;
+        String formatted = dateFormat.format(new Date(minuteMillis));
+        // Seconds digits are only aligned with minutes for whole minute offsets
+        isMinuteCacheable = formatted.length() == PATTERN.length()
+                && timeZone.getOffset(minuteMillis) % 60_000 == 0
+                && timeZone.getOffset(minuteMillis + 59_999) == timeZone.getOffset(minuteMillis);
+        for (int i = 0; i < formatted.length() && isMinuteCacheable; i++) {
+            char c = formatted.charAt(i);
+            isMinuteCacheable = c < 0x80;
+            if (i < MINUTE_LENGTH) {
+                minuteBytes[i] = (byte) c;
+            }
+        }
+    }
+
+    private static int writeDigits(long value, int digits, byte[] target, int offset) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -20,7 +20,8 @@ public class VolumeRecorder extends DataRecorderBase implements CustomModule, Ba
 
     @Override
     public void onBar(OrderBook orderBook, Bar bar) {
-        writeObjects(bar.getVolumeBuy(), bar.getVolumeSell());
+        beginLine().add(bar.getVolumeBuy()).add(bar.getVolumeSell());
+        endLine();
     }
 
     @Override
@@ -19,7 +19,6 @@ public class VolumeRecorderExponential extends VolumeRecorder {
     private final int[] halfLifeBars = new int[] { 0, 4, 12, 36 };
     private ExponentialSumBars[] emaBuy = new ExponentialSumBars[halfLifeBars.length];
     private ExponentialSumBars[] emaSell = new ExponentialSumBars[halfLifeBars.length];
-    private Object[] output = new Object[2 * halfLifeBars.length];
 
     @Override
     public void initialize(String alias, InstrumentInfo info, Api api, InitialState initialState) {
@@ -34,11 +33,12 @@ public class VolumeRecorderExponential extends VolumeRecorder {
         for (int i = 0; i < halfLifeBars.length; i++) {
             emaBuy[i].onBar(bar.getVolumeBuy());
             emaSell[i].onBar(bar.getVolumeSell());
-
-            output[2 * i] = emaBuy[i].getValueLong();
-            output[2 * i + 1] = emaSell[i].getValueLong();
         }
-        writeObjects(output);
+        CsvLineEncoder line = beginLine();
+        for (int i = 0; i < halfLifeBars.length; i++) {
+            line.add(emaBuy[i].getValueLong()).add(emaSell[i].getValueLong());
+        }
+        endLine();
     }
 
     @Override
@@ -0,0 +1,253 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CumulativeDepth {
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Largest span of the trees, levels further away are kept in a map */
+    private static final int MAX_CAPACITY = 1 << 16;
+    /** Distance from the best price within which the trees are re-centred instead of using the map */
+    private static final int RECENTRE_DISTANCE = MAX_CAPACITY / 4;
+
+    private final boolean isBid;
+    private long[] levelSizes = new long[0];
+    /** Fenwick trees of sizes and of sizes multiplied by position */
+    private long[] sizeTree = new long[1];
+    private long[] weightedTree = new long[1];
+    /** Price at position 0, positions grow away from the best price */
+    private int basePrice;
+    private int treeLevelsCount = 0;
+    /** Levels outside of the trees, e.g. a bad tick or a far stop level, ordered from the best price */
+    private final TreeMap<Integer, Integer> outliers;
+    private long outliersSize = 0;
+    private long totalSize = 0;
+
+    /**
+     * One side of an order book with cumulative sizes from the best price kept
+     * in Fenwick trees, so the average price of filling any size by a market
+     * order is O(log n) regardless of the number of levels it takes. Positions
+     * are ticks around the first received price, and the trees are rebuilt when
+     * a price outside of them is added, up to {@value #MAX_CAPACITY} ticks.
+     * Beyond that they are re-centred on the best price, and levels far from it
+     * are kept in a map that fills walk level by level before or after the
+     * trees.
+     *
+     * @param isBid true if best price is the highest one
+     */
+    public CumulativeDepth(boolean isBid) {
+        this.isBid = isBid;
+        this.outliers = isBid ? new TreeMap<>(Collections.reverseOrder()) : new TreeMap<>();
+    }
+
+    public void onUpdate(int price, int size) {
+        long position = positionOf(price);
+        if ((position < 0 || position >= levelSizes.length) && (outliers.containsKey(price) || !cover(price, size))) {
+            Integer sizePrevious = (size == 0) ? outliers.remove(price) : outliers.put(price, size);
+            long delta = size - (sizePrevious == null ? 0 : sizePrevious);
+            outliersSize += delta;
+            totalSize += delta;
+            return;
+        }
+        int treePosition = (int) positionOf(price);
+        long delta = size - levelSizes[treePosition];
+        if (delta != 0) {
+            if (levelSizes[treePosition] == 0) {
+                treeLevelsCount++;
+            } else if (size == 0) {
+                treeLevelsCount--;
+            }
+            levelSizes[treePosition] = size;
+            totalSize += delta;
+            for (int i = treePosition + 1; i < sizeTree.length; i += i & -i) {
+                sizeTree[i] += delta;
+                weightedTree[i] += delta * treePosition;
+            }
+        }
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * @return average price in ticks of a market order of given size filled
+     *         from the best price, NaN if the side does not have enough size
+     */
+    public double getAverageFillPrice(long size) {
+        if (size <= 0 || size > totalSize) {
+            return Double.NaN;
+        }
+        if (outliersSize == 0) {
+            return priceAt((double) getTreeWeighted(size) / size);
+        }
+        // Outliers better than the trees, the trees, then the worse ones
+        long remaining = size;
+        double weighted = 0;
+        boolean isTreeFilled = false;
+        for (Map.Entry<Integer, Integer> level : outliers.entrySet()) {
+            long position = positionOf(level.getKey());
+            if (position >= 0 && !isTreeFilled) {
+                long filled = Math.min(remaining, totalSize - outliersSize);
+                weighted += getTreeWeighted(filled);
+                remaining -= filled;
+                isTreeFilled = true;
+                if (remaining == 0) {
+                    break;
+                }
+            }
+            long filled = Math.min(remaining, level.getValue());
+            weighted += (double) position * filled;
+            remaining -= filled;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        if (remaining > 0) {
+            weighted += getTreeWeighted(remaining);
+        }
+        return priceAt(weighted / size);
+    }
+
+    /**
+     * @return sum of positions multiplied by sizes taken from the trees by a
+     *         market order of given size, which must not exceed the size in
+     *         the trees
+     */
+    private long getTreeWeighted(long size) {
+        // Find the last position with cumulative size below the order size
+        int count = 0;
+        long countSize = 0;
+        long countWeighted = 0;
+        for (int step = Integer.highestOneBit(sizeTree.length - 1); step > 0; step >>= 1) {
+            int next = count + step;
+            if (next < sizeTree.length && countSize + sizeTree[next] < size) {
+                count = next;
+                countSize += sizeTree[next];
+                countWeighted += weightedTree[next];
+            }
+        }
+        // Levels before position "count" are filled fully, the rest comes from it
+        return countWeighted + (size - countSize) * count;
+    }
+
+    private long positionOf(int price) {
+        return isBid ? (long) basePrice - price : (long) price - basePrice;
+    }
+
+    private double priceAt(double position) {
+        return isBid ? basePrice - position : basePrice + position;
+    }
+
+    private long basePriceAt(long position) {
+        return isBid ? (long) basePrice - position : (long) basePrice + position;
+    }
+
+    /** Called while there are levels */
+    private int getBestPrice() {
+        if (!outliers.isEmpty()) {
+            int outlierBest = outliers.firstKey();
+            if (treeLevelsCount == 0 || positionOf(outlierBest) < 0) {
+                return outlierBest;
+            }
+        }
+        return (int) basePriceAt(getTreeWeighted(1));
+    }
+
+    /**
+     * Makes the trees cover the price if possible
+     *
+     * @return false if the level has to be kept in the map
+     */
+    private boolean cover(int price, int size) {
+        if (size == 0) {
+            return false;
+        }
+        if (levelSizes.length == 0) {
+            resize(INITIAL_CAPACITY, isBid ? (long) price + INITIAL_CAPACITY / 2 : (long) price - INITIAL_CAPACITY / 2);
+            return true;
+        }
+        long position = positionOf(price);
+        long from = Math.min(0, position);
+        long to = Math.max(levelSizes.length, position + 1);
+        if (to - from <= MAX_CAPACITY) {
+            int capacity = levelSizes.length;
+            while (capacity < 2 * (to - from) && capacity < MAX_CAPACITY) {
+                capacity *= 2;
+            }
+            resize(capacity, basePriceAt(from - (capacity - (to - from)) / 2));
+            return true;
+        }
+        // The trees are as large as allowed: follow the market when it moves,
+        // or move to where the levels are if the trees ended up away from them
+        if (totalSize > 0) {
+            long bestPosition = positionOf(getBestPrice());
+            if (Math.abs(position - bestPosition) < RECENTRE_DISTANCE) {
+                resize(MAX_CAPACITY, basePriceAt(bestPosition - MAX_CAPACITY / 2));
+                return true;
+            }
+        }
+        if (treeLevelsCount == 0 || treeLevelsCount < outliers.size()) {
+            resize(MAX_CAPACITY, basePriceAt(position - MAX_CAPACITY / 2));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the levels into trees of given capacity starting at given price,
+     * levels outside of them go to the map and levels of the map inside of
+     * them come back
+     */
+    private void resize(int capacity, long newBasePriceLong) {
+        // All positions of the trees have to be valid prices
+        long lowest = isBid ? (long) Integer.MIN_VALUE + capacity - 1 : Integer.MIN_VALUE;
+        long highest = isBid ? Integer.MAX_VALUE : (long) Integer.MAX_VALUE - capacity + 1;
+        int newBasePrice = (int) Math.max(lowest, Math.min(newBasePriceLong, highest));
+        long[] oldLevelSizes = levelSizes;
+        int oldBasePrice = basePrice;
+        levelSizes = new long[capacity];
+        basePrice = newBasePrice;
+        treeLevelsCount = 0;
+        for (int i = 0; i < oldLevelSizes.length; i++) {
+            if (oldLevelSizes[i] != 0) {
+                int price = isBid ? oldBasePrice - i : oldBasePrice + i;
+                long position = positionOf(price);
+                if (position >= 0 && position < capacity) {
+                    levelSizes[(int) position] = oldLevelSizes[i];
+                    treeLevelsCount++;
+                } else {
+                    outliers.put(price, (int) oldLevelSizes[i]);
+                    outliersSize += oldLevelSizes[i];
+                }
+            }
+        }
+        if (!outliers.isEmpty()) {
+            int lastPrice = (int) basePriceAt(capacity - 1);
+            Map<Integer, Integer> inside = outliers.subMap(newBasePrice, true, lastPrice, true);
+            for (Map.Entry<Integer, Integer> level : inside.entrySet()) {
+                levelSizes[(int) positionOf(level.getKey())] = level.getValue();
+                treeLevelsCount++;
+                outliersSize -= level.getValue();
+            }
+            inside.clear();
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        sizeTree = new long[levelSizes.length + 1];
+        weightedTree = new long[levelSizes.length + 1];
+        for (int position = 0; position < levelSizes.length; position++) {
+            int i = position + 1;
+            sizeTree[i] += levelSizes[position];
+            weightedTree[i] += levelSizes[position] * position;
+            int parent = i + (i & -i);
+            if (parent < sizeTree.length) {
+                sizeTree[parent] += sizeTree[i];
+                weightedTree[parent] += weightedTree[i];
+            }
+        }
+    }
+}
@@ -2,8 +2,9 @@ package com.bookmap.api.simple.demo.utils.data;
 
 public class ExponentialAverage {
     private double value = 0;
-    private Long nanosecondsPrev = null;
-    private final double halfLifeFactor;
+    private long nanosecondsPrev;
+    private boolean hasPrev = false;
+    private final ExponentialDecay decay;
 
     /**
      * Computes moving average of inputs "x" which gives exponentially decaying
@@ -13,24 +14,26 @@ public class ExponentialAverage {
      * @param halfLifeNanoseconds
      */
     public ExponentialAverage(long halfLifeNanoseconds) {
-        this.halfLifeFactor = -Math.log(2) / halfLifeNanoseconds;
+        this.decay = new ExponentialDecay(halfLifeNanoseconds);
     }
 
     public double onUpdate(long nanoseconds, double x) {
-        if (nanosecondsPrev == null) {
+        if (!hasPrev) {
             nanosecondsPrev = nanoseconds;
+            hasPrev = true;
             value = x;
         }
         if (nanoseconds < nanosecondsPrev) {
             nanosecondsPrev = nanoseconds;
         }
         long dt = nanoseconds - nanosecondsPrev;
-        double w = Math.exp(dt * halfLifeFactor);
+        double w = decay.getFactor(dt);
         value = w * value + (1 - w) * x;
+        nanosecondsPrev = nanoseconds;
         return value;
     }
 
     public double getValue(long nanoseconds) {
-        return nanosecondsPrev == null ? Double.NaN : value;
+        return hasPrev ? value : Double.NaN;
     }
 }
@@ -0,0 +1,60 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+/**
+ * Weight of a value received dt nanoseconds ago, exp(-ln(2) * dt / halfLife),
+ * computed without {@link Math#exp}. The factor for the last dt is cached,
+ * which covers indicators updating at a fixed interval, other values are
+ * computed from a table of powers of two with relative error below 1e-10.
+ */
+public class ExponentialDecay {
+    private static final int TABLE_BITS = 10;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final double LN2 = Math.log(2);
+    /** 2^(-i / TABLE_SIZE) */
+    private static final double[] POWERS_OF_HALF = new double[TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            POWERS_OF_HALF[i] = Math.pow(2, -(double) i / TABLE_SIZE);
+        }
+    }
+
+    private final double halfLivesPerNanosecond;
+    private long cachedDt = 0;
+    private double cachedFactor = 1;
+
+    public ExponentialDecay(long halfLifeNanoseconds) {
+        this.halfLivesPerNanosecond = 1.0 / halfLifeNanoseconds;
+    }
+
+    /**
+     * @param dt non-negative time in nanoseconds
+     */
+    public double getFactor(long dt) {
+        if (dt == 0) {
+            // Reading the value right after an update, keep the cached factor
+            return 1;
+        }
+        if (dt != cachedDt) {
+            cachedFactor = powerOfHalf(dt * halfLivesPerNanosecond);
+            cachedDt = dt;
+        }
+        return cachedFactor;
+    }
+
+    /**
+     * 2^(-halfLives) for non-negative halfLives
+     */
+    static double powerOfHalf(double halfLives) {
+        if (halfLives >= 1022) {
+            // Below the smallest normal double, also keeps the steps below from overflowing
+            return 0;
+        }
+        double scaled = halfLives * TABLE_SIZE;
+        long steps = (long) scaled;
+        // e^-y for y < ln(2) / TABLE_SIZE, the third order term is below 6e-11
+        double y = (scaled - steps) * (LN2 / TABLE_SIZE);
+        double integerPart = Double.longBitsToDouble((1023 - (steps >> TABLE_BITS)) << 52);
+        return integerPart * POWERS_OF_HALF[(int) (steps & (TABLE_SIZE - 1))] * (1 - y + 0.5 * y * y);
+    }
+}
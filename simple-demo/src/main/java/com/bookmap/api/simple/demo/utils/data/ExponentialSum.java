@@ -2,8 +2,9 @@ package com.bookmap.api.simple.demo.utils.data;
 
 public class ExponentialSum {
     private double value = 0;
-    private Long nanosecondsPrev = null;
-    private final double halfLifeFactor;
+    private long nanosecondsPrev;
+    private boolean hasPrev = false;
+    private final ExponentialDecay decay;
 
     /**
      * Computes moving sum of inputs "x" which exponentially decays with time so
@@ -12,7 +13,7 @@ public class ExponentialSum {
      * @param halfLifeNanoseconds
      */
     public ExponentialSum(long halfLifeNanoseconds) {
-        this.halfLifeFactor = -Math.log(2) / halfLifeNanoseconds;
+        this.decay = new ExponentialDecay(halfLifeNanoseconds);
     }
 
     public void onUpdate(long nanoseconds, double x) {
@@ -30,13 +31,11 @@ public class ExponentialSum {
     }
 
     private double getRawValue(long nanoseconds) {
-        if (nanosecondsPrev == null) {
-            nanosecondsPrev = nanoseconds;
-        }
-        if (nanoseconds < nanosecondsPrev) {
+        if (!hasPrev || nanoseconds < nanosecondsPrev) {
             nanosecondsPrev = nanoseconds;
+            hasPrev = true;
         }
         long dt = nanoseconds - nanosecondsPrev;
-        return value * Math.exp(dt * halfLifeFactor);
+        return value * decay.getFactor(dt);
     }
 }
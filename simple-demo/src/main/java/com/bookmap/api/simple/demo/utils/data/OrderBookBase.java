@@ -1,17 +1,17 @@
 package com.bookmap.api.simple.demo.utils.data;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.TreeMap;
-
+/**
+ * Both sides of an order book. Sides used to be public
+ * {@code TreeMap<Integer, Integer>} fields, subclasses reading them as maps
+ * should use the {@link PriceLadder} accessors, or {@link PriceLadder#toTreeMap()}
+ * where a map is really needed.
+ */
 public class OrderBookBase {
 
-    public TreeMap<Integer, Integer> bids = new TreeMap<>(Collections.reverseOrder());
-    public TreeMap<Integer, Integer> asks = new TreeMap<>();
+    public final PriceLadder bids = new PriceLadder(true);
+    public final PriceLadder asks = new PriceLadder(false);
 
     public int onDepth(boolean isBid, int price, int size) {
-        Map<Integer, Integer> book = isBid ? bids : asks;
-        Integer sizePrevious = (size == 0) ? book.remove(price) : book.put(price, size);
-        return (sizePrevious == null) ? 0 : sizePrevious;
+        return (isBid ? bids : asks).onUpdate(price, size);
     }
 }
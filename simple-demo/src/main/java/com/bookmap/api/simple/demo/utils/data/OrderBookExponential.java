@@ -1,14 +1,12 @@
 package com.bookmap.api.simple.demo.utils.data;
 
-import java.util.TreeMap;
-
 public class OrderBookExponential extends OrderBookSum {
     private double halfLifeLevelFactor;
     private double bidSizeWeighted = 0.0;
     private double askSizeWeighted = 0.0;
 
     public OrderBookExponential(int levels) {
-        super(levels);
+        super(levels, false);
         this.halfLifeLevelFactor = Math.log(2) / levels;
     }
 
@@ -41,7 +39,7 @@ public class OrderBookExponential extends OrderBookSum {
     }
 
     private int calcPriceLevel(boolean isBid, int price) {
-        TreeMap<Integer, Integer> book = isBid ? bids : asks;
-        return book.isEmpty() ? 0 : (isBid ? book.firstKey() - price : price - book.firstKey());
+        PriceLadder book = isBid ? bids : asks;
+        return book.isEmpty() ? 0 : book.getLevel(price);
     }
 }
@@ -1,27 +1,108 @@
 package com.bookmap.api.simple.demo.utils.data;
 
-import java.util.TreeMap;
-
 public class OrderBookSum extends OrderBookBase {
     private final int levels;
+    /** Null if a subclass calculates {@link #getSizeSum(boolean)} differently */
+    private final LevelsWindow bidWindow;
+    private final LevelsWindow askWindow;
 
+    /**
+     * Keeps sums of sizes of the top levels (ticks from the best price,
+     * including empty ones) on each side updated on every depth update, so
+     * {@link #getSizeSum(boolean)} is O(1)
+     */
     public OrderBookSum(int levels) {
+        this(levels, true);
+    }
+
+    /**
+     * @param keepsSums false for subclasses that override
+     *            {@link #getSizeSum(boolean)}, the sums are not maintained then
+     */
+    protected OrderBookSum(int levels, boolean keepsSums) {
         this.levels = levels;
+        bidWindow = keepsSums ? new LevelsWindow(bids, true) : null;
+        askWindow = keepsSums ? new LevelsWindow(asks, false) : null;
+    }
+
+    @Override
+    public int onDepth(boolean isBid, int price, int size) {
+        int sizePrevious = super.onDepth(isBid, price, size);
+        if (bidWindow != null) {
+            (isBid ? bidWindow : askWindow).onUpdate(price, size - sizePrevious);
+        }
+        return sizePrevious;
     }
 
     public int getSizeSum(boolean isBid) {
-        TreeMap<Integer, Integer> book = isBid ? bids : asks;
-        int size = 0;
-        if (!book.isEmpty()) {
-            Integer price = book.firstKey();
-            for (int i = 0; i < levels; i++) {
-                Integer q = book.get(price);
-                if (q != null) {
-                    size += q;
+        return (isBid ? bidWindow : askWindow).sum;
+    }
+
+    private class LevelsWindow {
+        private final PriceLadder book;
+        /** Price step towards better prices */
+        private final int step;
+        private boolean isEmpty = true;
+        private int bestPrice;
+        private int sum = 0;
+
+        LevelsWindow(PriceLadder book, boolean isBid) {
+            this.book = book;
+            this.step = isBid ? 1 : -1;
+        }
+
+        /**
+         * Called after the book is updated, window still starts at the
+         * previous best price
+         */
+        void onUpdate(int price, int sizeDelta) {
+            if (book.isEmpty()) {
+                isEmpty = true;
+                sum = 0;
+                return;
+            }
+            if (isEmpty) {
+                isEmpty = false;
+                bestPrice = book.getBestPrice();
+                sum = calculateSum();
+                return;
+            }
+            int level = (bestPrice - price) * step;
+            if (level >= 0 && level < levels) {
+                sum += sizeDelta;
+            }
+            int newBestPrice = book.getBestPrice();
+            if (newBestPrice != bestPrice) {
+                moveTo(newBestPrice);
+            }
+        }
+
+        private void moveTo(int newBestPrice) {
+            int shift = (newBestPrice - bestPrice) * step;
+            if (Math.abs(shift) >= levels) {
+                bestPrice = newBestPrice;
+                sum = calculateSum();
+                return;
+            }
+            // One tick at a time: one level enters the window and one leaves it
+            while (bestPrice != newBestPrice) {
+                if (shift > 0) {
+                    bestPrice += step;
+                    sum += book.getSize(bestPrice) - book.getSize(bestPrice - step * levels);
+                } else {
+                    sum -= book.getSize(bestPrice);
+                    bestPrice -= step;
+                    sum += book.getSize(bestPrice - step * (levels - 1));
                 }
-                price += isBid ? -1 : 1;
             }
         }
-        return size;
+
+        private int calculateSum() {
+            int size = 0;
+            for (int i = 0; i < levels; i++) {
+                size += book.getSize(bestPrice - step * i);
+            }
+            return size;
+        }
     }
 }
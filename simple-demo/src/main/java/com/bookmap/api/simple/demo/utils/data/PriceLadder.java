@@ -0,0 +1,255 @@
+package com.bookmap.api.simple.demo.utils.data;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+public class PriceLadder {
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Largest span of the array, levels further away are kept in a map */
+    private static final int MAX_CAPACITY = 1 << 16;
+    /** Distance from the best price within which the array is re-centred instead of using the map */
+    private static final int RECENTRE_DISTANCE = MAX_CAPACITY / 4;
+
+    private final boolean isBid;
+    private int[] sizes = new int[0];
+    /** Bit per non-empty level of the array and bit per non-zero word of those bits */
+    private long[] occupied = new long[0];
+    private long[] occupiedWords = new long[0];
+    private int offset;
+    private int arrayLevelsCount = 0;
+    /** Levels outside of the array, e.g. a bad tick or a far stop level */
+    private final TreeMap<Integer, Integer> outliers = new TreeMap<>();
+    private int levelsCount = 0;
+    private int bestPrice;
+
+    /**
+     * One side of an order book stored as a primitive array indexed by price
+     * (in ticks). The array is centred on the first received price and grows
+     * when a level outside of it is added, up to {@value #MAX_CAPACITY} ticks.
+     * Beyond that it is re-centred on the best price, and levels far from the
+     * best price are kept in a map. Level updates and best price lookups are
+     * O(1) and do not allocate for levels in the array; finding the next best
+     * level after the best one is removed scans at most 17 bitmap words.
+     *
+     * @param isBid true if best price is the highest one
+     */
+    public PriceLadder(boolean isBid) {
+        this.isBid = isBid;
+    }
+
+    /**
+     * @return size of the level before the update
+     */
+    public int onUpdate(int price, int size) {
+        long index = (long) price - offset;
+        if ((index < 0 || index >= sizes.length) && (outliers.containsKey(price) || !cover(price, size))) {
+            Integer sizePrevious = (size == 0) ? outliers.remove(price) : outliers.put(price, size);
+            return onLevelUpdated(price, sizePrevious == null ? 0 : sizePrevious, size);
+        }
+        int arrayIndex = price - offset;
+        int sizePrevious = sizes[arrayIndex];
+        sizes[arrayIndex] = size;
+        if (sizePrevious == 0 && size != 0) {
+            arrayLevelsCount++;
+            setOccupied(arrayIndex);
+        } else if (sizePrevious != 0 && size == 0) {
+            arrayLevelsCount--;
+            clearOccupied(arrayIndex);
+        }
+        return onLevelUpdated(price, sizePrevious, size);
+    }
+
+    public int getSize(int price) {
+        long index = (long) price - offset;
+        if (index >= 0 && index < sizes.length) {
+            return sizes[(int) index];
+        }
+        if (outliers.isEmpty()) {
+            return 0;
+        }
+        return outliers.getOrDefault(price, 0);
+    }
+
+    public boolean isEmpty() {
+        return levelsCount == 0;
+    }
+
+    public int getLevelsCount() {
+        return levelsCount;
+    }
+
+    public int getBestPrice() {
+        if (levelsCount == 0) {
+            throw new NoSuchElementException();
+        }
+        return bestPrice;
+    }
+
+    public int getBestSize() {
+        return getSize(getBestPrice());
+    }
+
+    /**
+     * Number of levels between the best price and given price, negative if the
+     * price is better than the best one.
+     */
+    public int getLevel(int price) {
+        return isBid ? getBestPrice() - price : price - getBestPrice();
+    }
+
+    /**
+     * Copy of the non-empty levels ordered from the best price, the way
+     * {@link OrderBookBase} sides were stored before
+     */
+    public TreeMap<Integer, Integer> toTreeMap() {
+        TreeMap<Integer, Integer> map = isBid ? new TreeMap<>(Collections.reverseOrder()) : new TreeMap<>();
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] != 0) {
+                map.put(i + offset, sizes[i]);
+            }
+        }
+        map.putAll(outliers);
+        return map;
+    }
+
+    private int onLevelUpdated(int price, int sizePrevious, int size) {
+        if (sizePrevious == 0 && size != 0) {
+            if (levelsCount++ == 0 || isBetter(price, bestPrice)) {
+                bestPrice = price;
+            }
+        } else if (sizePrevious != 0 && size == 0) {
+            if (--levelsCount > 0 && price == bestPrice) {
+                bestPrice = findBestPrice();
+            }
+        }
+        return sizePrevious;
+    }
+
+    private int findBestPrice() {
+        int arrayBest = 0;
+        if (arrayLevelsCount > 0) {
+            arrayBest = (isBid ? highestIndex() : lowestIndex()) + offset;
+            if (outliers.isEmpty()) {
+                return arrayBest;
+            }
+        }
+        int outlierBest = isBid ? outliers.lastKey() : outliers.firstKey();
+        return (arrayLevelsCount == 0 || isBetter(outlierBest, arrayBest)) ? outlierBest : arrayBest;
+    }
+
+    private boolean isBetter(int price, int otherPrice) {
+        return isBid ? price > otherPrice : price < otherPrice;
+    }
+
+    /**
+     * Makes the array cover the price if possible
+     *
+     * @return false if the level has to be kept in the map
+     */
+    private boolean cover(int price, int size) {
+        if (size == 0) {
+            return false;
+        }
+        if (sizes.length == 0) {
+            resize(INITIAL_CAPACITY, (long) price - INITIAL_CAPACITY / 2);
+            return true;
+        }
+        long from = Math.min(offset, price);
+        long to = Math.max((long) offset + sizes.length, (long) price + 1);
+        if (to - from <= MAX_CAPACITY) {
+            int capacity = sizes.length;
+            while (capacity < 2 * (to - from) && capacity < MAX_CAPACITY) {
+                capacity *= 2;
+            }
+            resize(capacity, from - (capacity - (to - from)) / 2);
+            return true;
+        }
+        // The array is as large as allowed: follow the market when it moves,
+        // or move to where the levels are if the array ended up away from them
+        if (levelsCount > 0 && Math.abs((long) price - bestPrice) < RECENTRE_DISTANCE) {
+            resize(MAX_CAPACITY, (long) bestPrice - MAX_CAPACITY / 2);
+            return true;
+        }
+        if (arrayLevelsCount < outliers.size()) {
+            resize(MAX_CAPACITY, (long) price - MAX_CAPACITY / 2);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the levels into an array of given capacity starting at given
+     * price, levels outside of it go to the map and levels of the map inside
+     * of it come back
+     */
+    private void resize(int capacity, long newOffsetLong) {
+        int newOffset = (int) Math.max(Integer.MIN_VALUE, Math.min(newOffsetLong, (long) Integer.MAX_VALUE - capacity + 1));
+        int[] oldSizes = sizes;
+        int oldOffset = offset;
+        sizes = new int[capacity];
+        occupied = new long[capacity >>> 6];
+        occupiedWords = new long[(occupied.length + 63) >>> 6];
+        offset = newOffset;
+        arrayLevelsCount = 0;
+        for (int i = 0; i < oldSizes.length; i++) {
+            if (oldSizes[i] != 0) {
+                int price = i + oldOffset;
+                long index = (long) price - newOffset;
+                if (index >= 0 && index < capacity) {
+                    putArrayLevel((int) index, oldSizes[i]);
+                } else {
+                    outliers.put(price, oldSizes[i]);
+                }
+            }
+        }
+        if (!outliers.isEmpty()) {
+            Map<Integer, Integer> inside = outliers.subMap(newOffset, true, newOffset + capacity - 1, true);
+            for (Map.Entry<Integer, Integer> level : inside.entrySet()) {
+                putArrayLevel(level.getKey() - newOffset, level.getValue());
+            }
+            inside.clear();
+        }
+    }
+
+    private void putArrayLevel(int index, int size) {
+        sizes[index] = size;
+        arrayLevelsCount++;
+        setOccupied(index);
+    }
+
+    private void setOccupied(int index) {
+        int word = index >>> 6;
+        occupied[word] |= 1L << index;
+        occupiedWords[word >>> 6] |= 1L << word;
+    }
+
+    private void clearOccupied(int index) {
+        int word = index >>> 6;
+        occupied[word] &= ~(1L << index);
+        if (occupied[word] == 0) {
+            occupiedWords[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    private int lowestIndex() {
+        for (int i = 0; i < occupiedWords.length; i++) {
+            if (occupiedWords[i] != 0) {
+                int word = (i << 6) + Long.numberOfTrailingZeros(occupiedWords[i]);
+                return (word << 6) + Long.numberOfTrailingZeros(occupied[word]);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    private int highestIndex() {
+        for (int i = occupiedWords.length - 1; i >= 0; i--) {
+            if (occupiedWords[i] != 0) {
+                int word = (i << 6) + 63 - Long.numberOfLeadingZeros(occupiedWords[i]);
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(occupied[word]);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+}
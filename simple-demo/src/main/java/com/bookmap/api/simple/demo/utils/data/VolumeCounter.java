@@ -1,12 +1,7 @@
 package com.bookmap.api.simple.demo.utils.data;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
-
 public class VolumeCounter {
 
     public static enum VolumeCounterType {
@@ -25,7 +20,11 @@ public class VolumeCounter {
     private static class VolumeMovingSum implements IVolumeCounter {
 
         protected final long intervalNanoseconds;
-        private ArrayList<Pair<Long, Integer>> trades = new ArrayList<>();
+        // circular buffer of trades, oldest one at head
+        private long[] times = new long[64];
+        private int[] sizes = new int[64];
+        private int head = 0;
+        private int count = 0;
         private long volume = 0;
 
         public VolumeMovingSum(long intervalNanoseconds) {
@@ -33,23 +32,39 @@ public class VolumeCounter {
         }
 
         public void onTrade(long nanoseconds, int size) {
-            trades.add(new MutablePair<Long, Integer>(nanoseconds, size));
+            if (count == times.length) {
+                grow();
+            }
+            int tail = (head + count) & (times.length - 1);
+            times[tail] = nanoseconds;
+            sizes[tail] = size;
+            count++;
             volume += size;
         }
 
         public double getVolume(long nanoseconds) {
-            Iterator<Pair<Long, Integer>> iterator = trades.iterator();
-            while (iterator.hasNext()) {
-                Pair<Long, Integer> pair = iterator.next();
-                if (pair.getKey() < nanoseconds - intervalNanoseconds) {
-                    iterator.remove();
-                    volume -= pair.getValue();
-                } else {
-                    break;
-                }
+            long threshold = nanoseconds - intervalNanoseconds;
+            int mask = times.length - 1;
+            while (count > 0 && times[head] < threshold) {
+                volume -= sizes[head];
+                head = (head + 1) & mask;
+                count--;
             }
             return volume;
         }
+
+        private void grow() {
+            long[] newTimes = new long[times.length * 2];
+            int[] newSizes = new int[sizes.length * 2];
+            int firstPart = times.length - head;
+            System.arraycopy(times, head, newTimes, 0, firstPart);
+            System.arraycopy(times, 0, newTimes, firstPart, head);
+            System.arraycopy(sizes, head, newSizes, 0, firstPart);
+            System.arraycopy(sizes, 0, newSizes, firstPart, head);
+            times = newTimes;
+            sizes = newSizes;
+            head = 0;
+        }
     }
 
     private static class VolumeExponential extends ExponentialSum implements IVolumeCounter {